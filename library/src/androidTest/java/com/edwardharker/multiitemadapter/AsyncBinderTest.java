@@ -0,0 +1,175 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link AsyncBinder}
+ */
+public class AsyncBinderTest {
+
+    private List<Runnable> backgroundTasks;
+    private QueueingThreadHelper threadHelper;
+    private AsyncBinder asyncBinder;
+    private RecyclerView.ViewHolder holder;
+
+    @Before
+    public void setup() {
+        backgroundTasks = new ArrayList<>();
+        threadHelper = new QueueingThreadHelper();
+        asyncBinder = new AsyncBinder(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                backgroundTasks.add(command);
+            }
+        }, threadHelper);
+        holder = new RecyclerView.ViewHolder(mock(View.class)) {
+        };
+    }
+
+    @Test
+    public void testBindsPlaceholderThenResult() throws Exception {
+        RecordingBinder binder = new RecordingBinder("result");
+
+        asyncBinder.bind(holder, binder);
+        assertEquals(1, binder.mPlaceholderCount);
+        assertTrue(asyncBinder.isLoading(holder));
+
+        runAll();
+        assertEquals("result", binder.mBound);
+        assertFalse(asyncBinder.isLoading(holder));
+    }
+
+    @Test
+    public void testResultDroppedWhenReboundToAnotherBinder() throws Exception {
+        RecordingBinder first = new RecordingBinder("first");
+        RecordingBinder second = new RecordingBinder("second");
+
+        asyncBinder.bind(holder, first);
+        asyncBinder.bind(holder, second);
+        runAll();
+
+        assertEquals(0, first.mLoadCount);
+        assertEquals(null, first.mBound);
+        assertEquals("second", second.mBound);
+    }
+
+    @Test
+    public void testResultDroppedWhenRecycledDuringLoad() throws Exception {
+        RecordingBinder binder = new RecordingBinder("result");
+
+        asyncBinder.bind(holder, binder);
+        backgroundTasks.get(0).run();
+        asyncBinder.cancel(holder);
+        threadHelper.runPending();
+
+        assertEquals(1, binder.mLoadCount);
+        assertEquals(null, binder.mBound);
+    }
+
+    @Test
+    public void testCancelUnlessFor() throws Exception {
+        RecordingBinder first = new RecordingBinder("first");
+        RecordingBinder second = new RecordingBinder("second");
+
+        asyncBinder.bind(holder, first);
+        asyncBinder.cancelUnlessFor(holder, first);
+        assertTrue(asyncBinder.isLoading(holder));
+
+        asyncBinder.cancelUnlessFor(holder, second);
+        runAll();
+        assertFalse(asyncBinder.isLoading(holder));
+        assertEquals(null, first.mBound);
+    }
+
+    @Test
+    public void testCancelAll() throws Exception {
+        RecordingBinder binder = new RecordingBinder("result");
+
+        asyncBinder.bind(holder, binder);
+        asyncBinder.cancelAll();
+        runAll();
+
+        assertEquals(0, binder.mLoadCount);
+        assertFalse(asyncBinder.isLoading(holder));
+    }
+
+    @Test
+    public void testLoadFailureThrownOnUiThread() throws Exception {
+        RecordingBinder binder = new RecordingBinder("result");
+        binder.mFail = true;
+
+        asyncBinder.bind(holder, binder);
+        backgroundTasks.get(0).run();
+        try {
+            threadHelper.runPending();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private void runAll() {
+        List<Runnable> tasks = new ArrayList<>(backgroundTasks);
+        backgroundTasks.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        threadHelper.runPending();
+    }
+
+    private static final class RecordingBinder implements AsyncMultiTypeBinder<String> {
+
+        private final String mResult;
+        private int mPlaceholderCount;
+        private int mLoadCount;
+        private String mBound;
+        private boolean mFail;
+
+        RecordingBinder(String result) {
+            mResult = result;
+        }
+
+        @Override
+        public void onBindPlaceholder(RecyclerView.ViewHolder holder) {
+            mPlaceholderCount++;
+        }
+
+        @Override
+        public String load() {
+            mLoadCount++;
+            if (mFail) {
+                throw new IllegalStateException("load failed");
+            }
+            return mResult;
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, String result) {
+            mBound = result;
+        }
+
+        @Override
+        public ViewType getViewType() {
+            return null;
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder) {
+            onBindViewHolder(holder, load());
+        }
+    }
+
+}
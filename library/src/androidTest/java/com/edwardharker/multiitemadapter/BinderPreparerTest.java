@@ -0,0 +1,134 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+
+/**
+ * Tests for {@link BinderPreparer}
+ */
+public class BinderPreparerTest {
+
+    private QueueingThreadHelper threadHelper;
+    private BinderPreparer preparer;
+    private BinderStore binders;
+
+    @Before
+    public void setup() {
+        threadHelper = new QueueingThreadHelper();
+        preparer = new BinderPreparer(new DirectExecutor(), threadHelper, 3);
+        binders = new ArrayBinderStore();
+        for (int i = 0; i < 20; i++) {
+            binders.add(i, new CountingBinder("item " + i), 0);
+        }
+    }
+
+    @Test
+    public void testPreparedWhenBoundIfNotReady() throws Exception {
+        CountingBinder binder = binder(0);
+
+        assertEquals("item 0", preparer.getPrepared(binder));
+        assertEquals("item 0", preparer.getPrepared(binder));
+        assertEquals(1, binder.mPrepareCount);
+    }
+
+    @Test
+    public void testPreparesAheadOfBoundPosition() throws Exception {
+        preparer.onPositionBound(5, binders);
+        threadHelper.runPending();
+
+        assertEquals(0, binder(5).mPrepareCount);
+        for (int i = 6; i <= 8; i++) {
+            assertEquals(1, binder(i).mPrepareCount);
+            assertEquals("item " + i, preparer.getPrepared(binder(i)));
+            assertEquals(1, binder(i).mPrepareCount);
+        }
+        assertEquals(0, binder(9).mPrepareCount);
+    }
+
+    @Test
+    public void testPreparesBehindWhenScrollingBack() throws Exception {
+        preparer.onPositionBound(10, binders);
+        preparer.onPositionBound(9, binders);
+        threadHelper.runPending();
+
+        assertEquals(1, binder(6).mPrepareCount);
+        assertEquals(1, binder(8).mPrepareCount);
+        assertEquals(0, binder(5).mPrepareCount);
+    }
+
+    @Test
+    public void testDoesNotPrepareTwice() throws Exception {
+        preparer.onPositionBound(0, binders);
+        preparer.onPositionBound(1, binders);
+        threadHelper.runPending();
+        preparer.onPositionBound(2, binders);
+        threadHelper.runPending();
+
+        assertEquals(1, binder(3).mPrepareCount);
+        assertEquals(1, binder(4).mPrepareCount);
+    }
+
+    @Test
+    public void testFailedPrepareIsRetriedWhenBound() throws Exception {
+        binder(1).mFail = true;
+        preparer.onPositionBound(0, binders);
+        threadHelper.runPending();
+        binder(1).mFail = false;
+
+        assertEquals("item 1", preparer.getPrepared(binder(1)));
+        assertEquals(2, binder(1).mPrepareCount);
+    }
+
+    @Test
+    public void testClearDropsResultsStillBeingPrepared() throws Exception {
+        preparer.onPositionBound(0, binders);
+        preparer.clear();
+        threadHelper.runPending();
+
+        preparer.getPrepared(binder(1));
+        assertEquals(2, binder(1).mPrepareCount);
+    }
+
+    private CountingBinder binder(int position) {
+        return (CountingBinder) binders.get(position);
+    }
+
+    private static final class CountingBinder implements PreparableMultiTypeBinder<String> {
+
+        private final String mText;
+        private int mPrepareCount;
+        private boolean mFail;
+
+        CountingBinder(String text) {
+            mText = text;
+        }
+
+        @Override
+        public String prepare() {
+            mPrepareCount++;
+            if (mFail) {
+                throw new RuntimeException("prepare failed");
+            }
+            return mText;
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, String prepared) {
+        }
+
+        @Override
+        public ViewType getViewType() {
+            return null;
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder) {
+            onBindViewHolder(holder, prepare());
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.edwardharker.multiitemadapter;
+
+import android.util.SparseArray;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+/**
+ * Tests for {@link BinderSnapshot}
+ */
+public class BinderSnapshotTest {
+
+    private static final int TEXT_TYPE = TextBinder.VIEW_TYPE;
+
+    private File file;
+    private TextBinderCodec codec;
+    private ImmutableSparseArray<BinderCodec<?>> codecs;
+
+    @Before
+    public void setup() throws Exception {
+        file = File.createTempFile("snapshot", null);
+        codec = new TextBinderCodec();
+        SparseArray<BinderCodec<?>> codecArray = new SparseArray<>();
+        codecArray.put(TEXT_TYPE, codec);
+        codecs = new ImmutableSparseArray<>(codecArray);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        file.delete();
+    }
+
+    @Test
+    public void testWriteAndOpen() throws Exception {
+        List<MultiTypeBinder> binders = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            binders.add(new TextBinder("item " + i));
+        }
+
+        BinderSnapshot.write(binders, false, codecs, file);
+        BinderSnapshot snapshot = BinderSnapshot.open(file);
+
+        assertEquals(100, snapshot.size());
+        assertFalse(snapshot.hasFooter());
+        assertEquals(TEXT_TYPE, snapshot.entry(42).getViewType());
+        assertEquals("item 42", ((TextBinder) snapshot.entry(42).decode(codecs)).mText);
+        assertEquals("item 99", ((TextBinder) snapshot.entry(99).decode(codecs)).mText);
+    }
+
+    @Test
+    public void testOnlyDecodesEntriesThatAreRead() throws Exception {
+        BinderSnapshot.write(Arrays.<MultiTypeBinder>asList(new TextBinder("a"),
+                new TextBinder("b"), new TextBinder("c")), false, codecs, file);
+
+        BinderSnapshot snapshot = BinderSnapshot.open(file);
+        assertEquals(0, codec.mReadCount);
+
+        snapshot.entry(1).decode(codecs);
+        assertEquals(1, codec.mReadCount);
+    }
+
+    @Test
+    public void testKeepsFooterAndStableIds() throws Exception {
+        BinderSnapshot.write(Arrays.<MultiTypeBinder>asList(new StableTextBinder("a", 7),
+                new TextBinder("footer")), true, codecs, file);
+
+        BinderSnapshot snapshot = BinderSnapshot.open(file);
+
+        assertTrue(snapshot.hasFooter());
+        assertTrue(snapshot.entry(0).hasItemId());
+        assertEquals(7, snapshot.entry(0).getItemId());
+        assertFalse(snapshot.entry(1).hasItemId());
+        assertEquals(0, codec.mReadCount);
+    }
+
+    @Test
+    public void testCopiesRecordsWithoutDecoding() throws Exception {
+        BinderSnapshot.write(Arrays.<MultiTypeBinder>asList(new StableTextBinder("a", 7),
+                new TextBinder("b")), false, codecs, file);
+        BinderSnapshot snapshot = BinderSnapshot.open(file);
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        BinderSnapshot.write(Arrays.asList(new TextBinder("c"), snapshot.entry(0).toRecord()),
+                false, codecs, copy);
+        BinderSnapshot copied = BinderSnapshot.wrap(ByteBuffer.wrap(copy.toByteArray()));
+
+        assertEquals(0, codec.mReadCount);
+        assertEquals(2, copied.size());
+        assertEquals("c", ((TextBinder) copied.entry(0).decode(codecs)).mText);
+        assertEquals("a", ((TextBinder) copied.entry(1).decode(codecs)).mText);
+        assertTrue(copied.entry(1).hasItemId());
+        assertEquals(7, copied.entry(1).getItemId());
+    }
+
+    @Test
+    public void testOpenNotASnapshot() throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17});
+        out.close();
+
+        try {
+            BinderSnapshot.open(file);
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void testOpenTruncatedSnapshot() throws Exception {
+        BinderSnapshot.write(Arrays.<MultiTypeBinder>asList(new TextBinder("a"),
+                new TextBinder("b")), false, codecs, file);
+        RandomAccessFile truncate = new RandomAccessFile(file, "rw");
+        truncate.setLength(30);
+        truncate.close();
+
+        try {
+            BinderSnapshot.open(file);
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+}
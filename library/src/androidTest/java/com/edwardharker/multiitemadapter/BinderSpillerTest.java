@@ -0,0 +1,297 @@
+package com.edwardharker.multiitemadapter;
+
+import android.util.SparseArray;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+
+/**
+ * Tests for {@link BinderSpiller}
+ */
+public class BinderSpillerTest {
+
+    private static final int SPILLED_TYPE = TextBinder.VIEW_TYPE;
+    private static final int KEPT_TYPE = 1;
+
+    private File file;
+    private QueueingThreadHelper threadHelper;
+    private BinderSpiller spiller;
+    private BinderStore binders;
+
+    @Before
+    public void setup() throws Exception {
+        file = File.createTempFile("spill", null);
+        threadHelper = new QueueingThreadHelper();
+        spiller = newSpiller();
+        binders = new ArrayBinderStore();
+        for (int i = 0; i < 40; i++) {
+            binders.add(i, new TextBinder("item " + i), SPILLED_TYPE);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        spiller.close();
+        file.delete();
+        secondFile().delete();
+    }
+
+    @Test
+    public void testSpillsBindersOutsideWindow() throws Exception {
+        spiller.onPositionBound(0, binders, binders.size());
+        spiller.onPositionBound(1, binders, binders.size());
+        threadHelper.runPending();
+
+        for (int i = 0; i < 8; i++) {
+            assertTrue(binders.get(i) instanceof TextBinder);
+        }
+        for (int i = 8; i < binders.size(); i++) {
+            BinderSpiller.Tombstone tombstone = (BinderSpiller.Tombstone) binders.get(i);
+            assertNull(tombstone.getBinder());
+        }
+        assertTrue(file.length() > 0);
+    }
+
+    @Test
+    public void testReadsBackTombstonesNearBoundPosition() throws Exception {
+        spill();
+
+        spiller.onPositionBound(30, binders, binders.size());
+        threadHelper.runPending();
+
+        for (int i = 28; i <= 32; i++) {
+            BinderSpiller.Tombstone tombstone = (BinderSpiller.Tombstone) binders.get(i);
+            assertEquals("item " + i, ((TextBinder) tombstone.getBinder()).mText);
+        }
+        assertNull(((BinderSpiller.Tombstone) binders.get(20)).getBinder());
+    }
+
+    @Test
+    public void testReadsOnCallingThreadWhenNotReadBackInTime() throws Exception {
+        spill();
+        BinderSpiller.Tombstone tombstone = (BinderSpiller.Tombstone) binders.get(25);
+
+        TextBinder binder = (TextBinder) spiller.read(tombstone, false);
+
+        assertEquals("item 25", binder.mText);
+        assertNull(tombstone.getBinder());
+        assertSame(spiller.read(tombstone, true), tombstone.getBinder());
+    }
+
+    @Test
+    public void testKeepsBindersWithoutCodec() throws Exception {
+        MultiTypeBinder kept = new TextBinder("kept");
+        binders.set(30, kept, KEPT_TYPE);
+
+        spill();
+
+        assertSame(kept, binders.get(30));
+    }
+
+    @Test
+    public void testLeavesOutFooter() throws Exception {
+        spiller.onPositionBound(0, binders, binders.size() - 1);
+        spiller.onPositionBound(1, binders, binders.size() - 1);
+        threadHelper.runPending();
+
+        assertTrue(binders.get(binders.size() - 1) instanceof TextBinder);
+        assertTrue(binders.get(binders.size() - 2) instanceof BinderSpiller.Tombstone);
+    }
+
+    @Test
+    public void testKeepsStableIdOfSpilledBinder() throws Exception {
+        binders.set(30, new StableTextBinder("stable", 42), SPILLED_TYPE);
+
+        spill();
+
+        BinderSpiller.Tombstone tombstone = (BinderSpiller.Tombstone) binders.get(30);
+        assertTrue(tombstone.hasItemId());
+        assertEquals(42, tombstone.getItemId());
+    }
+
+    @Test
+    public void testNumberInMemoryStaysTheSame() throws Exception {
+        for (int i = 40; i < 1000; i++) {
+            binders.add(i, new TextBinder("item " + i), SPILLED_TYPE);
+        }
+
+        int mostInMemory = 0;
+        for (int i = 0; i < binders.size(); i++) {
+            spiller.onPositionBound(i, binders, binders.size());
+            threadHelper.runPending();
+            mostInMemory = Math.max(mostInMemory, countInMemory());
+        }
+
+        // the window, plus the binds between sweeps
+        assertTrue(mostInMemory <= 8 + 2);
+    }
+
+    @Test
+    public void testClearEmptiesFiles() throws Exception {
+        spill();
+
+        spiller.clear();
+
+        assertEquals(0, file.length());
+        assertEquals(0, secondFile().length());
+    }
+
+    @Test
+    public void testSweepsOnlyPositionsThatMayBeInMemory() throws Exception {
+        spill();
+
+        MultiTypeBinder unreported = new TextBinder("unreported");
+        binders.set(20, unreported, SPILLED_TYPE);
+        binders.set(30, new TextBinder("reported"), SPILLED_TYPE);
+        spiller.onChanged(30, 1);
+        sweep(1);
+
+        assertSame(unreported, binders.get(20));
+        assertTrue(binders.get(30) instanceof BinderSpiller.Tombstone);
+    }
+
+    @Test
+    public void testFollowsMovedPositions() throws Exception {
+        spill();
+
+        binders.add(20, new TextBinder("inserted"), SPILLED_TYPE);
+        spiller.onInserted(20, 1);
+        binders.removeRange(10, 12);
+        releaseAll(10, 12);
+        spiller.onRemoved(10, 2);
+        sweep(1);
+
+        assertTrue(binders.get(18) instanceof BinderSpiller.Tombstone);
+        assertEquals("inserted", ((TextBinder) spiller.read(
+                (BinderSpiller.Tombstone) binders.get(18), false)).mText);
+    }
+
+    @Test
+    public void testCompactsOnceMostBindersAreRemoved() throws Exception {
+        binders.clear();
+        String padding = new String(new char[1024]).replace('\0', 'x');
+        for (int i = 0; i < 400; i++) {
+            binders.add(i, new TextBinder(i + padding), SPILLED_TYPE);
+        }
+        spill();
+        long spilledLength = file.length();
+
+        releaseAll(10, 390);
+        binders.removeRange(10, 390);
+        spiller.onRemoved(10, 380);
+        sweep(1);
+        sweep(1);
+
+        assertEquals(0, file.length());
+        assertTrue(secondFile().length() > 0);
+        assertTrue(secondFile().length() < spilledLength / 10);
+        for (int i = 10; i < binders.size(); i++) {
+            BinderSpiller.Tombstone tombstone = (BinderSpiller.Tombstone) binders.get(i);
+            assertEquals(i + 380 + padding, ((TextBinder) spiller.read(tombstone, false)).mText);
+        }
+    }
+
+    @Test
+    public void testRemovedTombstonesCanBeReadUntilFileIsEmptied() throws Exception {
+        spill();
+        BinderSpiller.Tombstone tombstone = (BinderSpiller.Tombstone) binders.get(25);
+
+        spiller.release(tombstone);
+        assertEquals("item 25", ((TextBinder) spiller.readDetached(tombstone)).mText);
+        spiller.clear();
+        try {
+            spiller.readDetached(tombstone);
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCloseDeletesFiles() throws Exception {
+        spill();
+        BinderSpiller.Tombstone tombstone = (BinderSpiller.Tombstone) binders.get(25);
+
+        spiller.close();
+
+        assertFalse(file.exists());
+        assertFalse(secondFile().exists());
+        try {
+            spiller.read(tombstone, false);
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFileInUseIsNotEmptied() throws Exception {
+        spill();
+        long length = file.length();
+
+        BinderSpiller second = newSpiller();
+        assertEquals(new File(file.getPath() + "-1"), second.getFile());
+        assertEquals(length, file.length());
+        second.close();
+
+        spiller.close();
+        BinderSpiller third = newSpiller();
+        assertEquals(file, third.getFile());
+        third.close();
+    }
+
+    private BinderSpiller newSpiller() {
+        SparseArray<BinderCodec<?>> codecs = new SparseArray<>();
+        codecs.put(SPILLED_TYPE, new TextBinderCodec());
+        return new BinderSpiller(new ImmutableSparseArray<>(codecs), file, 8,
+                new DirectExecutor(), threadHelper);
+    }
+
+    private void spill() {
+        spiller.onPositionBound(0, binders, binders.size());
+        spiller.onPositionBound(1, binders, binders.size());
+        threadHelper.runPending();
+    }
+
+    private void sweep(int position) {
+        for (int i = 0; i < 2; i++) {
+            spiller.onPositionBound(position, binders, binders.size());
+        }
+        threadHelper.runPending();
+    }
+
+    private void releaseAll(int start, int end) {
+        for (int i = start; i < end; i++) {
+            spiller.release((BinderSpiller.Tombstone) binders.get(i));
+        }
+    }
+
+    private File secondFile() {
+        return new File(file.getPath() + ".1");
+    }
+
+    private int countInMemory() {
+        int count = 0;
+        for (int i = 0; i < binders.size(); i++) {
+            Object item = binders.get(i);
+            if (!(item instanceof BinderSpiller.Tombstone)
+                    || ((BinderSpiller.Tombstone) item).getBinder() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
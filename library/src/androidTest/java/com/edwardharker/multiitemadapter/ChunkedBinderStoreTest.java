@@ -0,0 +1,137 @@
+package com.edwardharker.multiitemadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link ChunkedBinderStore}
+ */
+public class ChunkedBinderStoreTest {
+
+    private ChunkedBinderStore mStore;
+    private List<MultiTypeBinder> mExpected;
+
+    @Before
+    public void setup() {
+        mStore = new ChunkedBinderStore();
+        mExpected = new ArrayList<>();
+    }
+
+    @Test
+    public void testMatchesArrayListAcrossManyChunks() throws Exception {
+        Random random = new Random(42);
+        MultiTypeBinder[] binders = new MultiTypeBinder[8];
+        for (int i = 0; i < binders.length; i++) {
+            binders[i] = mock(MultiTypeBinder.class);
+        }
+
+        for (int i = 0; i < 5000; i++) {
+            int type = random.nextInt(binders.length);
+            int operation = random.nextInt(10);
+            if (operation < 6 || mExpected.isEmpty()) {
+                int position = random.nextInt(mExpected.size() + 1);
+                mStore.add(position, binders[type], type);
+                mExpected.add(position, binders[type]);
+            } else if (operation < 9) {
+                int from = random.nextInt(mExpected.size());
+                int to = Math.min(mExpected.size(), from + random.nextInt(300));
+                mStore.removeRange(from, to);
+                mExpected.subList(from, to).clear();
+            } else {
+                int position = random.nextInt(mExpected.size());
+                mStore.set(position, binders[type], type);
+                mExpected.set(position, binders[type]);
+            }
+        }
+
+        assertMatches();
+    }
+
+    @Test
+    public void testMergesUnderfullChunks() throws Exception {
+        MultiTypeBinder binder = mock(MultiTypeBinder.class);
+        int capacity = ChunkedBinderStore.CHUNK_CAPACITY;
+        for (int i = 0; i < capacity * 40; i++) {
+            mStore.add(i, binder, 0);
+        }
+        assertEquals(40, mStore.chunkCount());
+
+        for (int chunk = 39; chunk >= 0; chunk--) {
+            mStore.removeRange(chunk * capacity + 10, (chunk + 1) * capacity);
+        }
+
+        assertEquals(400, mStore.size());
+        assertEquals(20, mStore.chunkCount());
+    }
+
+    @Test
+    public void testInsertsIntoFullChunks() throws Exception {
+        MultiTypeBinder[] binders = new MultiTypeBinder[3];
+        for (int i = 0; i < binders.length; i++) {
+            binders[i] = mock(MultiTypeBinder.class);
+        }
+        for (int i = 0; i < ChunkedBinderStore.CHUNK_CAPACITY * 3; i++) {
+            mStore.add(i, binders[0], 0);
+            mExpected.add(binders[0]);
+        }
+
+        for (int i = 0; i < ChunkedBinderStore.CHUNK_CAPACITY * 2; i++) {
+            int position = ChunkedBinderStore.CHUNK_CAPACITY + i % 3;
+            mStore.add(position, binders[i % 3], i % 3);
+            mExpected.add(position, binders[i % 3]);
+        }
+
+        assertMatches();
+    }
+
+    @Test
+    public void testAddAll() throws Exception {
+        MultiTypeBinder one = mock(MultiTypeBinder.class);
+        MultiTypeBinder two = mock(MultiTypeBinder.class);
+
+        mStore.addAll(0, Arrays.asList(one, one, one), new int[]{1, 1, 1});
+        mStore.addAll(1, Arrays.asList(two, two), new int[]{2, 2});
+
+        assertEquals(5, mStore.size());
+        assertSame(one, mStore.get(0));
+        assertSame(two, mStore.get(1));
+        assertEquals(2, mStore.getViewType(2));
+        assertEquals(1, mStore.getViewType(4));
+
+        mStore.clear();
+        assertEquals(0, mStore.size());
+    }
+
+    @Test
+    public void testOutOfBounds() throws Exception {
+        try {
+            mStore.get(0);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+
+        try {
+            mStore.add(1, mock(MultiTypeBinder.class), 0);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    private void assertMatches() {
+        assertEquals(mExpected.size(), mStore.size());
+        for (int i = 0; i < mExpected.size(); i++) {
+            assertSame(mExpected.get(i), mStore.get(i));
+        }
+    }
+
+}
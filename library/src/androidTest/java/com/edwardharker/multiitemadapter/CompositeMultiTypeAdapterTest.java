@@ -0,0 +1,304 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link CompositeMultiTypeAdapter}
+ */
+public class CompositeMultiTypeAdapterTest {
+
+    private MultiTypeBinder firstBinder;
+    private MultiTypeCreator firstCreator;
+
+    private MultiTypeBinder secondBinder;
+    private MultiTypeCreator secondCreator;
+
+    private ThreadHelper alwaysUiThreadHelper;
+
+    private MultiTypeAdapter first;
+    private MultiTypeAdapter second;
+
+    @Before
+    public void setup() {
+        // both adapters use view type 1
+        ViewType viewType = mock(ViewType.class);
+        when(viewType.getType()).thenReturn(1);
+
+        firstBinder = mock(MultiTypeBinder.class);
+        firstCreator = mock(MultiTypeCreator.class);
+        when(firstBinder.getViewType()).thenReturn(viewType);
+        when(firstCreator.getViewType()).thenReturn(viewType);
+        when(firstCreator.onCreateViewHolder(any(ViewGroup.class)))
+                .thenReturn(new MockViewHolder(mock(View.class)));
+
+        secondBinder = mock(MultiTypeBinder.class);
+        secondCreator = mock(MultiTypeCreator.class);
+        when(secondBinder.getViewType()).thenReturn(viewType);
+        when(secondCreator.getViewType()).thenReturn(viewType);
+        when(secondCreator.onCreateViewHolder(any(ViewGroup.class)))
+                .thenReturn(new MockViewHolder(mock(View.class)));
+
+        alwaysUiThreadHelper = mock(ThreadHelper.class);
+        when(alwaysUiThreadHelper.isUiThread()).thenReturn(true);
+
+        first = new MultiTypeAdapter.Builder()
+                .addCreator(firstCreator)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        first.addAll(Arrays.asList(firstBinder, firstBinder));
+
+        second = new MultiTypeAdapter.Builder()
+                .addCreator(secondCreator)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        second.addAll(Arrays.asList(secondBinder, secondBinder, secondBinder));
+    }
+
+    @Test
+    public void testPositions() throws Exception {
+        CompositeMultiTypeAdapter composite = new CompositeMultiTypeAdapter.Builder()
+                .addAdapter(first)
+                .addAdapter(second)
+                .build();
+
+        assertEquals(5, composite.getItemCount());
+        assertSame(first, composite.getAdapter(1));
+        assertSame(second, composite.getAdapter(2));
+        assertEquals(1, composite.getLocalPosition(1));
+        assertEquals(2, composite.getLocalPosition(4));
+        assertEquals(3, composite.getPosition(second, 1));
+        assertNull(composite.getAdapter(5));
+        assertEquals(RecyclerView.NO_POSITION, composite.getLocalPosition(-1));
+    }
+
+    @Test
+    public void testBindUsesLocalPosition() throws Exception {
+        CompositeMultiTypeAdapter composite = new CompositeMultiTypeAdapter.Builder()
+                .addAdapter(first)
+                .addAdapter(second)
+                .build();
+
+        composite.onBindViewHolder(null, 2);
+
+        verify(secondBinder).onBindViewHolder(any(RecyclerView.ViewHolder.class));
+        verify(firstBinder, never()).onBindViewHolder(any(RecyclerView.ViewHolder.class));
+    }
+
+    @Test
+    public void testCollidingViewTypesAreRemapped() throws Exception {
+        CompositeMultiTypeAdapter composite = new CompositeMultiTypeAdapter.Builder()
+                .addAdapter(first)
+                .addAdapter(second)
+                .build();
+
+        int firstType = composite.getItemViewType(0);
+        int secondType = composite.getItemViewType(2);
+
+        assertEquals(1, firstType);
+        assertTrue(secondType != firstType);
+        assertEquals(secondType, composite.getItemViewType(4));
+
+        composite.onCreateViewHolder(null, secondType);
+        verify(secondCreator).onCreateViewHolder(null);
+        verify(firstCreator, never()).onCreateViewHolder(any(ViewGroup.class));
+    }
+
+    @Test
+    public void testCreateUnknownViewType() throws Exception {
+        CompositeMultiTypeAdapter composite = new CompositeMultiTypeAdapter.Builder()
+                .addAdapter(first)
+                .build();
+
+        try {
+            composite.onCreateViewHolder(null, 1);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testChangesAreOffset() throws Exception {
+        CompositeMultiTypeAdapter composite = new CompositeMultiTypeAdapter.Builder()
+                .addAdapter(first)
+                .addAdapter(second)
+                .build();
+        RecyclerView.AdapterDataObserver observer = mock(RecyclerView.AdapterDataObserver.class);
+        composite.registerAdapterDataObserver(observer);
+
+        second.add(secondBinder);
+        first.remove(0);
+
+        verify(observer).onItemRangeInserted(5, 1);
+        verify(observer).onItemRangeRemoved(0, 1);
+        assertEquals(5, composite.getItemCount());
+        assertEquals(1, composite.getPosition(second, 0));
+    }
+
+    @Test
+    public void testAdapterInTwoComposites() throws Exception {
+        new CompositeMultiTypeAdapter.Builder()
+                .addAdapter(first)
+                .build();
+
+        try {
+            new CompositeMultiTypeAdapter.Builder()
+                    .addAdapter(first)
+                    .build();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void testAdapterWithPrewarming() throws Exception {
+        ViewType viewType = mock(ViewType.class);
+        when(viewType.getType()).thenReturn(1);
+        MultiTypeAdapter prewarmed = new MultiTypeAdapter.Builder()
+                .addCreator(firstCreator)
+                .prewarm(viewType, 2)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+
+        try {
+            new CompositeMultiTypeAdapter.Builder()
+                    .addAdapter(prewarmed)
+                    .build();
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testFailedBuildLeavesAdaptersFree() throws Exception {
+        ViewType viewType = mock(ViewType.class);
+        when(viewType.getType()).thenReturn(1);
+        MultiTypeAdapter prewarmed = new MultiTypeAdapter.Builder()
+                .addCreator(firstCreator)
+                .prewarm(viewType, 2)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+
+        try {
+            new CompositeMultiTypeAdapter.Builder()
+                    .addAdapter(first)
+                    .addAdapter(prewarmed)
+                    .build();
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+
+        CompositeMultiTypeAdapter composite = new CompositeMultiTypeAdapter.Builder()
+                .addAdapter(first)
+                .build();
+        assertEquals(2, composite.getItemCount());
+    }
+
+    @Test
+    public void testAdapterAddedTwice() throws Exception {
+        try {
+            new CompositeMultiTypeAdapter.Builder()
+                    .addAdapter(first)
+                    .addAdapter(second)
+                    .addAdapter(first)
+                    .build();
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testStableIdsMustBeAskedFor() throws Exception {
+        MultiTypeAdapter stable = new MultiTypeAdapter.Builder()
+                .addCreator(firstCreator)
+                .stableIds(true)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        MultiTypeAdapter otherStable = new MultiTypeAdapter.Builder()
+                .addCreator(secondCreator)
+                .stableIds(true)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+
+        CompositeMultiTypeAdapter composite = new CompositeMultiTypeAdapter.Builder()
+                .addAdapter(stable)
+                .addAdapter(otherStable)
+                .build();
+
+        assertFalse(composite.hasStableIds());
+    }
+
+    @Test
+    public void testStableIds() throws Exception {
+        MultiTypeAdapter stable = new MultiTypeAdapter.Builder()
+                .addCreator(firstCreator)
+                .stableIds(true)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+
+        CompositeMultiTypeAdapter composite = new CompositeMultiTypeAdapter.Builder()
+                .addAdapter(stable)
+                .stableIds(true)
+                .build();
+        assertTrue(composite.hasStableIds());
+
+        try {
+            new CompositeMultiTypeAdapter.Builder()
+                    .addAdapter(first)
+                    .stableIds(true)
+                    .build();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void testGetPositionOfOtherAdapter() throws Exception {
+        CompositeMultiTypeAdapter composite = new CompositeMultiTypeAdapter.Builder()
+                .addAdapter(first)
+                .build();
+
+        try {
+            composite.getPosition(second, 0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static final class MockViewHolder extends RecyclerView.ViewHolder
+            implements MultiTypeViewHolder {
+
+        MockViewHolder(View itemView) {
+            super(itemView);
+        }
+
+        @Override
+        public void onViewAttachedToWindow() {
+
+        }
+
+        @Override
+        public void onViewDetachedToWindow() {
+
+        }
+    }
+
+}
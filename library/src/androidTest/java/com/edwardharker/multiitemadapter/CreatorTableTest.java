@@ -0,0 +1,66 @@
+package com.edwardharker.multiitemadapter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.edwardharker.multiitemadapter.MockCreators.newCreator;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link CreatorTable}
+ */
+public class CreatorTableTest {
+
+    @Test
+    public void testContiguousTypesAreDense() throws Exception {
+        MultiTypeCreator zero = newCreator(0);
+        MultiTypeCreator one = newCreator(1);
+        MultiTypeCreator three = newCreator(3);
+
+        CreatorTable table = CreatorTable.create(Arrays.asList(three, zero, one));
+
+        assertTrue(table.isDense());
+        assertEquals(zero, table.get(0));
+        assertEquals(one, table.get(1));
+        assertNull(table.get(2));
+        assertEquals(three, table.get(3));
+        assertNull(table.get(-1));
+        assertNull(table.get(4));
+    }
+
+    @Test
+    public void testSparseTypes() throws Exception {
+        MultiTypeCreator small = newCreator(-5);
+        MultiTypeCreator large = newCreator(1000000);
+
+        CreatorTable table = CreatorTable.create(Arrays.asList(small, large));
+
+        assertFalse(table.isDense());
+        assertEquals(small, table.get(-5));
+        assertEquals(large, table.get(1000000));
+        assertNull(table.get(0));
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        CreatorTable table = CreatorTable.create(Collections.<MultiTypeCreator>emptyList());
+
+        assertNull(table.get(0));
+    }
+
+    @Test
+    public void testDuplicateTypes() throws Exception {
+        try {
+            CreatorTable.create(Arrays.asList(newCreator(1), newCreator(1)));
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.edwardharker.multiitemadapter;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Runs each command straight away on the calling thread
+ */
+final class DirectExecutor implements Executor {
+
+    @Override
+    public void execute(Runnable command) {
+        command.run();
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.edwardharker.multiitemadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link FenwickTree}
+ */
+public class FenwickTreeTest {
+
+    private FenwickTree mTree;
+
+    @Before
+    public void setup() {
+        mTree = new FenwickTree();
+        mTree.reset(new int[]{3, 0, 2, 5, 1}, 5);
+    }
+
+    @Test
+    public void testPrefixSum() throws Exception {
+        assertEquals(0, mTree.prefixSum(0));
+        assertEquals(3, mTree.prefixSum(1));
+        assertEquals(3, mTree.prefixSum(2));
+        assertEquals(5, mTree.prefixSum(3));
+        assertEquals(10, mTree.prefixSum(4));
+        assertEquals(11, mTree.total());
+    }
+
+    @Test
+    public void testAddAndGet() throws Exception {
+        mTree.add(1, 4);
+        mTree.add(3, -5);
+
+        assertEquals(4, mTree.get(1));
+        assertEquals(0, mTree.get(3));
+        assertEquals(10, mTree.total());
+    }
+
+    @Test
+    public void testIndexOf() throws Exception {
+        assertEquals(0, mTree.indexOf(0));
+        assertEquals(0, mTree.indexOf(2));
+        assertEquals(2, mTree.indexOf(3));
+        assertEquals(2, mTree.indexOf(4));
+        assertEquals(3, mTree.indexOf(5));
+        assertEquals(3, mTree.indexOf(9));
+        assertEquals(4, mTree.indexOf(10));
+        assertEquals(5, mTree.indexOf(11));
+    }
+
+    @Test
+    public void testAppend() throws Exception {
+        FenwickTree tree = new FenwickTree();
+        for (int i = 1; i <= 20; i++) {
+            tree.append(i);
+        }
+
+        assertEquals(20, tree.size());
+        assertEquals(210, tree.total());
+        assertEquals(55, tree.prefixSum(10));
+        assertEquals(13, tree.get(12));
+        assertEquals(10, tree.indexOf(55));
+
+        mTree.append(4);
+        assertEquals(15, mTree.total());
+        assertEquals(5, mTree.indexOf(11));
+    }
+
+    @Test
+    public void testRemoveLast() throws Exception {
+        mTree.removeLast();
+        assertEquals(4, mTree.size());
+        assertEquals(10, mTree.total());
+
+        mTree.append(7);
+        assertEquals(17, mTree.total());
+        assertEquals(7, mTree.get(4));
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link FlingTracker}
+ */
+public class FlingTrackerTest {
+
+    private static final long FRAME_NANOS = 16000000L;
+
+    private QueueingThreadHelper threadHelper;
+    private List<RecyclerView.ViewHolder> upgraded;
+    private FlingTracker tracker;
+    private long now;
+
+    @Before
+    public void setup() {
+        threadHelper = new QueueingThreadHelper();
+        upgraded = new ArrayList<>();
+        tracker = new FlingTracker(1000, threadHelper, new FlingTracker.Callback() {
+            @Override
+            public void onFlingEnded(List<RecyclerView.ViewHolder> lightlyBound) {
+                upgraded.addAll(lightlyBound);
+            }
+        });
+        now = 1;
+    }
+
+    @Test
+    public void testFastSettlingIsFlinging() throws Exception {
+        tracker.onScrollStateChanged(null, RecyclerView.SCROLL_STATE_SETTLING);
+        scroll(100);
+        scroll(100);
+
+        assertTrue(tracker.isFlinging());
+    }
+
+    @Test
+    public void testFastDraggingIsNotFlinging() throws Exception {
+        tracker.onScrollStateChanged(null, RecyclerView.SCROLL_STATE_DRAGGING);
+        scroll(100);
+        scroll(100);
+
+        assertFalse(tracker.isFlinging());
+    }
+
+    @Test
+    public void testSlowSettlingIsNotFlinging() throws Exception {
+        tracker.onScrollStateChanged(null, RecyclerView.SCROLL_STATE_SETTLING);
+        scroll(5);
+        scroll(5);
+
+        assertFalse(tracker.isFlinging());
+    }
+
+    @Test
+    public void testLightlyBoundUpgradedWhenFlingStops() throws Exception {
+        RecyclerView.ViewHolder lightlyBound = newViewHolder();
+        RecyclerView.ViewHolder recycled = newViewHolder();
+        RecyclerView.ViewHolder reboundFully = newViewHolder();
+        fling();
+        tracker.onLightBound(lightlyBound);
+        tracker.onLightBound(recycled);
+        tracker.onLightBound(reboundFully);
+        tracker.onFullyBoundOrRecycled(recycled);
+        tracker.onFullyBoundOrRecycled(reboundFully);
+
+        tracker.onScrollStateChanged(null, RecyclerView.SCROLL_STATE_IDLE);
+        assertFalse(tracker.isFlinging());
+        assertTrue(upgraded.isEmpty());
+
+        threadHelper.runPending();
+        assertEquals(Collections.singletonList(lightlyBound), upgraded);
+    }
+
+    @Test
+    public void testLightlyBoundUpgradedWhenFlingSlowsDown() throws Exception {
+        RecyclerView.ViewHolder lightlyBound = newViewHolder();
+        fling();
+        tracker.onLightBound(lightlyBound);
+
+        for (int i = 0; i < 10 && tracker.isFlinging(); i++) {
+            scroll(1);
+        }
+        assertFalse(tracker.isFlinging());
+
+        threadHelper.runPending();
+        assertEquals(Collections.singletonList(lightlyBound), upgraded);
+    }
+
+    @Test
+    public void testNotUpgradedIfFlungAgainBeforePosted() throws Exception {
+        fling();
+        tracker.onLightBound(newViewHolder());
+        tracker.onScrollStateChanged(null, RecyclerView.SCROLL_STATE_IDLE);
+        fling();
+
+        threadHelper.runPending();
+        assertTrue(upgraded.isEmpty());
+    }
+
+    @Test
+    public void testResetForgetsLightlyBound() throws Exception {
+        fling();
+        tracker.onLightBound(newViewHolder());
+
+        tracker.reset();
+        assertFalse(tracker.isFlinging());
+
+        threadHelper.runPending();
+        assertTrue(upgraded.isEmpty());
+    }
+
+    private void fling() {
+        tracker.onScrollStateChanged(null, RecyclerView.SCROLL_STATE_SETTLING);
+        scroll(100);
+        scroll(100);
+    }
+
+    private void scroll(int dy) {
+        now += FRAME_NANOS;
+        tracker.onScrolled(0, dy, now);
+    }
+
+    private static RecyclerView.ViewHolder newViewHolder() {
+        return new RecyclerView.ViewHolder(mock(View.class)) {
+        };
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.edwardharker.multiitemadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+/**
+ * Tests for {@link FrameSlicer}
+ */
+public class FrameSlicerTest {
+
+    private QueueingThreadHelper threadHelper;
+    private FrameSlicer slicer;
+    private List<String> events;
+
+    @Before
+    public void setup() {
+        threadHelper = new QueueingThreadHelper();
+        slicer = new FrameSlicer(threadHelper, FrameSlicer.DEFAULT_FRAME_BUDGET_NANOS);
+        events = new ArrayList<>();
+    }
+
+    @Test
+    public void testStartsOnNextFrame() throws Exception {
+        slicer.start(new CountingChange("a", 1), recordCompletion("a"));
+
+        assertTrue(events.isEmpty());
+        assertTrue(slicer.isApplying());
+
+        threadHelper.runPending();
+        assertEquals(2, events.size());
+        assertEquals("a done", events.get(1));
+        assertFalse(slicer.isApplying());
+        assertFalse(threadHelper.hasPending());
+    }
+
+    @Test
+    public void testStopsAtDeadlineAndContinuesNextFrame() throws Exception {
+        slicer = new FrameSlicer(threadHelper, 1);
+        slicer.start(new SlowChange("a", 3), recordCompletion("a"));
+
+        threadHelper.runPending();
+        assertEquals(1, events.size());
+        assertTrue(threadHelper.hasPending());
+
+        threadHelper.runPending();
+        threadHelper.runPending();
+        assertEquals(4, events.size());
+        assertEquals("a done", events.get(3));
+    }
+
+    @Test
+    public void testChangesAppliedInOrder() throws Exception {
+        slicer.start(new CountingChange("a", 2), recordCompletion("a"));
+        slicer.start(new CountingChange("b", 1), null);
+
+        threadHelper.runPending();
+        assertEquals("a", events.get(0));
+        assertEquals("a", events.get(1));
+        assertEquals("a done", events.get(2));
+        assertEquals("b", events.get(3));
+        assertEquals(4, events.size());
+    }
+
+    @Test
+    public void testFinishAll() throws Exception {
+        slicer = new FrameSlicer(threadHelper, 1);
+        slicer.start(new SlowChange("a", 3), recordCompletion("a"));
+        slicer.start(new SlowChange("b", 2), recordCompletion("b"));
+
+        slicer.finishAll();
+        assertEquals(7, events.size());
+        assertEquals("b done", events.get(6));
+        assertFalse(slicer.isApplying());
+
+        // the frame that was already posted has nothing left to do
+        threadHelper.runPending();
+        assertEquals(7, events.size());
+    }
+
+    @Test
+    public void testPendingChangesAreToldOfMoves() throws Exception {
+        slicer.start(new CountingChange("a", 1), null);
+        slicer.onInserted(3, 2);
+        slicer.onRemoved(1, 1);
+
+        assertEquals(2, events.size());
+        assertEquals("a inserted 3,2", events.get(0));
+        assertEquals("a removed 1,1", events.get(1));
+
+        // finished changes aren't told
+        threadHelper.runPending();
+        slicer.onInserted(0, 1);
+        assertEquals(3, events.size());
+    }
+
+    private Runnable recordCompletion(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                events.add(name + " done");
+            }
+        };
+    }
+
+    /**
+     * Applies one step per slice while there's time
+     */
+    private class CountingChange implements FrameSlicer.Change {
+
+        private final String mName;
+        private int mRemaining;
+
+        CountingChange(String name, int steps) {
+            mName = name;
+            mRemaining = steps;
+        }
+
+        @Override
+        public boolean applySlice(long deadlineNanos) {
+            do {
+                events.add(mName);
+                mRemaining--;
+            } while (mRemaining > 0 && !FrameSlicer.isPast(deadlineNanos));
+            return mRemaining == 0;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            events.add(mName + " inserted " + position + "," + count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            events.add(mName + " removed " + position + "," + count);
+        }
+    }
+
+    /**
+     * Each step takes longer than the budget
+     */
+    private class SlowChange extends CountingChange {
+
+        SlowChange(String name, int steps) {
+            super(name, steps);
+        }
+
+        @Override
+        public boolean applySlice(long deadlineNanos) {
+            long start = System.nanoTime();
+            while (System.nanoTime() - start < 1000) {
+                // wait out the budget
+            }
+            return super.applySlice(deadlineNanos);
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.edwardharker.multiitemadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link IntArrayList}
+ */
+public class IntArrayListTest {
+
+    private IntArrayList mList;
+
+    @Before
+    public void setup() {
+        mList = new IntArrayList();
+    }
+
+    @Test
+    public void testAddAndGet() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            mList.add(i, i);
+        }
+        mList.add(0, -1);
+
+        assertEquals(101, mList.size());
+        assertEquals(-1, mList.get(0));
+        assertEquals(0, mList.get(1));
+        assertEquals(99, mList.get(100));
+    }
+
+    @Test
+    public void testInsertSpace() throws Exception {
+        mList.add(0, 1);
+        mList.add(1, 4);
+        mList.insertSpace(1, 2);
+        mList.set(1, 2);
+        mList.set(2, 3);
+
+        assertEquals(4, mList.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i + 1, mList.get(i));
+        }
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            mList.add(i, i);
+        }
+
+        assertEquals(3, mList.remove(3));
+        mList.removeRange(0, 2);
+
+        assertEquals(7, mList.size());
+        assertEquals(2, mList.get(0));
+        assertEquals(4, mList.get(1));
+        assertEquals(9, mList.get(6));
+
+        mList.clear();
+        assertEquals(0, mList.size());
+    }
+
+    @Test
+    public void testOutOfBounds() throws Exception {
+        mList.add(0, 1);
+
+        try {
+            mList.get(1);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+
+        try {
+            mList.add(2, 1);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+
+        try {
+            mList.removeRange(0, 2);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+}
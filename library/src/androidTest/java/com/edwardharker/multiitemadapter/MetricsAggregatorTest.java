@@ -0,0 +1,105 @@
+package com.edwardharker.multiitemadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link MetricsAggregator}
+ */
+public class MetricsAggregatorTest {
+
+    private static final long BUDGET = 1000;
+
+    private ViewType typeOne;
+    private ViewType typeTwo;
+    private MetricsAggregator aggregator;
+
+    @Before
+    public void setup() {
+        typeOne = mock(ViewType.class);
+        when(typeOne.getType()).thenReturn(1);
+        typeTwo = mock(ViewType.class);
+        when(typeTwo.getType()).thenReturn(2);
+        aggregator = new MetricsAggregator(BUDGET);
+    }
+
+    @Test
+    public void testCounts() throws Exception {
+        aggregator.onViewHolderCreated(typeOne, 10);
+        aggregator.onViewHolderBound(typeOne, 20);
+        aggregator.onViewHolderBound(typeOne, 30);
+        aggregator.onViewRecycled(typeOne);
+        aggregator.onViewAttachedToWindow(typeOne);
+        aggregator.onViewAttachedToWindow(typeOne);
+        aggregator.onViewDetachedFromWindow(typeOne);
+
+        MetricsAggregator.TypeMetrics metrics = aggregator.getMetrics(typeOne);
+        assertEquals(typeOne, metrics.getViewType());
+        assertEquals(1, metrics.getCreateTimes().getCount());
+        assertEquals(2, metrics.getBindTimes().getCount());
+        assertEquals(50, metrics.getBindTimes().getTotalNanos());
+        assertEquals(25, metrics.getBindTimes().getMeanNanos());
+        assertEquals(30, metrics.getBindTimes().getMaxNanos());
+        assertEquals(1, metrics.getRecycleCount());
+        assertEquals(2, metrics.getAttachCount());
+        assertEquals(1, metrics.getDetachCount());
+        assertNull(aggregator.getMetrics(typeTwo));
+    }
+
+    @Test
+    public void testPercentileIsWithinFactorOfTwo() throws Exception {
+        for (int i = 1; i <= 100; i++) {
+            aggregator.onViewHolderBound(typeOne, i * 100);
+        }
+
+        MetricsAggregator.Histogram binds = aggregator.getMetrics(typeOne).getBindTimes();
+        long p50 = binds.getPercentileNanos(50);
+        assertTrue(p50 >= 5000 && p50 < 10000);
+        assertEquals(10000, binds.getPercentileNanos(100));
+        assertEquals(0, new MetricsAggregator().getAllMetrics().size());
+    }
+
+    @Test
+    public void testInvalidPercentile() throws Exception {
+        aggregator.onViewHolderBound(typeOne, 10);
+
+        try {
+            aggregator.getMetrics(typeOne).getBindTimes().getPercentileNanos(101);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testOverBudgetWorstFirst() throws Exception {
+        aggregator.onViewHolderBound(typeOne, BUDGET + 1);
+        aggregator.onViewHolderCreated(typeTwo, BUDGET + 1);
+        aggregator.onViewHolderBound(typeTwo, BUDGET * 2);
+        aggregator.onViewHolderBound(typeTwo, BUDGET);
+
+        List<MetricsAggregator.TypeMetrics> overBudget = aggregator.getOverBudget();
+        assertEquals(2, overBudget.size());
+        assertEquals(typeTwo, overBudget.get(0).getViewType());
+        assertEquals(2, overBudget.get(0).getOverBudgetCount());
+        assertEquals(typeOne, overBudget.get(1).getViewType());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        aggregator.onViewHolderBound(typeOne, BUDGET + 1);
+        aggregator.reset();
+
+        assertNull(aggregator.getMetrics(typeOne));
+        assertEquals(0, aggregator.getOverBudget().size());
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.edwardharker.multiitemadapter;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Mock creators for tests that only need a creator for a view type
+ */
+final class MockCreators {
+
+    private MockCreators() {
+    }
+
+    /**
+     * @param type the view type
+     * @return a mock creator for the view type, whose view holders hold a mock view
+     */
+    static MultiTypeCreator newCreator(int type) {
+        ViewType viewType = mock(ViewType.class);
+        when(viewType.getType()).thenReturn(type);
+        MultiTypeCreator creator = mock(MultiTypeCreator.class);
+        when(creator.getViewType()).thenReturn(viewType);
+        when(creator.onCreateViewHolder(any(ViewGroup.class)))
+                .thenReturn(new SimpleMultiTypeViewHolder(mock(View.class)));
+        return creator;
+    }
+
+}
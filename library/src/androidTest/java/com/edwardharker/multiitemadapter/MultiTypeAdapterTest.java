@@ -1,5 +1,7 @@
 package com.edwardharker.multiitemadapter;
 
+import android.os.Parcelable;
+import android.support.annotation.NonNull;
 import android.support.v7.widget.RecyclerView;
 import android.view.View;
 import android.view.ViewGroup;
@@ -7,14 +9,27 @@ import android.view.ViewGroup;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
 import static junit.framework.Assert.fail;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.anyListOf;
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -169,6 +184,140 @@ public class MultiTypeAdapterTest {
         verify(itemTypeTwoBinder, times(2)).onBindViewHolder(any(RecyclerView.ViewHolder.class));
     }
 
+    @Test
+    public void testBindViewHolderWithPayloads() throws Exception {
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        PayloadMultiTypeBinder payloadBinder = mock(PayloadMultiTypeBinder.class);
+        when(payloadBinder.getViewType()).thenReturn(itemTypeOneViewType);
+        List<Object> payloads = Collections.<Object>singletonList("payload");
+
+        adapter.addAll(Arrays.asList(payloadBinder, itemTypeTwoBinder));
+
+        adapter.onBindViewHolder(null, 0, payloads);
+        adapter.onBindViewHolder(null, 0, Collections.emptyList());
+        adapter.onBindViewHolder(null, 1, payloads);
+
+        verify(payloadBinder, times(1)).onBindViewHolder(null, payloads);
+        verify(payloadBinder, times(1)).onBindViewHolder(any(RecyclerView.ViewHolder.class));
+        verify(itemTypeTwoBinder, times(1)).onBindViewHolder(any(RecyclerView.ViewHolder.class));
+    }
+
+    @Test
+    public void testFullBindPayloadBindsEverything() throws Exception {
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(alwaysUiThreadHelper)
+                .lightBindAboveVelocity(1000)
+                .build();
+        PayloadMultiTypeBinder payloadBinder = mock(PayloadMultiTypeBinder.class);
+        when(payloadBinder.getViewType()).thenReturn(itemTypeOneViewType);
+
+        adapter.add(payloadBinder);
+        adapter.onBindViewHolder(null, 0, Arrays.asList("payload", FlingTracker.FULL_BIND));
+
+        verify(payloadBinder).onBindViewHolder(any(RecyclerView.ViewHolder.class));
+        verify(payloadBinder, never()).onBindViewHolder(any(RecyclerView.ViewHolder.class),
+                anyListOf(Object.class));
+    }
+
+    @Test
+    public void testUpdateWithPayloadDropsAsyncLoadOfOldBinder() throws Exception {
+        final List<Runnable> backgroundTasks = new ArrayList<>();
+        QueueingThreadHelper threadHelper = new QueueingThreadHelper();
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(threadHelper)
+                .backgroundExecutor(new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        backgroundTasks.add(command);
+                    }
+                })
+                .build();
+        PayloadAsyncBinder first = new PayloadAsyncBinder(itemTypeOneViewType);
+        PayloadAsyncBinder second = new PayloadAsyncBinder(itemTypeOneViewType);
+        List<Object> payloads = Collections.<Object>singletonList("payload");
+
+        adapter.add(first);
+        adapter.onBindViewHolder(null, 0);
+        adapter.update(0, second, "payload");
+        adapter.onBindViewHolder(null, 0, payloads);
+        for (Runnable task : backgroundTasks) {
+            task.run();
+        }
+        threadHelper.runPending();
+
+        assertNull(first.mBound);
+        assertEquals(payloads, second.mPayloads);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testBindPreparableBinder() throws Exception {
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        PreparableMultiTypeBinder<String> preparableBinder = mock(PreparableMultiTypeBinder.class);
+        when(preparableBinder.getViewType()).thenReturn(itemTypeOneViewType);
+        when(preparableBinder.prepare()).thenReturn("prepared");
+
+        adapter.add(preparableBinder);
+        adapter.onBindViewHolder(null, 0);
+
+        verify(preparableBinder).onBindViewHolder(null, "prepared");
+        verify(preparableBinder, never()).onBindViewHolder(any(RecyclerView.ViewHolder.class));
+    }
+
+    @Test
+    public void testMetricsListener() throws Exception {
+        MetricsListener listener = mock(MetricsListener.class);
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .threadHelper(alwaysUiThreadHelper)
+                .metricsListener(listener)
+                .build();
+        PayloadMultiTypeBinder payloadBinder = mock(PayloadMultiTypeBinder.class);
+        when(payloadBinder.getViewType()).thenReturn(itemTypeOneViewType);
+
+        adapter.addAll(Arrays.asList(payloadBinder, itemTypeTwoBinder));
+        adapter.onCreateViewHolder(null, 1);
+        adapter.onBindViewHolder(null, 0, Collections.<Object>singletonList("payload"));
+        adapter.onBindViewHolder(null, 1, Collections.emptyList());
+
+        verify(listener).onViewHolderCreated(eq(itemTypeOneViewType), anyLong());
+        verify(listener).onViewHolderBound(eq(itemTypeOneViewType), anyLong());
+        verify(listener).onViewHolderBound(eq(itemTypeTwoViewType), anyLong());
+    }
+
+    @Test
+    public void testUpdate() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        RecyclerView.AdapterDataObserver observer = mock(RecyclerView.AdapterDataObserver.class);
+        Object payload = new Object();
+
+        adapter.add(itemTypeOneBinder);
+        adapter.setFooter(itemTypeFooterBinder);
+        adapter.registerAdapterDataObserver(observer);
+
+        adapter.update(0, itemTypeTwoBinder, payload);
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(0));
+        verify(observer).onItemRangeChanged(0, 1, payload);
+
+        adapter.update(1, itemTypeOneBinder);
+        assertEquals(itemTypeOneBinder, adapter.getFooter());
+        verify(observer).onItemRangeChanged(1, 1, null);
+
+        try {
+            adapter.update(2, itemTypeOneBinder);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+
+    }
+
     @Test
     public void testCreateViewHolder() throws Exception {
 
@@ -200,6 +349,70 @@ public class MultiTypeAdapterTest {
         }
     }
 
+    @Test
+    public void testRequireCreatorsFor() throws Exception {
+
+        new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .requireCreatorsFor(itemTypeOneViewType)
+                .build();
+
+        try {
+            new MultiTypeAdapter.Builder()
+                    .addCreator(itemTypeOneCreator)
+                    .requireCreatorsFor(itemTypeOneViewType, itemTypeTwoViewType)
+                    .build();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+    }
+
+    @Test
+    public void testFailedBuildDoesNotJoinSharedPool() throws Exception {
+        SharedRecycledViewPool pool =
+                new SharedRecycledViewPool(mock(RecyclerView.RecycledViewPool.class));
+        try {
+            new MultiTypeAdapter.Builder()
+                    .addCreator(itemTypeOneCreator)
+                    .recycledViewPool(pool)
+                    .requireCreatorsFor(itemTypeTwoViewType)
+                    .build();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        new MultiTypeAdapter.Builder()
+                .addCreator(new MultiTypeCreator() {
+                    @NonNull
+                    @Override
+                    public ViewType getViewType() {
+                        return itemTypeOneViewType;
+                    }
+
+                    @Override
+                    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent) {
+                        return null;
+                    }
+                })
+                .recycledViewPool(pool)
+                .build();
+    }
+
+    @Test
+    public void testDuplicateCreators() throws Exception {
+
+        try {
+            new MultiTypeAdapter.Builder()
+                    .addCreator(itemTypeOneCreator)
+                    .addCreator(itemTypeOneCreator)
+                    .build();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+    }
+
     @Test
     public void testGetBinder() throws Exception {
 
@@ -407,191 +620,891 @@ public class MultiTypeAdapterTest {
     }
 
     @Test
-    public void testRemoveAllOfTypeNotOnUiThread() throws Exception {
-
-        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
-                .threadHelper(neverUiThreadHelper)
-                .build();
-
-        try {
-            adapter.removeAllOf(itemTypeOneViewType);
-            fail();
-        } catch (IllegalStateException expected) {
-        }
-
-    }
-
-    @Test
-    public void testGetBinders() throws Exception {
-
+    @SuppressWarnings("unchecked")
+    public void testDataItems() throws Exception {
+        MultiTypeDataBinder<String> dataBinder = mock(MultiTypeDataBinder.class);
+        when(dataBinder.getViewType()).thenReturn(itemTypeOneViewType);
         MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addDataBinder(dataBinder)
                 .threadHelper(alwaysUiThreadHelper)
                 .build();
 
-        adapter.add(itemTypeOneBinder);
+        adapter.addItem(itemTypeOneViewType, "a");
         adapter.add(itemTypeTwoBinder);
-        adapter.add(itemTypeOneBinder);
-        adapter.add(itemTypeTwoBinder);
-
-        List<MultiTypeBinder> result = adapter.getBinders();
-        assertEquals(4, result.size());
-        assertEquals(itemTypeOneBinder, result.get(0));
-        assertEquals(itemTypeTwoBinder, result.get(1));
-        assertEquals(itemTypeOneBinder, result.get(2));
-        assertEquals(itemTypeTwoBinder, result.get(3));
+        adapter.addItems(itemTypeOneViewType, Arrays.asList("b", "c"));
+        adapter.updateItem(0, itemTypeOneViewType, "d");
 
-    }
+        assertEquals(4, adapter.getItemCount());
+        assertEquals(3, adapter.getItemCount(itemTypeOneViewType));
+        assertEquals("d", adapter.getItem(0));
+        assertEquals(itemTypeTwoBinder, adapter.getItem(1));
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(1));
+        assertEquals(1, adapter.getItemViewType(2));
 
-    @Test
-    public void testGetBindersNotOnUiThread() throws Exception {
+        adapter.onBindViewHolder(null, 2);
+        adapter.onBindViewHolder(null, 1);
+        verify(dataBinder).onBindViewHolder(null, "b");
+        verify(itemTypeTwoBinder).onBindViewHolder(null);
 
-        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
-                .threadHelper(neverUiThreadHelper)
-                .build();
+        assertEquals(Arrays.<Object>asList("d", itemTypeTwoBinder, "b", "c"), adapter.getItems());
 
+        try {
+            adapter.getBinder(0);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
         try {
             adapter.getBinders();
             fail();
         } catch (IllegalStateException expected) {
         }
+        try {
+            adapter.add(itemTypeOneBinder);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            adapter.addItem(itemTypeTwoViewType, "e");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
 
+        adapter.removeAllOf(itemTypeOneViewType);
+        assertEquals(1, adapter.getItemCount());
     }
 
     @Test
-    public void testGetBindersOfType() throws Exception {
-
+    @SuppressWarnings("unchecked")
+    public void testDataItemStableIds() throws Exception {
+        StableIdDataBinder<String> dataBinder = mock(StableIdDataBinder.class);
+        when(dataBinder.getViewType()).thenReturn(itemTypeOneViewType);
+        when(dataBinder.getItemId("a")).thenReturn(7L);
         MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addDataBinder(dataBinder)
                 .threadHelper(alwaysUiThreadHelper)
+                .stableIds(true)
                 .build();
 
-        adapter.add(itemTypeOneBinder);
-        adapter.add(itemTypeTwoBinder);
-        adapter.add(itemTypeOneBinder);
-        adapter.add(itemTypeTwoBinder);
-
-        List<MultiTypeBinder> typeOneResult = adapter.getBinders(itemTypeOneViewType);
-        assertEquals(2, typeOneResult.size());
-        assertEquals(itemTypeOneBinder, typeOneResult.get(0));
-        assertEquals(itemTypeOneBinder, typeOneResult.get(1));
-
-        List<MultiTypeBinder> typeTwoResult = adapter.getBinders(itemTypeTwoViewType);
-        assertEquals(2, typeTwoResult.size());
-        assertEquals(itemTypeTwoBinder, typeTwoResult.get(0));
-        assertEquals(itemTypeTwoBinder, typeTwoResult.get(1));
+        adapter.addItem(itemTypeOneViewType, "a");
 
+        assertEquals(7L, adapter.getItemId(0));
     }
 
     @Test
-    public void testGetBindersOfTypeNotOnUiThread() throws Exception {
-
-        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
-                .threadHelper(neverUiThreadHelper)
-                .build();
+    @SuppressWarnings("unchecked")
+    public void testDataBinderWithoutCreator() throws Exception {
+        MultiTypeDataBinder<String> dataBinder = mock(MultiTypeDataBinder.class);
+        when(dataBinder.getViewType()).thenReturn(itemTypeTwoViewType);
 
         try {
-            adapter.getBinders(itemTypeOneViewType);
+            new MultiTypeAdapter.Builder()
+                    .addCreator(itemTypeOneCreator)
+                    .addDataBinder(dataBinder)
+                    .build();
             fail();
         } catch (IllegalStateException expected) {
         }
-
     }
 
     @Test
-    public void testSetFooter() throws Exception {
-
+    @SuppressWarnings("unchecked")
+    public void testSpillToDisk() throws Exception {
+        BinderCodec<MultiTypeBinder> codec = mock(BinderCodec.class);
+        when(codec.getViewType()).thenReturn(itemTypeOneViewType);
+        when(codec.read(any(DataInput.class))).thenReturn(itemTypeOneBinder);
+        File file = File.createTempFile("spill", null);
+        QueueingThreadHelper threadHelper = new QueueingThreadHelper();
         MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
-                .threadHelper(alwaysUiThreadHelper)
+                .addCreator(itemTypeOneCreator)
+                .addCodec(codec)
+                .spillToDisk(file, 4)
+                .threadHelper(threadHelper)
+                .backgroundExecutor(new DirectExecutor())
                 .build();
+        for (int i = 0; i < 20; i++) {
+            adapter.add(itemTypeOneBinder);
+        }
 
-        adapter.add(itemTypeOneBinder);
-        adapter.add(itemTypeTwoBinder);
-        adapter.setFooter(itemTypeFooterBinder);
-        adapter.add(itemTypeOneBinder);
-        adapter.add(itemTypeTwoBinder);
-
-        assertEquals(5, adapter.getItemCount());
-        assertEquals(itemTypeOneBinder, adapter.getBinder(0));
-        assertEquals(itemTypeTwoBinder, adapter.getBinder(1));
-        assertEquals(itemTypeOneBinder, adapter.getBinder(2));
-        assertEquals(itemTypeTwoBinder, adapter.getBinder(3));
-        assertEquals(itemTypeFooterBinder, adapter.getBinder(4));
-        assertEquals(itemTypeFooterBinder, adapter.getFooter());
-
-        adapter.setFooter(itemTypeFooterBinder);
-
-        assertEquals(5, adapter.getItemCount());
-
-        adapter.add(itemTypeOneBinder);
-        assertEquals(itemTypeOneBinder, adapter.getBinder(4));
-        assertEquals(itemTypeFooterBinder, adapter.getBinder(5));
-        assertEquals(itemTypeFooterBinder, adapter.getFooter());
-
-        adapter.setFooter(itemTypeFooterBinder);
-
-        assertEquals(6, adapter.getItemCount());
-
-        adapter.add(adapter.getItemCount(), itemTypeTwoBinder);
-        assertEquals(itemTypeTwoBinder, adapter.getBinder(5));
-        assertEquals(itemTypeFooterBinder, adapter.getBinder(6));
-        assertEquals(itemTypeFooterBinder, adapter.getFooter());
-
-        adapter.setFooter(itemTypeFooterBinder);
+        adapter.onBindViewHolder(null, 0);
+        threadHelper.runPending();
 
-        assertEquals(7, adapter.getItemCount());
+        verify(codec, times(16)).write(eq(itemTypeOneBinder), any(DataOutput.class));
+        assertEquals(itemTypeOneBinder, adapter.getBinder(15));
+        assertEquals(20, adapter.getBinders().size());
 
-        adapter.addAll(Arrays.asList(itemTypeOneBinder, itemTypeTwoBinder));
-        assertEquals(itemTypeOneBinder, adapter.getBinder(6));
-        assertEquals(itemTypeTwoBinder, adapter.getBinder(7));
-        assertEquals(itemTypeFooterBinder, adapter.getBinder(8));
-        assertEquals(itemTypeFooterBinder, adapter.getFooter());
+        adapter.onBindViewHolder(null, 15);
+        verify(itemTypeOneBinder, times(2)).onBindViewHolder(null);
+        file.delete();
+    }
 
-        assertEquals(9, adapter.getItemCount());
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSaveAndRestoreSnapshot() throws Exception {
+        BinderCodec<MultiTypeBinder> codec = mock(BinderCodec.class);
+        when(codec.getViewType()).thenReturn(itemTypeOneViewType);
+        when(codec.read(any(DataInput.class))).thenReturn(itemTypeOneBinder);
+        File file = File.createTempFile("snapshot", null);
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addCreator(itemTypeTwoCreator)
+                .addCodec(codec)
+                .threadHelper(alwaysUiThreadHelper)
+                .backgroundExecutor(new DirectExecutor())
+                .build();
+        adapter.addAll(Arrays.asList(itemTypeOneBinder, itemTypeTwoBinder, itemTypeOneBinder));
+        adapter.saveSnapshot(file);
 
-        adapter.clear();
+        MultiTypeAdapter restored = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addCodec(codec)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        restored.setFooter(itemTypeFooterBinder);
 
-        adapter.setFooter(itemTypeFooterBinder);
-        assertEquals(1, adapter.getItemCount());
-        assertEquals(itemTypeFooterBinder, adapter.getBinder(0));
-        assertEquals(itemTypeFooterBinder, adapter.getFooter());
+        assertTrue(restored.restoreSnapshot(file));
+        assertEquals(3, restored.getItemCount());
+        assertEquals(itemTypeFooterBinder, restored.getFooter());
+        verify(codec, never()).read(any(DataInput.class));
 
+        restored.onBindViewHolder(null, 1);
+        verify(codec, times(1)).read(any(DataInput.class));
+        verify(itemTypeOneBinder, times(1)).onBindViewHolder(null);
+        file.delete();
     }
 
     @Test
-    public void testSetFooterNotOnUiThread() throws Exception {
-
+    @SuppressWarnings("unchecked")
+    public void testSaveAndRestoreInstanceState() throws Exception {
+        BinderCodec<MultiTypeBinder> codec = mock(BinderCodec.class);
+        when(codec.getViewType()).thenReturn(itemTypeOneViewType);
+        when(codec.read(any(DataInput.class))).thenReturn(itemTypeOneBinder);
         MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
-                .threadHelper(neverUiThreadHelper)
+                .addCreator(itemTypeOneCreator)
+                .addCodec(codec)
+                .threadHelper(alwaysUiThreadHelper)
                 .build();
+        adapter.addAll(Arrays.asList(itemTypeOneBinder, itemTypeOneBinder));
 
-        try {
-            adapter.setFooter(itemTypeOneBinder);
-            fail();
-        } catch (IllegalStateException expected) {
-        }
+        Parcelable state = adapter.onSaveInstanceState();
+        MultiTypeAdapter restored = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addCodec(codec)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
 
+        assertTrue(restored.onRestoreInstanceState(state));
+        assertEquals(2, restored.getItemCount());
+        verify(codec, never()).read(any(DataInput.class));
+        assertEquals(itemTypeOneBinder, restored.getBinder(1));
     }
 
     @Test
-    public void testGetFooter() throws Exception {
-
+    @SuppressWarnings("unchecked")
+    public void testInstanceStateWrittenToFile() throws Exception {
+        BinderCodec<MultiTypeBinder> codec = mock(BinderCodec.class);
+        when(codec.getViewType()).thenReturn(itemTypeOneViewType);
+        File file = File.createTempFile("state", null);
+        file.delete();
         MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addCodec(codec)
+                .instanceStateFile(file)
+                .backgroundExecutor(new DirectExecutor())
                 .threadHelper(alwaysUiThreadHelper)
                 .build();
+        adapter.addAll(Collections.nCopies(5000, itemTypeOneBinder));
 
-        adapter.setFooter(itemTypeFooterBinder);
-        assertEquals(itemTypeFooterBinder, adapter.getFooter());
+        adapter.onSaveInstanceState();
+        Parcelable state = adapter.onSaveInstanceState();
+        assertTrue(file.exists());
 
+        MultiTypeAdapter restored = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addCodec(codec)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        assertTrue(restored.onRestoreInstanceState(state));
+        assertEquals(5000, restored.getItemCount());
+        file.delete();
     }
 
     @Test
-    public void testGetFooterNotOnUiThread() throws Exception {
-
+    @SuppressWarnings("unchecked")
+    public void testInstanceStateCanBeRestoredTwice() throws Exception {
+        BinderCodec<MultiTypeBinder> codec = mock(BinderCodec.class);
+        when(codec.getViewType()).thenReturn(itemTypeOneViewType);
+        File file = File.createTempFile("state", null);
         MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
-                .threadHelper(neverUiThreadHelper)
+                .addCreator(itemTypeOneCreator)
+                .addCodec(codec)
+                .instanceStateFile(file)
+                .backgroundExecutor(new DirectExecutor())
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        adapter.addAll(Arrays.asList(itemTypeOneBinder, itemTypeOneBinder));
+        Parcelable state = adapter.onSaveInstanceState();
+
+        for (int i = 0; i < 2; i++) {
+            MultiTypeAdapter restored = new MultiTypeAdapter.Builder()
+                    .addCreator(itemTypeOneCreator)
+                    .addCodec(codec)
+                    .threadHelper(alwaysUiThreadHelper)
+                    .build();
+            assertTrue(restored.onRestoreInstanceState(state));
+            assertEquals(2, restored.getItemCount());
+        }
+        file.delete();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRestoreGivesUpOnInstanceStateNotWritten() throws Exception {
+        BinderCodec<MultiTypeBinder> codec = mock(BinderCodec.class);
+        when(codec.getViewType()).thenReturn(itemTypeOneViewType);
+        File file = File.createTempFile("state", null);
+        file.delete();
+        final List<Runnable> pending = new ArrayList<>();
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addCodec(codec)
+                .instanceStateFile(file)
+                .backgroundExecutor(new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        pending.add(command);
+                    }
+                })
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        adapter.addAll(Arrays.asList(itemTypeOneBinder, itemTypeOneBinder));
+        Parcelable state = adapter.onSaveInstanceState();
+
+        MultiTypeAdapter restored = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addCodec(codec)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        assertFalse(restored.onRestoreInstanceState(state));
+        assertEquals(0, restored.getItemCount());
+        pending.get(0).run();
+        file.delete();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRestoreWaitsForInstanceStateToBeWritten() throws Exception {
+        BinderCodec<MultiTypeBinder> codec = mock(BinderCodec.class);
+        when(codec.getViewType()).thenReturn(itemTypeOneViewType);
+        File file = File.createTempFile("state", null);
+        file.delete();
+        final List<Runnable> pending = new ArrayList<>();
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addCodec(codec)
+                .instanceStateFile(file)
+                .backgroundExecutor(new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        pending.add(command);
+                    }
+                })
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        adapter.addAll(Arrays.asList(itemTypeOneBinder, itemTypeOneBinder));
+
+        Parcelable state = adapter.onSaveInstanceState();
+        assertFalse(file.exists());
+        new Thread(pending.get(0)).start();
+
+        MultiTypeAdapter restored = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addCodec(codec)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        assertTrue(restored.onRestoreInstanceState(state));
+        assertEquals(2, restored.getItemCount());
+        file.delete();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLargeInstanceStateWithoutFile() throws Exception {
+        BinderCodec<MultiTypeBinder> codec = mock(BinderCodec.class);
+        when(codec.getViewType()).thenReturn(itemTypeOneViewType);
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addCodec(codec)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        adapter.addAll(Collections.nCopies(5000, itemTypeOneBinder));
+
+        Parcelable state = adapter.onSaveInstanceState();
+
+        assertTrue(!adapter.onRestoreInstanceState(state));
+        assertEquals(5000, adapter.getItemCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLargeInstanceStateWithoutFileThrowsInDebug() throws Exception {
+        BinderCodec<MultiTypeBinder> codec = mock(BinderCodec.class);
+        when(codec.getViewType()).thenReturn(itemTypeOneViewType);
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addCodec(codec)
+                .debug(true)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        adapter.addAll(Collections.nCopies(5000, itemTypeOneBinder));
+
+        try {
+            adapter.onSaveInstanceState();
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRestoreMissingSnapshot() throws Exception {
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        adapter.add(itemTypeOneBinder);
+
+        assertTrue(!adapter.restoreSnapshot(new File("missing")));
+        assertEquals(1, adapter.getItemCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCodecForDataBinderViewType() throws Exception {
+        BinderCodec<MultiTypeBinder> codec = mock(BinderCodec.class);
+        when(codec.getViewType()).thenReturn(itemTypeOneViewType);
+        MultiTypeDataBinder<String> dataBinder = mock(MultiTypeDataBinder.class);
+        when(dataBinder.getViewType()).thenReturn(itemTypeOneViewType);
+
+        try {
+            new MultiTypeAdapter.Builder()
+                    .addCreator(itemTypeOneCreator)
+                    .addDataBinder(dataBinder)
+                    .addCodec(codec)
+                    .build();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void testAddAllAcrossFrames() throws Exception {
+        QueueingThreadHelper threadHelper = new QueueingThreadHelper();
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(threadHelper)
+                .frameBudgetNanos(1)
+                .build();
+        RecyclerView.AdapterDataObserver observer = mock(RecyclerView.AdapterDataObserver.class);
+        Runnable onComplete = mock(Runnable.class);
+        List<MultiTypeBinder> binders = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            binders.add(i % 2 == 0 ? itemTypeOneBinder : itemTypeTwoBinder);
+        }
+        adapter.setFooter(itemTypeFooterBinder);
+        adapter.registerAdapterDataObserver(observer);
+
+        adapter.addAllAcrossFrames(binders, onComplete);
+        assertEquals(1, adapter.getItemCount());
+
+        threadHelper.runPending();
+        assertEquals(65, adapter.getItemCount());
+        verify(observer).onItemRangeInserted(0, 64);
+        verify(onComplete, never()).run();
+
+        threadHelper.runPending();
+        threadHelper.runPending();
+        assertEquals(151, adapter.getItemCount());
+        verify(observer).onItemRangeInserted(64, 64);
+        verify(observer).onItemRangeInserted(128, 22);
+        verify(onComplete).run();
+        assertEquals(itemTypeFooterBinder, adapter.getBinder(150));
+        assertEquals(75, adapter.getItemCount(itemTypeOneViewType));
+    }
+
+    @Test
+    public void testRemoveAllOfAcrossFrames() throws Exception {
+        QueueingThreadHelper threadHelper = new QueueingThreadHelper();
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(threadHelper)
+                .build();
+        RecyclerView.AdapterDataObserver observer = mock(RecyclerView.AdapterDataObserver.class);
+        Runnable onComplete = mock(Runnable.class);
+        adapter.addAll(Arrays.asList(itemTypeOneBinder, itemTypeOneBinder, itemTypeTwoBinder,
+                itemTypeOneBinder, itemTypeTwoBinder));
+        adapter.registerAdapterDataObserver(observer);
+
+        adapter.removeAllOfAcrossFrames(itemTypeOneViewType, onComplete);
+        threadHelper.runPending();
+
+        assertEquals(2, adapter.getItemCount());
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(0));
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(1));
+        verify(observer).onItemRangeRemoved(3, 1);
+        verify(observer).onItemRangeRemoved(0, 2);
+        verify(onComplete).run();
+    }
+
+    @Test
+    public void testChangesDuringAddAllAcrossFrames() throws Exception {
+        QueueingThreadHelper threadHelper = new QueueingThreadHelper();
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(threadHelper)
+                .build();
+        Runnable onComplete = mock(Runnable.class);
+
+        adapter.addAllAcrossFrames(Arrays.asList(itemTypeOneBinder, itemTypeOneBinder), onComplete);
+        adapter.add(itemTypeTwoBinder);
+
+        // applied straight away without finishing the items being added across frames
+        assertEquals(1, adapter.getItemCount());
+        verify(onComplete, never()).run();
+
+        threadHelper.runPending();
+        assertEquals(3, adapter.getItemCount());
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(0));
+        assertEquals(itemTypeOneBinder, adapter.getBinder(2));
+        verify(onComplete).run();
+    }
+
+    @Test
+    public void testChangesDuringRemoveAllOfAcrossFrames() throws Exception {
+        QueueingThreadHelper threadHelper = new QueueingThreadHelper();
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(threadHelper)
+                .frameBudgetNanos(1)
+                .build();
+        Runnable onComplete = mock(Runnable.class);
+        List<MultiTypeBinder> binders = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            binders.add(i % 2 == 0 ? itemTypeOneBinder : itemTypeTwoBinder);
+        }
+        adapter.addAll(binders);
+
+        adapter.removeAllOfAcrossFrames(itemTypeOneViewType, onComplete);
+        threadHelper.runPending();
+        assertTrue(adapter.getItemCount() < 300);
+        assertTrue(adapter.getItemCount() > 150);
+
+        // before and after the part that has been looked at
+        adapter.remove(1);
+        adapter.add(0, itemTypeTwoBinder);
+        adapter.update(adapter.getItemCount() - 1, itemTypeOneBinder);
+        while (threadHelper.hasPending()) {
+            threadHelper.runPending();
+        }
+
+        assertEquals(149, adapter.getItemCount());
+        assertEquals(0, adapter.getItemCount(itemTypeOneViewType));
+        verify(onComplete).run();
+    }
+
+    @Test
+    public void testReplacingItemsFinishesChangesAcrossFrames() throws Exception {
+        QueueingThreadHelper threadHelper = new QueueingThreadHelper();
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(threadHelper)
+                .build();
+        Runnable onComplete = mock(Runnable.class);
+
+        adapter.addAllAcrossFrames(Arrays.asList(itemTypeOneBinder, itemTypeOneBinder), onComplete);
+        adapter.clear();
+
+        assertEquals(0, adapter.getItemCount());
+        verify(onComplete).run();
+    }
+
+    @Test
+    public void testChunkedStorage() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(alwaysUiThreadHelper)
+                .storage(BinderStorage.CHUNKED)
+                .build();
+
+        adapter.setFooter(itemTypeFooterBinder);
+        for (int i = 0; i < 1000; i++) {
+            adapter.add(0, i % 2 == 0 ? itemTypeOneBinder : itemTypeTwoBinder);
+        }
+
+        assertEquals(1001, adapter.getItemCount());
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(0));
+        assertEquals(itemTypeOneViewType.getType(), adapter.getItemViewType(999));
+        assertEquals(itemTypeFooterBinder, adapter.getBinder(1000));
+
+        adapter.removeAllOf(itemTypeOneViewType);
+        assertEquals(501, adapter.getItemCount());
+        assertEquals(itemTypeTwoViewType.getType(), adapter.getItemViewType(499));
+        assertEquals(itemTypeFooterBinder, adapter.getBinder(500));
+
+    }
+
+    @Test
+    public void testRemoveAllOfTypeNotOnUiThread() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(neverUiThreadHelper)
+                .build();
+
+        try {
+            adapter.removeAllOf(itemTypeOneViewType);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+    }
+
+    @Test
+    public void testGetBinders() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+
+        adapter.add(itemTypeOneBinder);
+        adapter.add(itemTypeTwoBinder);
+        adapter.add(itemTypeOneBinder);
+        adapter.add(itemTypeTwoBinder);
+
+        List<MultiTypeBinder> result = adapter.getBinders();
+        assertEquals(4, result.size());
+        assertEquals(itemTypeOneBinder, result.get(0));
+        assertEquals(itemTypeTwoBinder, result.get(1));
+        assertEquals(itemTypeOneBinder, result.get(2));
+        assertEquals(itemTypeTwoBinder, result.get(3));
+
+    }
+
+    @Test
+    public void testGetBindersNotOnUiThread() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(neverUiThreadHelper)
+                .build();
+
+        try {
+            adapter.getBinders();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+    }
+
+    @Test
+    public void testGetBindersOfType() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+
+        adapter.add(itemTypeOneBinder);
+        adapter.add(itemTypeTwoBinder);
+        adapter.add(itemTypeOneBinder);
+        adapter.add(itemTypeTwoBinder);
+
+        List<MultiTypeBinder> typeOneResult = adapter.getBinders(itemTypeOneViewType);
+        assertEquals(2, typeOneResult.size());
+        assertEquals(itemTypeOneBinder, typeOneResult.get(0));
+        assertEquals(itemTypeOneBinder, typeOneResult.get(1));
+
+        List<MultiTypeBinder> typeTwoResult = adapter.getBinders(itemTypeTwoViewType);
+        assertEquals(2, typeTwoResult.size());
+        assertEquals(itemTypeTwoBinder, typeTwoResult.get(0));
+        assertEquals(itemTypeTwoBinder, typeTwoResult.get(1));
+
+    }
+
+    @Test
+    public void testGetItemCountOfType() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+
+        adapter.addAll(Arrays.asList(itemTypeOneBinder, itemTypeTwoBinder, itemTypeOneBinder));
+        adapter.setFooter(itemTypeFooterBinder);
+
+        assertEquals(2, adapter.getItemCount(itemTypeOneViewType));
+        assertEquals(1, adapter.getItemCount(itemTypeTwoViewType));
+        assertEquals(1, adapter.getItemCount(itemTypeFooterViewType));
+
+        adapter.remove(0);
+        adapter.update(0, itemTypeOneBinder);
+        assertEquals(2, adapter.getItemCount(itemTypeOneViewType));
+        assertEquals(0, adapter.getItemCount(itemTypeTwoViewType));
+
+        adapter.removeAllOf(itemTypeOneViewType);
+        assertEquals(0, adapter.getItemCount(itemTypeOneViewType));
+        assertEquals(1, adapter.getItemCount());
+
+        adapter.clear();
+        assertEquals(0, adapter.getItemCount(itemTypeFooterViewType));
+
+    }
+
+    @Test
+    public void testGetBindersOfTypeNotOnUiThread() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(neverUiThreadHelper)
+                .build();
+
+        try {
+            adapter.getBinders(itemTypeOneViewType);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+    }
+
+    @Test
+    public void testSetFooter() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+
+        adapter.add(itemTypeOneBinder);
+        adapter.add(itemTypeTwoBinder);
+        adapter.setFooter(itemTypeFooterBinder);
+        adapter.add(itemTypeOneBinder);
+        adapter.add(itemTypeTwoBinder);
+
+        assertEquals(5, adapter.getItemCount());
+        assertEquals(itemTypeOneBinder, adapter.getBinder(0));
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(1));
+        assertEquals(itemTypeOneBinder, adapter.getBinder(2));
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(3));
+        assertEquals(itemTypeFooterBinder, adapter.getBinder(4));
+        assertEquals(itemTypeFooterBinder, adapter.getFooter());
+
+        adapter.setFooter(itemTypeFooterBinder);
+
+        assertEquals(5, adapter.getItemCount());
+
+        adapter.add(itemTypeOneBinder);
+        assertEquals(itemTypeOneBinder, adapter.getBinder(4));
+        assertEquals(itemTypeFooterBinder, adapter.getBinder(5));
+        assertEquals(itemTypeFooterBinder, adapter.getFooter());
+
+        adapter.setFooter(itemTypeFooterBinder);
+
+        assertEquals(6, adapter.getItemCount());
+
+        adapter.add(adapter.getItemCount(), itemTypeTwoBinder);
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(5));
+        assertEquals(itemTypeFooterBinder, adapter.getBinder(6));
+        assertEquals(itemTypeFooterBinder, adapter.getFooter());
+
+        adapter.setFooter(itemTypeFooterBinder);
+
+        assertEquals(7, adapter.getItemCount());
+
+        adapter.addAll(Arrays.asList(itemTypeOneBinder, itemTypeTwoBinder));
+        assertEquals(itemTypeOneBinder, adapter.getBinder(6));
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(7));
+        assertEquals(itemTypeFooterBinder, adapter.getBinder(8));
+        assertEquals(itemTypeFooterBinder, adapter.getFooter());
+
+        assertEquals(9, adapter.getItemCount());
+
+        adapter.clear();
+
+        adapter.setFooter(itemTypeFooterBinder);
+        assertEquals(1, adapter.getItemCount());
+        assertEquals(itemTypeFooterBinder, adapter.getBinder(0));
+        assertEquals(itemTypeFooterBinder, adapter.getFooter());
+
+    }
+
+    @Test
+    public void testSetFooterNotOnUiThread() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(neverUiThreadHelper)
+                .build();
+
+        try {
+            adapter.setFooter(itemTypeOneBinder);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+    }
+
+    @Test
+    public void testGetFooter() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+
+        adapter.setFooter(itemTypeFooterBinder);
+        assertEquals(itemTypeFooterBinder, adapter.getFooter());
+
+    }
+
+    @Test
+    public void testGetFooterNotOnUiThread() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(neverUiThreadHelper)
+                .build();
+
+        try {
+            adapter.getFooter();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+    }
+
+    @Test
+    public void testClearFooter() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+
+        adapter.add(itemTypeOneBinder);
+        adapter.add(itemTypeTwoBinder);
+        adapter.setFooter(itemTypeFooterBinder);
+        adapter.add(itemTypeOneBinder);
+        adapter.add(itemTypeTwoBinder);
+
+        assertEquals(5, adapter.getItemCount());
+        assertEquals(itemTypeOneBinder, adapter.getBinder(0));
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(1));
+        assertEquals(itemTypeOneBinder, adapter.getBinder(2));
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(3));
+        assertEquals(itemTypeFooterBinder, adapter.getBinder(4));
+        assertEquals(itemTypeFooterBinder, adapter.getFooter());
+
+        adapter.clearFooter();
+
+        assertNull(adapter.getFooter());
+
+        assertEquals(4, adapter.getItemCount());
+        assertEquals(itemTypeOneBinder, adapter.getBinder(0));
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(1));
+        assertEquals(itemTypeOneBinder, adapter.getBinder(2));
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(3));
+
+    }
+
+    @Test
+    public void testClearFooterNotOnUiThread() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(neverUiThreadHelper)
+                .build();
+
+        try {
+            adapter.clearFooter();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+    }
+
+    @Test
+    public void testAddNotifiesInsertedBeforeFooter() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        RecyclerView.AdapterDataObserver observer = mock(RecyclerView.AdapterDataObserver.class);
+
+        adapter.add(itemTypeOneBinder);
+        adapter.setFooter(itemTypeFooterBinder);
+        adapter.registerAdapterDataObserver(observer);
+
+        adapter.add(itemTypeTwoBinder);
+        verify(observer).onItemRangeInserted(1, 1);
+
+        adapter.addAll(Arrays.asList(itemTypeOneBinder, itemTypeTwoBinder));
+        verify(observer).onItemRangeInserted(2, 2);
+
+        adapter.setFooter(itemTypeFooterBinder);
+        verify(observer).onItemRangeChanged(4, 1, null);
+
+        adapter.clearFooter();
+        verify(observer).onItemRangeRemoved(4, 1);
+
+        verify(observer, never()).onChanged();
+
+    }
+
+    @Test
+    public void testRemoveAllOfTypeNotifiesCoalescedRanges() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        RecyclerView.AdapterDataObserver observer = mock(RecyclerView.AdapterDataObserver.class);
+
+        adapter.addAll(Arrays.asList(itemTypeOneBinder, itemTypeOneBinder, itemTypeTwoBinder,
+                itemTypeOneBinder, itemTypeTwoBinder, itemTypeTwoBinder, itemTypeOneBinder));
+        adapter.registerAdapterDataObserver(observer);
+
+        adapter.removeAllOf(itemTypeOneViewType);
+
+        assertEquals(3, adapter.getItemCount());
+        verify(observer).onItemRangeRemoved(0, 2);
+        verify(observer).onItemRangeRemoved(1, 1);
+        verify(observer).onItemRangeRemoved(3, 1);
+        verify(observer, never()).onChanged();
+
+    }
+
+    @Test
+    public void testBatchNotifiesOnCommit() throws Exception {
+
+        final MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        RecyclerView.AdapterDataObserver observer = mock(RecyclerView.AdapterDataObserver.class);
+
+        adapter.setFooter(itemTypeFooterBinder);
+        adapter.registerAdapterDataObserver(observer);
+
+        adapter.beginBatch();
+        adapter.batch(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 10; i++) {
+                    adapter.add(i, itemTypeOneBinder);
+                }
+                adapter.remove(3);
+            }
+        });
+        verify(observer, never()).onItemRangeInserted(anyInt(), anyInt());
+
+        adapter.commitBatch();
+        assertEquals(10, adapter.getItemCount());
+        verify(observer).onItemRangeInserted(0, 9);
+        verify(observer, never()).onItemRangeRemoved(anyInt(), anyInt());
+
+    }
+
+    @Test
+    public void testCommitBatchWithoutBegin() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(alwaysUiThreadHelper)
                 .build();
 
         try {
-            adapter.getFooter();
+            adapter.commitBatch();
             fail();
         } catch (IllegalStateException expected) {
         }
@@ -599,54 +1512,489 @@ public class MultiTypeAdapterTest {
     }
 
     @Test
-    public void testClearFooter() throws Exception {
+    public void testStableIds() throws Exception {
 
         MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
                 .threadHelper(alwaysUiThreadHelper)
+                .stableIds(true)
                 .build();
 
+        adapter.add(newStableIdBinder(7));
+        adapter.add(newStableIdBinder(3));
+
+        assertTrue(adapter.hasStableIds());
+        assertEquals(7, adapter.getItemId(0));
+        assertEquals(3, adapter.getItemId(1));
+
         adapter.add(itemTypeOneBinder);
+        try {
+            adapter.getItemId(2);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+    }
+
+    @Test
+    public void testDuplicateStableIdsInDebug() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(alwaysUiThreadHelper)
+                .stableIds(true)
+                .debug(true)
+                .build();
+
+        adapter.add(newStableIdBinder(1));
+        try {
+            adapter.add(newStableIdBinder(1));
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+    }
+
+    @Test
+    public void testPageSourceThrowsForTooFewPages() throws Exception {
+
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(alwaysUiThreadHelper)
+                .pageSize(10)
+                .prefetchDistance(10)
+                .maxPagesInMemory(2)
+                .build();
+        BinderPageSource source = new BinderPageSource() {
+            @Override
+            public int getItemCount() {
+                return 95;
+            }
+
+            @Override
+            public List<MultiTypeBinder> loadPage(int startPosition, int count) {
+                return Collections.nCopies(count, itemTypeOneBinder);
+            }
+        };
+
+        try {
+            adapter.setPageSource(source, itemTypeTwoBinder);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(0, adapter.getItemCount());
+    }
+
+    @Test
+    public void testPageSource() throws Exception {
+
+        QueueingThreadHelper threadHelper = new QueueingThreadHelper();
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(threadHelper)
+                .backgroundExecutor(new DirectExecutor())
+                .pageSize(10)
+                .prefetchDistance(10)
+                .maxPagesInMemory(3)
+                .build();
+        BinderPageSource source = new BinderPageSource() {
+            @Override
+            public int getItemCount() {
+                return 95;
+            }
+
+            @Override
+            public List<MultiTypeBinder> loadPage(int startPosition, int count) {
+                return Collections.nCopies(count, itemTypeOneBinder);
+            }
+        };
+
+        adapter.setPageSource(source, itemTypeTwoBinder);
+        assertEquals(95, adapter.getItemCount());
+        assertEquals(95, adapter.getItemCount(itemTypeTwoViewType));
+
+        adapter.onBindViewHolder(null, 0);
+        threadHelper.runPending();
+        assertEquals(20, adapter.getItemCount(itemTypeOneViewType));
+        assertEquals(itemTypeOneBinder, adapter.getBinder(19));
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(20));
+
+        adapter.onBindViewHolder(null, 94);
+        threadHelper.runPending();
+        // pages 8 and 9 are loaded, 9 only holds 5 items. Page 0 was the least recently used
+        assertEquals(25, adapter.getItemCount(itemTypeOneViewType));
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(0));
+        assertEquals(itemTypeOneBinder, adapter.getBinder(10));
+        assertEquals(itemTypeOneBinder, adapter.getBinder(94));
+
+        // adding after the paged items keeps paging
         adapter.add(itemTypeTwoBinder);
-        adapter.setFooter(itemTypeFooterBinder);
-        adapter.add(itemTypeOneBinder);
+        adapter.onBindViewHolder(null, 50);
+        threadHelper.runPending();
+        assertEquals(30, adapter.getItemCount(itemTypeOneViewType));
+        assertEquals(96, adapter.getItemCount());
+
+    }
+
+    @Test
+    public void testPagedItemsCantBeMoved() throws Exception {
+
+        QueueingThreadHelper threadHelper = new QueueingThreadHelper();
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(threadHelper)
+                .backgroundExecutor(new DirectExecutor())
+                .pageSize(10)
+                .prefetchDistance(0)
+                .build();
+        adapter.setPageSource(newPageSource(20), itemTypeTwoBinder);
         adapter.add(itemTypeTwoBinder);
 
-        assertEquals(5, adapter.getItemCount());
-        assertEquals(itemTypeOneBinder, adapter.getBinder(0));
-        assertEquals(itemTypeTwoBinder, adapter.getBinder(1));
+        try {
+            adapter.add(5, itemTypeOneBinder);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            adapter.remove(19);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            adapter.update(0, itemTypeOneBinder);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        try {
+            adapter.removeAllOf(itemTypeTwoViewType);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        // the item added after the paged items can be changed, and a header shifts the pages
+        adapter.add(20, itemTypeTwoBinder);
+        adapter.remove(21);
+        adapter.setHeader(itemTypeTwoBinder);
+        adapter.onBindViewHolder(null, 11);
+        threadHelper.runPending();
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(10));
+        assertEquals(itemTypeOneBinder, adapter.getBinder(11));
+        assertEquals(itemTypeOneBinder, adapter.getBinder(20));
+
+    }
+
+    @Test
+    public void testPlaceholderStableIds() throws Exception {
+
+        QueueingThreadHelper threadHelper = new QueueingThreadHelper();
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(threadHelper)
+                .backgroundExecutor(new DirectExecutor())
+                .pageSize(10)
+                .prefetchDistance(0)
+                .stableIds(true)
+                .debug(true)
+                .build();
+        adapter.setHeader(newStableIdBinder(1));
+        adapter.setPageSource(newPageSource(20), itemTypeTwoBinder);
+
+        assertEquals(1, adapter.getItemId(0));
+        assertEquals(MultiTypeAdapter.PLACEHOLDER_ID, adapter.getItemId(1));
+        assertEquals(MultiTypeAdapter.PLACEHOLDER_ID + 19, adapter.getItemId(20));
+
+    }
+
+    private BinderPageSource newPageSource(final int itemCount) {
+        return new BinderPageSource() {
+            @Override
+            public int getItemCount() {
+                return itemCount;
+            }
+
+            @Override
+            public List<MultiTypeBinder> loadPage(int startPosition, int count) {
+                return Collections.nCopies(count, itemTypeOneBinder);
+            }
+        };
+    }
+
+    @Test
+    public void testSubmitList() throws Exception {
+
+        QueueingThreadHelper threadHelper = new QueueingThreadHelper();
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(threadHelper)
+                .backgroundExecutor(new DirectExecutor())
+                .build();
+
+        adapter.submitList(Arrays.asList(itemTypeOneBinder, itemTypeTwoBinder));
+        assertEquals(2, adapter.getItemCount());
+
+        adapter.setFooter(itemTypeFooterBinder);
+        adapter.submitList(Arrays.asList(itemTypeTwoBinder, itemTypeOneBinder, itemTypeOneBinder));
+        assertEquals(3, adapter.getItemCount());
+
+        threadHelper.runPending();
+        assertEquals(4, adapter.getItemCount());
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(0));
+        assertEquals(itemTypeOneBinder, adapter.getBinder(1));
         assertEquals(itemTypeOneBinder, adapter.getBinder(2));
-        assertEquals(itemTypeTwoBinder, adapter.getBinder(3));
-        assertEquals(itemTypeFooterBinder, adapter.getBinder(4));
+        assertEquals(itemTypeFooterBinder, adapter.getBinder(3));
+
+        adapter.submitList(Collections.<MultiTypeBinder>emptyList());
+        threadHelper.runPending();
+        assertEquals(1, adapter.getItemCount());
         assertEquals(itemTypeFooterBinder, adapter.getFooter());
 
-        adapter.clearFooter();
+    }
 
-        assertNull(adapter.getFooter());
+    @Test
+    public void testSubmitListLatestWins() throws Exception {
 
-        assertEquals(4, adapter.getItemCount());
+        QueueingThreadHelper threadHelper = new QueueingThreadHelper();
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .threadHelper(threadHelper)
+                .backgroundExecutor(new DirectExecutor())
+                .build();
+
+        adapter.add(itemTypeOneBinder);
+        adapter.submitList(Arrays.asList(itemTypeTwoBinder, itemTypeTwoBinder));
+        adapter.submitList(Arrays.asList(itemTypeOneBinder, itemTypeTwoBinder, itemTypeOneBinder));
+        threadHelper.runPending();
+
+        assertEquals(3, adapter.getItemCount());
         assertEquals(itemTypeOneBinder, adapter.getBinder(0));
         assertEquals(itemTypeTwoBinder, adapter.getBinder(1));
         assertEquals(itemTypeOneBinder, adapter.getBinder(2));
-        assertEquals(itemTypeTwoBinder, adapter.getBinder(3));
 
-    }
+        adapter.submitList(Arrays.asList(itemTypeTwoBinder, itemTypeTwoBinder));
+        adapter.remove(0);
+        threadHelper.runPending();
+
+        assertEquals(2, adapter.getItemCount());
+        assertEquals(itemTypeTwoBinder, adapter.getBinder(0));
+        assertEquals(itemTypeOneBinder, adapter.getBinder(1));
 
+    }
 
     @Test
-    public void testClearFooterNotOnUiThread() throws Exception {
+    public void testSubmitListNotOnUiThread() throws Exception {
 
         MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
                 .threadHelper(neverUiThreadHelper)
+                .backgroundExecutor(new DirectExecutor())
                 .build();
 
         try {
-            adapter.clearFooter();
+            adapter.submitList(Arrays.asList(itemTypeOneBinder, itemTypeOneBinder));
             fail();
         } catch (IllegalStateException expected) {
         }
 
     }
 
+    private StableIdBinder newStableIdBinder(long id) {
+        StableIdBinder binder = mock(StableIdBinder.class);
+        when(binder.getViewType()).thenReturn(itemTypeOneViewType);
+        when(binder.getItemId()).thenReturn(id);
+        return binder;
+    }
+
+    @Test
+    public void testBindersOfTypeIsCopy() throws Exception {
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        adapter.add(itemTypeOneBinder);
+        List<MultiTypeBinder> binders = adapter.getBinders(itemTypeOneViewType);
+
+        adapter.add(itemTypeOneBinder);
+
+        assertEquals(1, binders.size());
+        try {
+            binders.add(itemTypeOneBinder);
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void testHeaderStaysFirst() throws Exception {
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addCreator(itemTypeFooterCreator)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+
+        adapter.add(itemTypeOneBinder);
+        adapter.setHeader(itemTypeFooterBinder);
+        adapter.add(0, itemTypeOneBinder);
+
+        assertEquals(3, adapter.getItemCount());
+        assertEquals(itemTypeFooterBinder, adapter.getBinder(0));
+        assertEquals(itemTypeFooterBinder, adapter.getHeader());
+
+        adapter.remove(0);
+        assertNull(adapter.getHeader());
+        assertEquals(2, adapter.getItemCount());
+    }
+
+    @Test
+    public void testSections() throws Exception {
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addCreator(itemTypeTwoCreator)
+                .addCreator(itemTypeFooterCreator)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+
+        adapter.setFooter(itemTypeFooterBinder);
+        adapter.addSection(itemTypeTwoBinder,
+                Arrays.asList(itemTypeOneBinder, itemTypeOneBinder), null);
+        adapter.addSection(itemTypeTwoBinder,
+                Collections.singletonList(itemTypeOneBinder), itemTypeTwoBinder);
+        adapter.add(itemTypeOneBinder);
+        adapter.addToSection(0, itemTypeOneBinder);
+
+        // header, 3 items | header, 2 items, footer | footer
+        assertEquals(2, adapter.getSectionCount());
+        assertEquals(0, adapter.getPositionForSection(0));
+        assertEquals(4, adapter.getPositionForSection(1));
+        assertEquals(0, adapter.getSectionForPosition(3));
+        assertEquals(1, adapter.getSectionForPosition(7));
+        assertEquals(MultiTypeAdapter.NO_SECTION, adapter.getSectionForPosition(8));
+        assertEquals(4, adapter.getSectionHeaderPosition(6));
+        assertEquals(itemTypeFooterBinder, adapter.getBinder(8));
+    }
+
+    @Test
+    public void testAddBetweenSections() throws Exception {
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addCreator(itemTypeTwoCreator)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+
+        adapter.addSection(null, Collections.singletonList(itemTypeOneBinder),
+                itemTypeTwoBinder);
+        adapter.addSection(itemTypeTwoBinder, Collections.singletonList(itemTypeOneBinder),
+                null);
+
+        try {
+            adapter.add(2, itemTypeOneBinder);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testAddAtEndOfSections() throws Exception {
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addCreator(itemTypeTwoCreator)
+                .addCreator(itemTypeFooterCreator)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        adapter.setFooter(itemTypeFooterBinder);
+        adapter.addSection(null, Collections.singletonList(itemTypeOneBinder), null);
+
+        adapter.add(2, itemTypeOneBinder);
+        assertEquals(0, adapter.getSectionForPosition(1));
+        assertEquals(itemTypeFooterBinder, adapter.getBinder(2));
+
+        adapter.addSection(itemTypeTwoBinder, Collections.singletonList(itemTypeOneBinder),
+                itemTypeTwoBinder);
+        try {
+            adapter.add(adapter.getItemCount(), itemTypeOneBinder);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(6, adapter.getItemCount());
+    }
+
+    @Test
+    public void testEmptySectionIsKept() throws Exception {
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addCreator(itemTypeTwoCreator)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+        adapter.addSection(null, Collections.singletonList(itemTypeOneBinder), null);
+        adapter.addSection(itemTypeTwoBinder, Collections.singletonList(itemTypeOneBinder),
+                null);
+
+        adapter.remove(0);
+
+        assertEquals(2, adapter.getSectionCount());
+        assertEquals(1, adapter.getSectionForPosition(0));
+
+        adapter.addToSection(0, itemTypeOneBinder);
+        assertEquals(0, adapter.getSectionForPosition(0));
+        assertEquals(1, adapter.getPositionForSection(1));
+    }
+
+    @Test
+    public void testRemoveSection() throws Exception {
+        MultiTypeAdapter adapter = new MultiTypeAdapter.Builder()
+                .addCreator(itemTypeOneCreator)
+                .addCreator(itemTypeTwoCreator)
+                .threadHelper(alwaysUiThreadHelper)
+                .build();
+
+        adapter.addSection(itemTypeTwoBinder, Collections.singletonList(itemTypeOneBinder),
+                null);
+        adapter.addSection(itemTypeTwoBinder,
+                Arrays.asList(itemTypeOneBinder, itemTypeOneBinder), null);
+        adapter.removeSection(0);
+
+        assertEquals(1, adapter.getSectionCount());
+        assertEquals(3, adapter.getItemCount());
+        assertEquals(0, adapter.getSectionHeaderPosition(2));
+
+        try {
+            adapter.removeSection(1);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    private static final class PayloadAsyncBinder
+            implements AsyncMultiTypeBinder<String>, PayloadMultiTypeBinder {
+
+        private final ViewType mViewType;
+        private String mBound;
+        private List<Object> mPayloads;
+
+        PayloadAsyncBinder(ViewType viewType) {
+            mViewType = viewType;
+        }
+
+        @Override
+        public void onBindPlaceholder(RecyclerView.ViewHolder holder) {
+        }
+
+        @Override
+        public String load() {
+            return "loaded";
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, String result) {
+            mBound = result;
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, List<Object> payloads) {
+            mPayloads = payloads;
+        }
+
+        @Override
+        public ViewType getViewType() {
+            return mViewType;
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder) {
+            onBindViewHolder(holder, load());
+        }
+    }
+
     private static final class MockViewHolder extends RecyclerView.ViewHolder implements MultiTypeViewHolder {
 
         public MockViewHolder(View itemView) {
@@ -0,0 +1,115 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link PoolAutoTuner}
+ */
+public class PoolAutoTunerTest {
+
+    private static final int TYPE_ONE = 1;
+    private static final int TYPE_TWO = 2;
+
+    private RecyclerView.RecycledViewPool mPool;
+    private PoolAutoTuner mTuner;
+
+    @Before
+    public void setup() {
+        SparseIntArray minRecycledViews = new SparseIntArray();
+        minRecycledViews.put(TYPE_TWO, 2);
+        mPool = mock(RecyclerView.RecycledViewPool.class);
+        mTuner = new PoolAutoTuner(20, minRecycledViews);
+        mTuner.attach(mPool);
+    }
+
+    @Test
+    public void testCreatesOutsideOfScrollingAreIgnored() throws Exception {
+        for (int i = 0; i < PoolAutoTuner.BINDS_PER_WINDOW; i++) {
+            mTuner.onViewHolderCreated(TYPE_ONE);
+            mTuner.onViewHolderBound(TYPE_ONE);
+        }
+
+        verify(mPool, never()).setMaxRecycledViews(anyInt(), anyInt());
+        assertEquals(ViewHolderPrewarmer.DEFAULT_MAX_RECYCLED_VIEWS, mTuner.getSize(TYPE_ONE));
+    }
+
+    @Test
+    public void testPoolGrowsByCreatesWhileScrolling() throws Exception {
+        scroll();
+        mTuner.onViewHolderCreated(TYPE_ONE);
+        mTuner.onViewHolderCreated(TYPE_ONE);
+        mTuner.onViewHolderCreated(TYPE_ONE);
+        bindWindow(TYPE_ONE);
+
+        int expected = ViewHolderPrewarmer.DEFAULT_MAX_RECYCLED_VIEWS + 3;
+        verify(mPool).setMaxRecycledViews(TYPE_ONE, expected);
+        assertEquals(expected, mTuner.getSize(TYPE_ONE));
+    }
+
+    @Test
+    public void testPoolDoesNotGrowPastMax() throws Exception {
+        scroll();
+        for (int i = 0; i < 50; i++) {
+            mTuner.onViewHolderCreated(TYPE_ONE);
+        }
+        bindWindow(TYPE_ONE);
+
+        verify(mPool).setMaxRecycledViews(TYPE_ONE, 20);
+    }
+
+    @Test
+    public void testIdlePoolShrinksBackToMinimum() throws Exception {
+        scroll();
+        for (int i = 0; i < 10; i++) {
+            mTuner.onViewHolderCreated(TYPE_TWO);
+        }
+        bindWindow(TYPE_TWO);
+        assertEquals(12, mTuner.getSize(TYPE_TWO));
+
+        for (int i = 0; i < PoolAutoTuner.IDLE_WINDOWS_BEFORE_SHRINK; i++) {
+            bindWindow(TYPE_ONE);
+        }
+        assertEquals(6, mTuner.getSize(TYPE_TWO));
+
+        for (int i = 0; i < PoolAutoTuner.IDLE_WINDOWS_BEFORE_SHRINK * 3; i++) {
+            bindWindow(TYPE_ONE);
+        }
+        assertEquals(2, mTuner.getSize(TYPE_TWO));
+        verify(mPool).setMaxRecycledViews(TYPE_TWO, 2);
+    }
+
+    @Test
+    public void testAttachAppliesTunedSizes() throws Exception {
+        scroll();
+        mTuner.onViewHolderCreated(TYPE_ONE);
+        bindWindow(TYPE_ONE);
+        mTuner.detach();
+
+        RecyclerView.RecycledViewPool newPool = mock(RecyclerView.RecycledViewPool.class);
+        mTuner.attach(newPool);
+
+        verify(newPool).setMaxRecycledViews(TYPE_ONE,
+                ViewHolderPrewarmer.DEFAULT_MAX_RECYCLED_VIEWS + 1);
+    }
+
+    private void scroll() {
+        mTuner.onScrollStateChanged(null, RecyclerView.SCROLL_STATE_DRAGGING);
+    }
+
+    private void bindWindow(int viewType) {
+        for (int i = 0; i < PoolAutoTuner.BINDS_PER_WINDOW; i++) {
+            mTuner.onViewHolderBound(viewType);
+        }
+    }
+
+}
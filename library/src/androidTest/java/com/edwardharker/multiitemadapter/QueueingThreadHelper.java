@@ -0,0 +1,41 @@
+package com.edwardharker.multiitemadapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Always on the UI thread. Holds posted runnables, including ones posted to the next frame, until
+ * runPending() is called
+ */
+final class QueueingThreadHelper extends ThreadHelper {
+
+    private final List<Runnable> mPending = new ArrayList<>();
+
+    @Override
+    public boolean isUiThread() {
+        return true;
+    }
+
+    @Override
+    public void postToUiThread(Runnable runnable) {
+        mPending.add(runnable);
+    }
+
+    @Override
+    public void postToNextFrame(Runnable runnable) {
+        mPending.add(runnable);
+    }
+
+    boolean hasPending() {
+        return !mPending.isEmpty();
+    }
+
+    void runPending() {
+        List<Runnable> pending = new ArrayList<>(mPending);
+        mPending.clear();
+        for (Runnable runnable : pending) {
+            runnable.run();
+        }
+    }
+
+}
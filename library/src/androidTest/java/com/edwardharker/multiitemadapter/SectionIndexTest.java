@@ -0,0 +1,140 @@
+package com.edwardharker.multiitemadapter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SectionIndex}
+ */
+public class SectionIndexTest {
+
+    private SectionIndex mIndex;
+
+    @Before
+    public void setup() {
+        // 2 items before the sections, then
+        // section 0: header, 3 items, footer
+        // section 1: 2 items, footer
+        // section 2: header, 1 item
+        mIndex = new SectionIndex();
+        mIndex.reset(2);
+        mIndex.addSection(5, true, true);
+        mIndex.addSection(3, false, true);
+        mIndex.addSection(2, true, false);
+    }
+
+    @Test
+    public void testSectionOf() throws Exception {
+        assertEquals(3, mIndex.sectionCount());
+        assertEquals(12, mIndex.total());
+        assertEquals(MultiTypeAdapter.NO_SECTION, mIndex.sectionOf(1));
+        assertEquals(0, mIndex.sectionOf(2));
+        assertEquals(0, mIndex.sectionOf(6));
+        assertEquals(1, mIndex.sectionOf(7));
+        assertEquals(2, mIndex.sectionOf(11));
+    }
+
+    @Test
+    public void testStartAndEnd() throws Exception {
+        assertEquals(2, mIndex.start(0));
+        assertEquals(7, mIndex.start(1));
+        assertEquals(10, mIndex.start(2));
+        assertEquals(6, mIndex.endPosition(0));
+        assertEquals(12, mIndex.endPosition(2));
+        assertEquals(12, mIndex.appendPosition());
+    }
+
+    @Test
+    public void testInsertJoinsItemBefore() throws Exception {
+        mIndex.insert(4, 2);
+        mIndex.insert(10, 1);
+
+        assertEquals(7, mIndex.length(0));
+        assertEquals(9, mIndex.start(1));
+        assertEquals(1, mIndex.sectionOf(9));
+        assertEquals(4, mIndex.length(1));
+    }
+
+    @Test
+    public void testInsertAfterFooter() throws Exception {
+        // between section 0's footer and section 1, which has no header
+        assertTrue(mIndex.canInsert(7));
+        mIndex.insert(7, 1);
+        assertEquals(4, mIndex.length(1));
+
+        // between section 1's footer and section 2's header
+        assertFalse(mIndex.canInsert(11));
+    }
+
+    @Test
+    public void testRemoveAcrossSections() throws Exception {
+        // section 0's footer and the first item of section 1
+        mIndex.remove(6, 2);
+
+        assertEquals(4, mIndex.length(0));
+        assertFalse(mIndex.hasFooter(0));
+        assertTrue(mIndex.hasHeader(0));
+        assertEquals(2, mIndex.length(1));
+        assertTrue(mIndex.hasFooter(1));
+        assertEquals(6, mIndex.start(1));
+    }
+
+    @Test
+    public void testRemoveHeader() throws Exception {
+        mIndex.remove(10, 1);
+
+        assertFalse(mIndex.hasHeader(2));
+        assertTrue(mIndex.canInsert(10));
+    }
+
+    @Test
+    public void testInsertAfterLastFooter() throws Exception {
+        mIndex.addSection(2, false, true);
+
+        assertFalse(mIndex.canInsert(mIndex.total()));
+    }
+
+    @Test
+    public void testEmptySectionIsKept() throws Exception {
+        mIndex.remove(7, 3);
+
+        assertEquals(3, mIndex.sectionCount());
+        assertEquals(0, mIndex.length(1));
+        assertEquals(2, mIndex.sectionOf(7));
+
+        // after section 0's footer, in the empty section
+        assertTrue(mIndex.canInsert(7));
+        mIndex.insert(7, 1);
+        assertEquals(1, mIndex.length(1));
+        assertEquals(1, mIndex.sectionOf(7));
+    }
+
+    @Test
+    public void testRemoveSection() throws Exception {
+        mIndex.remove(7, 3);
+        mIndex.removeSection(1);
+
+        assertEquals(2, mIndex.sectionCount());
+        assertEquals(7, mIndex.start(1));
+        assertTrue(mIndex.hasHeader(1));
+        assertEquals(1, mIndex.sectionOf(8));
+    }
+
+    @Test
+    public void testAppend() throws Exception {
+        mIndex.append(2);
+
+        assertEquals(4, mIndex.length(2));
+        assertEquals(14, mIndex.appendPosition());
+
+        mIndex.reset(3);
+        mIndex.append(1);
+        assertEquals(0, mIndex.sectionCount());
+        assertEquals(4, mIndex.total());
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link SharedRecycledViewPool}
+ */
+public class SharedRecycledViewPoolTest {
+
+    private RecyclerView.RecycledViewPool mPool;
+    private SharedRecycledViewPool mSharedPool;
+
+    @Before
+    public void setup() {
+        mPool = mock(RecyclerView.RecycledViewPool.class);
+        mSharedPool = new SharedRecycledViewPool(mPool);
+    }
+
+    @Test
+    public void testSameCreatorClassCanBeShared() throws Exception {
+        mSharedPool.register(Collections.<MultiTypeCreator>singletonList(new CreatorOne(1)),
+                new SparseIntArray());
+        mSharedPool.register(Collections.<MultiTypeCreator>singletonList(new CreatorOne(1)),
+                new SparseIntArray());
+        mSharedPool.register(Collections.<MultiTypeCreator>singletonList(new CreatorTwo(2)),
+                new SparseIntArray());
+    }
+
+    @Test
+    public void testConflictingCreatorClasses() throws Exception {
+        mSharedPool.register(Collections.<MultiTypeCreator>singletonList(new CreatorOne(1)),
+                new SparseIntArray());
+
+        try {
+            mSharedPool.register(Collections.<MultiTypeCreator>singletonList(new CreatorTwo(1)),
+                    new SparseIntArray());
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void testPoolSizeIsLargestRequested() throws Exception {
+        SparseIntArray small = new SparseIntArray();
+        small.put(1, 8);
+        SparseIntArray large = new SparseIntArray();
+        large.put(1, 12);
+
+        mSharedPool.register(Collections.<MultiTypeCreator>emptyList(), large);
+        mSharedPool.register(Collections.<MultiTypeCreator>emptyList(), small);
+
+        verify(mPool).setMaxRecycledViews(1, 12);
+        verify(mPool, never()).setMaxRecycledViews(1, 8);
+    }
+
+    private static class CreatorOne implements MultiTypeCreator {
+
+        private final ViewType mViewType;
+
+        CreatorOne(final int type) {
+            mViewType = new ViewType() {
+                @Override
+                public int getType() {
+                    return type;
+                }
+            };
+        }
+
+        @NonNull
+        @Override
+        public ViewType getViewType() {
+            return mViewType;
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent) {
+            return null;
+        }
+    }
+
+    private static class CreatorTwo extends CreatorOne {
+
+        CreatorTwo(int type) {
+            super(type);
+        }
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.edwardharker.multiitemadapter;
+
+/**
+ * A {@link TextBinder} with a stable id
+ */
+final class StableTextBinder extends TextBinder implements StableIdBinder {
+
+    final long mId;
+
+    StableTextBinder(String text, long id) {
+        super(text);
+        mId = id;
+    }
+
+    @Override
+    public long getItemId() {
+        return mId;
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * A binder holding some text, written and read by {@link TextBinderCodec}
+ */
+class TextBinder implements MultiTypeBinder {
+
+    static final int VIEW_TYPE = 0;
+
+    final String mText;
+
+    TextBinder(String text) {
+        mText = text;
+    }
+
+    @NonNull
+    @Override
+    public ViewType getViewType() {
+        return new ViewType() {
+            @Override
+            public int getType() {
+                return VIEW_TYPE;
+            }
+        };
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder) {
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.annotation.NonNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes a {@link TextBinder}'s text, and counts the binders it reads
+ */
+final class TextBinderCodec implements BinderCodec<TextBinder> {
+
+    int mReadCount;
+
+    @NonNull
+    @Override
+    public ViewType getViewType() {
+        return new ViewType() {
+            @Override
+            public int getType() {
+                return TextBinder.VIEW_TYPE;
+            }
+        };
+    }
+
+    @Override
+    public void write(@NonNull TextBinder binder, @NonNull DataOutput out) throws IOException {
+        out.writeUTF(binder.mText);
+    }
+
+    @NonNull
+    @Override
+    public TextBinder read(@NonNull DataInput in) throws IOException {
+        mReadCount++;
+        return new TextBinder(in.readUTF());
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.edwardharker.multiitemadapter;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+
+/**
+ * Tests for {@link TraceSections}
+ */
+public class TraceSectionsTest {
+
+    private enum TestViewTypes implements ViewType {
+        HEADER;
+
+        @Override
+        public int getType() {
+            return ordinal();
+        }
+    }
+
+    private static final class LongNamedViewType implements ViewType {
+
+        @Override
+        public int getType() {
+            return 7;
+        }
+    }
+
+    @Test
+    public void testEnumViewTypesUseTheirName() throws Exception {
+        TraceSections sections = new TraceSections();
+
+        assertEquals("MultiTypeAdapter create HEADER",
+                sections.createSection(TestViewTypes.HEADER));
+        assertEquals("MultiTypeAdapter bind HEADER", sections.bindSection(TestViewTypes.HEADER));
+        assertSame(sections.bindSection(TestViewTypes.HEADER),
+                sections.bindSection(TestViewTypes.HEADER));
+    }
+
+    @Test
+    public void testOtherViewTypesUseClassNameAndType() throws Exception {
+        assertEquals("LongNamedViewType(7)", TraceSections.nameOf(new LongNamedViewType()));
+    }
+
+}
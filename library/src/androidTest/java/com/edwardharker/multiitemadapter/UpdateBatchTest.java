@@ -0,0 +1,215 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.v7.util.ListUpdateCallback;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+/**
+ * Tests for {@link UpdateBatch}
+ */
+public class UpdateBatchTest {
+
+    private ListUpdateCallback mTarget;
+    private UpdateBatch mBatch;
+
+    @Before
+    public void setup() {
+        mTarget = mock(ListUpdateCallback.class);
+        mBatch = new UpdateBatch(mTarget);
+    }
+
+    @Test
+    public void testConsecutiveInsertsAreMerged() throws Exception {
+        mBatch.onInserted(5, 1);
+        mBatch.onInserted(6, 1);
+        mBatch.onInserted(5, 2);
+        verifyZeroInteractions(mTarget);
+
+        mBatch.dispatch();
+        verify(mTarget).onInserted(5, 4);
+        verifyNoMoreInteractions(mTarget);
+    }
+
+    @Test
+    public void testConsecutiveRemovesAreMerged() throws Exception {
+        mBatch.onRemoved(3, 1);
+        mBatch.onRemoved(3, 2);
+        mBatch.onRemoved(1, 2);
+        mBatch.dispatch();
+
+        verify(mTarget).onRemoved(1, 5);
+        verifyNoMoreInteractions(mTarget);
+    }
+
+    @Test
+    public void testRemovingInsertedItemsCancelsInsert() throws Exception {
+        mBatch.onInserted(2, 3);
+        mBatch.onRemoved(3, 1);
+        mBatch.dispatch();
+        verify(mTarget).onInserted(2, 2);
+
+        mBatch.onInserted(0, 1);
+        mBatch.onRemoved(0, 1);
+        mBatch.dispatch();
+        verifyNoMoreInteractions(mTarget);
+    }
+
+    @Test
+    public void testChangesToInsertedItemsAreDropped() throws Exception {
+        mBatch.onInserted(2, 3);
+        mBatch.onChanged(3, 2, null);
+        mBatch.dispatch();
+
+        verify(mTarget).onInserted(2, 3);
+        verifyNoMoreInteractions(mTarget);
+    }
+
+    @Test
+    public void testOverlappingChangesAreMerged() throws Exception {
+        Object payload = new Object();
+        mBatch.onChanged(4, 2, payload);
+        mBatch.onChanged(2, 3, payload);
+        mBatch.onChanged(6, 1, payload);
+        mBatch.onChanged(7, 1, null);
+        mBatch.dispatch();
+
+        verify(mTarget).onChanged(2, 5, payload);
+        verify(mTarget).onChanged(7, 1, null);
+        verifyNoMoreInteractions(mTarget);
+    }
+
+    @Test
+    public void testUnrelatedUpdatesAreSentInOrder() throws Exception {
+        mBatch.onInserted(0, 1);
+        mBatch.onRemoved(5, 1);
+        mBatch.onMoved(1, 2);
+
+        verify(mTarget).onInserted(0, 1);
+        verify(mTarget).onRemoved(5, 1);
+        verify(mTarget).onMoved(1, 2);
+        verifyNoMoreInteractions(mTarget);
+    }
+
+    @Test
+    public void testNonAdjacentInsertsAreMerged() throws Exception {
+        mBatch.onInserted(0, 1);
+        mBatch.onInserted(5, 1);
+        mBatch.onInserted(1, 1);
+        verifyZeroInteractions(mTarget);
+
+        mBatch.dispatch();
+        verify(mTarget).onInserted(0, 2);
+        verify(mTarget).onInserted(6, 1);
+        verifyNoMoreInteractions(mTarget);
+    }
+
+    @Test
+    public void testMixedInsertsAndRemovesAreMerged() throws Exception {
+        mBatch.onInserted(2, 1);
+        mBatch.onRemoved(0, 1);
+        mBatch.onInserted(1, 1);
+        mBatch.onRemoved(4, 2);
+        mBatch.onChanged(3, 1, null);
+        mBatch.dispatch();
+
+        verify(mTarget).onRemoved(0, 1);
+        verify(mTarget).onInserted(1, 2);
+        verify(mTarget).onChanged(3, 1, null);
+        verify(mTarget).onRemoved(4, 2);
+        verifyNoMoreInteractions(mTarget);
+    }
+
+    @Test
+    public void testDispatchedUpdatesGiveTheSameList() throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            expected.add("old " + i);
+        }
+        List<String> actual = new ArrayList<>(expected);
+        ListUpdateCallback model = new ListModel(expected);
+        UpdateBatch batch = new UpdateBatch(new ListModel(actual));
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            int position = random.nextInt(expected.size() + 1);
+            int count = 1 + random.nextInt(3);
+            switch (random.nextInt(3)) {
+                case 0:
+                    model.onInserted(position, count);
+                    batch.onInserted(position, count);
+                    break;
+                case 1:
+                    count = Math.min(count, expected.size() - position);
+                    model.onRemoved(position, count);
+                    batch.onRemoved(position, count);
+                    break;
+                default:
+                    count = Math.min(count, expected.size() - position);
+                    model.onChanged(position, count, null);
+                    batch.onChanged(position, count, null);
+                    break;
+            }
+        }
+        batch.dispatch();
+
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            // items inserted in the batch are all "new"
+            if (!expected.get(i).equals("new")) {
+                assertEquals(expected.get(i), actual.get(i));
+            } else {
+                assertEquals("new", actual.get(i));
+            }
+        }
+    }
+
+    /**
+     * Applies the updates to a list of labels, marking inserted items as new and changed items as
+     * changed
+     */
+    private static final class ListModel implements ListUpdateCallback {
+
+        private final List<String> mList;
+
+        ListModel(List<String> list) {
+            mList = list;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            for (int i = 0; i < count; i++) {
+                mList.add(position, "new");
+            }
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mList.subList(position, position + count).clear();
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mList.add(toPosition, mList.remove(fromPosition));
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            for (int i = position; i < position + count; i++) {
+                if (!mList.get(i).equals("new") && !mList.get(i).endsWith(" changed")) {
+                    mList.set(i, mList.get(i) + " changed");
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+import android.view.ViewGroup;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.edwardharker.multiitemadapter.MockCreators.newCreator;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link ViewHolderPrewarmer}
+ */
+public class ViewHolderPrewarmerTest {
+
+    private MultiTypeCreator mCreatorOne;
+    private MultiTypeCreator mCreatorTwo;
+    private MultiTypeAdapter mAdapter;
+    private RecyclerView mRecyclerView;
+    private RecyclerView.RecycledViewPool mPool;
+
+    @Before
+    public void setup() {
+        mCreatorOne = newCreator(1);
+        mCreatorTwo = newCreator(2);
+        mAdapter = new MultiTypeAdapter.Builder()
+                .addCreator(mCreatorOne)
+                .addCreator(mCreatorTwo)
+                .build();
+        mPool = mock(RecyclerView.RecycledViewPool.class);
+        mRecyclerView = mock(RecyclerView.class);
+        when(mRecyclerView.getRecycledViewPool()).thenReturn(mPool);
+    }
+
+    @Test
+    public void testCreatesOneViewHolderPerIdle() throws Exception {
+        SparseIntArray counts = new SparseIntArray();
+        counts.put(1, 2);
+        counts.put(2, 1);
+        ViewHolderPrewarmer prewarmer = new ViewHolderPrewarmer(mAdapter, mRecyclerView, counts);
+
+        assertTrue(prewarmer.queueIdle());
+        verify(mPool, times(1)).putRecycledView(any(RecyclerView.ViewHolder.class));
+
+        assertTrue(prewarmer.queueIdle());
+        assertFalse(prewarmer.queueIdle());
+
+        verify(mCreatorOne, times(2)).onCreateViewHolder(any(ViewGroup.class));
+        verify(mCreatorTwo, times(1)).onCreateViewHolder(any(ViewGroup.class));
+        verify(mPool, times(3)).putRecycledView(any(RecyclerView.ViewHolder.class));
+    }
+
+    @Test
+    public void testLaterPrewarmerCarriesOn() throws Exception {
+        SparseIntArray remaining = new SparseIntArray();
+        remaining.put(1, 3);
+        ViewHolderPrewarmer prewarmer = new ViewHolderPrewarmer(mAdapter, mRecyclerView, remaining);
+        prewarmer.queueIdle();
+
+        ViewHolderPrewarmer later = new ViewHolderPrewarmer(mAdapter, mRecyclerView, remaining);
+        assertTrue(later.queueIdle());
+        assertFalse(later.queueIdle());
+
+        verify(mCreatorOne, times(3)).onCreateViewHolder(any(ViewGroup.class));
+        assertEquals(0, remaining.size());
+    }
+
+}
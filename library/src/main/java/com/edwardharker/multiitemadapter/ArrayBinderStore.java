@@ -0,0 +1,63 @@
+package com.edwardharker.multiitemadapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores binders in an array. Reads are as fast as possible but inserting or removing shifts every
+ * binder after the position
+ */
+final class ArrayBinderStore implements BinderStore {
+
+    private final ArrayList<Object> mBinders = new ArrayList<>();
+    private final IntArrayList mViewTypes = new IntArrayList();
+
+    @Override
+    public int size() {
+        return mBinders.size();
+    }
+
+    @Override
+    public Object get(int position) {
+        return mBinders.get(position);
+    }
+
+    @Override
+    public int getViewType(int position) {
+        return mViewTypes.get(position);
+    }
+
+    @Override
+    public void add(int position, Object binder, int viewType) {
+        mBinders.add(position, binder);
+        mViewTypes.add(position, viewType);
+    }
+
+    @Override
+    public void addAll(int position, List<?> binders, int[] viewTypes) {
+        mBinders.addAll(position, binders);
+        mViewTypes.insertSpace(position, viewTypes.length);
+        for (int i = 0; i < viewTypes.length; i++) {
+            mViewTypes.set(position + i, viewTypes[i]);
+        }
+    }
+
+    @Override
+    public void set(int position, Object binder, int viewType) {
+        mBinders.set(position, binder);
+        mViewTypes.set(position, viewType);
+    }
+
+    @Override
+    public void removeRange(int fromPosition, int toPosition) {
+        mBinders.subList(fromPosition, toPosition).clear();
+        mViewTypes.removeRange(fromPosition, toPosition);
+    }
+
+    @Override
+    public void clear() {
+        mBinders.clear();
+        mViewTypes.clear();
+    }
+
+}
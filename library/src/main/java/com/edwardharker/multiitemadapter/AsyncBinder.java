@@ -0,0 +1,122 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Binds {@link AsyncMultiTypeBinder}s. Keeps the load in progress for each view holder, so a
+ * result is only bound if its view holder hasn't been bound again or recycled since the load
+ * started. Everything except loading happens on the UI thread.
+ */
+final class AsyncBinder {
+
+    private final Executor mExecutor;
+    private final ThreadHelper mThreadHelper;
+    private final Map<RecyclerView.ViewHolder, Load<?>> mLoads = new IdentityHashMap<>();
+
+    AsyncBinder(Executor executor, ThreadHelper threadHelper) {
+        mExecutor = executor;
+        mThreadHelper = threadHelper;
+    }
+
+    /**
+     * Bind the placeholder and start loading
+     */
+    <T> void bind(RecyclerView.ViewHolder holder, AsyncMultiTypeBinder<T> binder) {
+        cancel(holder);
+        binder.onBindPlaceholder(holder);
+        Load<T> load = new Load<>(holder, binder);
+        mLoads.put(holder, load);
+        mExecutor.execute(load);
+    }
+
+    /**
+     * Drop the load in progress for the view holder, if there is one
+     */
+    void cancel(RecyclerView.ViewHolder holder) {
+        if (mLoads.isEmpty()) {
+            return;
+        }
+        Load<?> load = mLoads.remove(holder);
+        if (load != null) {
+            load.mCancelled = true;
+        }
+    }
+
+    /**
+     * Drop the load in progress for the view holder if it's for a different binder, because the
+     * view holder is now bound to that binder without a full bind
+     */
+    void cancelUnlessFor(RecyclerView.ViewHolder holder, MultiTypeBinder binder) {
+        if (mLoads.isEmpty()) {
+            return;
+        }
+        Load<?> load = mLoads.get(holder);
+        if (load != null && load.mBinder != binder) {
+            cancel(holder);
+        }
+    }
+
+    /**
+     * Drop all the loads in progress
+     */
+    void cancelAll() {
+        for (Load<?> load : mLoads.values()) {
+            load.mCancelled = true;
+        }
+        mLoads.clear();
+    }
+
+    /**
+     * @return true if a load is in progress for the view holder
+     */
+    boolean isLoading(RecyclerView.ViewHolder holder) {
+        return mLoads.containsKey(holder);
+    }
+
+    private final class Load<T> implements Runnable {
+
+        private final RecyclerView.ViewHolder mHolder;
+        private final AsyncMultiTypeBinder<T> mBinder;
+        private volatile boolean mCancelled;
+
+        Load(RecyclerView.ViewHolder holder, AsyncMultiTypeBinder<T> binder) {
+            mHolder = holder;
+            mBinder = binder;
+        }
+
+        @Override
+        public void run() {
+            if (mCancelled) {
+                return;
+            }
+            T loaded = null;
+            RuntimeException error = null;
+            try {
+                loaded = mBinder.load();
+            } catch (RuntimeException e) {
+                error = e;
+            }
+            final T result = loaded;
+            final RuntimeException failure = error;
+            mThreadHelper.postToUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    if (mCancelled || mLoads.get(mHolder) != Load.this) {
+                        return;
+                    }
+                    mLoads.remove(mHolder);
+                    if (failure != null) {
+                        // fail the same way a bind on the UI thread would
+                        throw failure;
+                    }
+                    mBinder.onBindViewHolder(mHolder, result);
+                }
+            });
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.annotation.WorkerThread;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * A MultiTypeBinder for view types that can't be bound within a frame.
+ * <p/>
+ * The adapter binds a cheap placeholder straight away with
+ * {@link #onBindPlaceholder(RecyclerView.ViewHolder)}, calls {@link #load()} on the background
+ * executor and then binds the result on the UI thread with
+ * {@link #onBindViewHolder(RecyclerView.ViewHolder, Object)}. The result is only bound if the view
+ * holder hasn't been bound to anything else or recycled in the meantime, otherwise it is dropped.
+ * <p/>
+ * {@link #onBindViewHolder(RecyclerView.ViewHolder)} isn't called by the adapter, but should do the
+ * same as {@code onBindViewHolder(holder, load())}
+ *
+ * @param <T> the type of the loaded result
+ */
+public interface AsyncMultiTypeBinder<T> extends MultiTypeBinder {
+
+    /**
+     * Bind placeholder content while the result is loading. Called on the UI thread, so it should
+     * be quick
+     *
+     * @param holder the view holder to bind
+     */
+    void onBindPlaceholder(RecyclerView.ViewHolder holder);
+
+    /**
+     * Do the expensive work needed to bind. Must not touch views
+     *
+     * @return the result to bind with, may be null
+     */
+    @WorkerThread
+    T load();
+
+    /**
+     * Bind the loaded result. Only called if the view holder is still bound to this binder
+     *
+     * @param holder the view holder to bind
+     * @param result the result of {@link #load()}
+     */
+    void onBindViewHolder(RecyclerView.ViewHolder holder, T result);
+
+}
@@ -0,0 +1,52 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes the binders of one view type to bytes and reads them back, so the adapter can keep them
+ * somewhere other than memory. Register one for each view type that should be written out with
+ * {@link MultiTypeAdapter.Builder#addCodec(BinderCodec)}. Binders of view types without a codec
+ * always stay in memory
+ *
+ * @param <T> the type of binder
+ */
+public interface BinderCodec<T extends MultiTypeBinder> {
+
+    /**
+     * Get the view type of the binders this writes and reads
+     *
+     * @return the view type
+     */
+    @NonNull
+    ViewType getViewType();
+
+    /**
+     * Write everything needed to recreate the binder. Called on a background thread, so the
+     * binder mustn't change after it is added to the adapter
+     *
+     * @param binder the binder to write
+     * @param out    where to write it
+     * @throws IOException if the binder can't be written
+     */
+    @WorkerThread
+    void write(@NonNull T binder, @NonNull DataOutput out) throws IOException;
+
+    /**
+     * Recreate a binder from what {@link #write(MultiTypeBinder, DataOutput)} wrote. Usually
+     * called on a background thread, but may be called on the UI thread if the binder is needed
+     * before it has been read
+     *
+     * @param in where to read it from
+     * @return the binder, equivalent to the one that was written
+     * @throws IOException if the binder can't be read
+     */
+    @NonNull
+    @WorkerThread
+    T read(@NonNull DataInput in) throws IOException;
+
+}
@@ -0,0 +1,64 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.v7.util.DiffUtil;
+
+import java.util.List;
+
+/**
+ * Compares two lists of binders using {@link DiffableMultiTypeBinder} or {@link StableIdBinder}
+ * where available
+ */
+final class BinderDiffCallback extends DiffUtil.Callback {
+
+    private final List<MultiTypeBinder> mOldBinders;
+    private final List<MultiTypeBinder> mNewBinders;
+
+    BinderDiffCallback(List<MultiTypeBinder> oldBinders, List<MultiTypeBinder> newBinders) {
+        mOldBinders = oldBinders;
+        mNewBinders = newBinders;
+    }
+
+    @Override
+    public int getOldListSize() {
+        return mOldBinders.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+        return mNewBinders.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+        MultiTypeBinder oldBinder = mOldBinders.get(oldItemPosition);
+        MultiTypeBinder newBinder = mNewBinders.get(newItemPosition);
+        if (oldBinder == newBinder) {
+            return true;
+        }
+        if (oldBinder.getViewType().getType() != newBinder.getViewType().getType()) {
+            return false;
+        }
+        if (oldBinder instanceof DiffableMultiTypeBinder) {
+            return ((DiffableMultiTypeBinder) oldBinder).isSameItemAs(newBinder);
+        }
+        if (oldBinder instanceof StableIdBinder && newBinder instanceof StableIdBinder) {
+            return ((StableIdBinder) oldBinder).getItemId()
+                    == ((StableIdBinder) newBinder).getItemId();
+        }
+        return oldBinder.equals(newBinder);
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+        MultiTypeBinder oldBinder = mOldBinders.get(oldItemPosition);
+        MultiTypeBinder newBinder = mNewBinders.get(newItemPosition);
+        if (oldBinder == newBinder) {
+            return true;
+        }
+        if (oldBinder instanceof DiffableMultiTypeBinder) {
+            return ((DiffableMultiTypeBinder) oldBinder).hasSameContentAs(newBinder);
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.edwardharker.multiitemadapter;
+
+
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import java.util.List;
+
+/**
+ * Loads the items of a large list a page at a time.
+ * Set with {@link MultiTypeAdapter#setPageSource(BinderPageSource, MultiTypeBinder)}
+ */
+public interface BinderPageSource {
+
+    /**
+     * Get the total number of items. Called once when the source is set on the adapter
+     *
+     * @return the number of items
+     */
+    int getItemCount();
+
+    /**
+     * Load a page of binders. Called on a background thread
+     *
+     * @param startPosition the position of the first item to load
+     * @param count         the number of items to load
+     * @return exactly count binders for the positions from startPosition
+     */
+    @NonNull
+    @WorkerThread
+    List<MultiTypeBinder> loadPage(int startPosition, int count);
+
+}
@@ -0,0 +1,139 @@
+package com.edwardharker.multiitemadapter;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Calls {@link PreparableMultiTypeBinder#prepare()} in the background for binders within the
+ * prepare distance of the position being bound, in the direction the list is moving.
+ * <p/>
+ * Results are kept by binder instance, so they survive the binder moving position. Only the most
+ * recently prepared results are kept. Everything except preparing happens on the UI thread.
+ */
+final class BinderPreparer {
+
+    /**
+     * The smallest number of results kept, whatever the prepare distance
+     */
+    static final int MIN_CAPACITY = 16;
+
+    private final Executor mExecutor;
+    private final ThreadHelper mThreadHelper;
+    private final int mPrepareDistance;
+    private final int mCapacity;
+
+    private final Map<PreparableMultiTypeBinder<?>, Object> mResults = new IdentityHashMap<>();
+
+    /**
+     * The binders in mResults, oldest first
+     */
+    private final ArrayDeque<PreparableMultiTypeBinder<?>> mResultOrder = new ArrayDeque<>();
+    private final Set<PreparableMultiTypeBinder<?>> mPreparing =
+            Collections.newSetFromMap(new IdentityHashMap<PreparableMultiTypeBinder<?>, Boolean>());
+
+    private int mLastPosition = -1;
+
+    BinderPreparer(Executor executor, ThreadHelper threadHelper, int prepareDistance) {
+        mExecutor = executor;
+        mThreadHelper = threadHelper;
+        mPrepareDistance = prepareDistance;
+        mCapacity = Math.max(MIN_CAPACITY, prepareDistance * 4);
+    }
+
+    /**
+     * Get the prepared result for the binder, preparing it now if it isn't ready
+     */
+    @SuppressWarnings("unchecked")
+    <T> T getPrepared(PreparableMultiTypeBinder<T> binder) {
+        if (mResults.containsKey(binder)) {
+            return (T) mResults.get(binder);
+        }
+        T prepared = binder.prepare();
+        putResult(binder, prepared);
+        return prepared;
+    }
+
+    /**
+     * Start preparing the binders within the prepare distance of the position, ahead of the
+     * direction the list is moving
+     *
+     * @param position the position that has been bound
+     * @param items    the adapter's items
+     */
+    void onPositionBound(int position, BinderStore items) {
+        int first;
+        int last;
+        if (position >= mLastPosition) {
+            first = position + 1;
+            last = Math.min(items.size() - 1, position + mPrepareDistance);
+        } else {
+            first = Math.max(0, position - mPrepareDistance);
+            last = position - 1;
+        }
+        mLastPosition = position;
+        for (int i = first; i <= last; i++) {
+            Object item = items.get(i);
+            if (item instanceof BinderSpiller.Tombstone) {
+                item = ((BinderSpiller.Tombstone) item).getBinder();
+            }
+            if (item instanceof PreparableMultiTypeBinder) {
+                PreparableMultiTypeBinder<?> preparable = (PreparableMultiTypeBinder<?>) item;
+                if (!mResults.containsKey(preparable) && !mPreparing.contains(preparable)) {
+                    prepare(preparable);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget all the prepared results. Binders that are still being prepared are dropped
+     */
+    void clear() {
+        mResults.clear();
+        mResultOrder.clear();
+        mPreparing.clear();
+        mLastPosition = -1;
+    }
+
+    private void prepare(final PreparableMultiTypeBinder<?> binder) {
+        mPreparing.add(binder);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Object prepared;
+                boolean failed = false;
+                try {
+                    prepared = binder.prepare();
+                } catch (RuntimeException e) {
+                    // leave it to be prepared on the UI thread when it's bound, so it's reported
+                    prepared = null;
+                    failed = true;
+                }
+                final Object result = prepared;
+                final boolean succeeded = !failed;
+                mThreadHelper.postToUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mPreparing.remove(binder) && succeeded
+                                && !mResults.containsKey(binder)) {
+                            putResult(binder, result);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void putResult(PreparableMultiTypeBinder<?> binder, Object prepared) {
+        mResults.put(binder, prepared);
+        mResultOrder.addLast(binder);
+        while (mResultOrder.size() > mCapacity) {
+            mResults.remove(mResultOrder.removeFirst());
+        }
+    }
+
+}
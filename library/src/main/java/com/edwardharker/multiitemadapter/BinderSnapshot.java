@@ -0,0 +1,351 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * A snapshot of the adapter's binders written with their {@link BinderCodec}s. A snapshot file is
+ * memory mapped when it's read and binders are only decoded when they're needed, so opening a
+ * large snapshot takes about as long as opening a small one.
+ * <p/>
+ * The file starts with a header and an index entry for each binder, followed by the encoded
+ * binders:
+ * <pre>
+ * header: magic, version, count, flags          4 ints
+ * index:  type, flags, item id, offset, length  int, int, long, int, int for each binder
+ * data:   the encoded binders
+ * </pre>
+ */
+final class BinderSnapshot {
+
+    /**
+     * In place of a binder that hasn't been decoded from the snapshot yet
+     */
+    static final class Entry {
+
+        private final BinderSnapshot mSnapshot;
+        private final int mIndex;
+
+        private Entry(BinderSnapshot snapshot, int index) {
+            mSnapshot = snapshot;
+            mIndex = index;
+        }
+
+        int getViewType() {
+            return mSnapshot.mBuffer.getInt(indexOffset(mIndex));
+        }
+
+        /**
+         * @return true if the binder implements {@link StableIdBinder}
+         */
+        boolean hasItemId() {
+            return (mSnapshot.mBuffer.getInt(indexOffset(mIndex) + 4) & FLAG_ITEM_ID) != 0;
+        }
+
+        /**
+         * @return the binder's stable id, kept in the index so it can be read without decoding
+         */
+        long getItemId() {
+            return mSnapshot.mBuffer.getLong(indexOffset(mIndex) + 8);
+        }
+
+        /**
+         * Decode the binder. May be called on any thread
+         *
+         * @param codecs the codecs for each view type
+         * @return the binder
+         * @throws IOException if the view type has no codec or the binder can't be decoded
+         */
+        MultiTypeBinder decode(ImmutableSparseArray<BinderCodec<?>> codecs) throws IOException {
+            int type = getViewType();
+            BinderCodec<?> codec = codecs.get(type);
+            if (codec == null) {
+                throw new IOException("No codec for view type " + type);
+            }
+            return codec.read(new DataInputStream(new ByteBufferInputStream(bytes())));
+        }
+
+        /**
+         * Copy the encoded binder without decoding it. May be called on any thread
+         *
+         * @return the encoded binder
+         * @throws IOException if the binder is outside the snapshot
+         */
+        Record toRecord() throws IOException {
+            ByteBuffer buffer = bytes();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return new Record(getViewType(), hasItemId(), getItemId(), bytes);
+        }
+
+        /**
+         * @return a buffer of just this binder's bytes
+         */
+        private ByteBuffer bytes() throws IOException {
+            ByteBuffer buffer = mSnapshot.mBuffer.duplicate();
+            int offset = buffer.getInt(indexOffset(mIndex) + 16);
+            int length = buffer.getInt(indexOffset(mIndex) + 20);
+            if (offset < mSnapshot.mDataOffset || length < 0
+                    || offset > buffer.capacity() - length) {
+                throw new IOException("Binder " + mIndex + " is outside the snapshot");
+            }
+            buffer.limit(offset + length);
+            buffer.position(offset);
+            return buffer;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{index=" + mIndex + "}";
+        }
+    }
+
+    /**
+     * A binder that has already been encoded by its codec, such as one that was written to disk
+     */
+    static final class Record {
+
+        private final int mViewType;
+        private final boolean mHasItemId;
+        private final long mItemId;
+        private final byte[] mBytes;
+        private final int mLength;
+
+        Record(int viewType, boolean hasItemId, long itemId, byte[] bytes) {
+            mViewType = viewType;
+            mHasItemId = hasItemId;
+            mItemId = itemId;
+            mBytes = bytes;
+            mLength = bytes.length;
+        }
+
+        /**
+         * The index entry of a binder that has just been encoded
+         */
+        private Record(int viewType, MultiTypeBinder binder, int length) {
+            mViewType = viewType;
+            mHasItemId = binder instanceof StableIdBinder;
+            mItemId = mHasItemId ? ((StableIdBinder) binder).getItemId() : RecyclerView.NO_ID;
+            mBytes = null;
+            mLength = length;
+        }
+    }
+
+    private static final int MAGIC = 0x4d544153;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int INDEX_ENTRY_SIZE = 24;
+
+    private static final int FLAG_FOOTER = 1;
+    private static final int FLAG_ITEM_ID = 1;
+
+    private final ByteBuffer mBuffer;
+    private final int mCount;
+    private final boolean mHasFooter;
+    private final int mDataOffset;
+
+    private BinderSnapshot(ByteBuffer buffer, int count, boolean hasFooter) {
+        mBuffer = buffer;
+        mCount = count;
+        mHasFooter = hasFooter;
+        mDataOffset = indexOffset(count);
+    }
+
+    /**
+     * @return the number of binders in the snapshot, including the footer
+     */
+    int size() {
+        return mCount;
+    }
+
+    /**
+     * @return true if the last binder is the footer
+     */
+    boolean hasFooter() {
+        return mHasFooter;
+    }
+
+    /**
+     * Get the entry for a binder. A new entry is returned every time
+     *
+     * @param index the index of the binder
+     * @return the entry
+     */
+    Entry entry(int index) {
+        return new Entry(this, index);
+    }
+
+    /**
+     * Memory map a snapshot. Only the header is read
+     *
+     * @param file the snapshot
+     * @return the snapshot
+     * @throws IOException if the file can't be mapped or isn't a snapshot of this version
+     */
+    static BinderSnapshot open(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        ByteBuffer buffer;
+        try {
+            // the mapping stays valid after the file is closed, or even deleted
+            buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+        } finally {
+            in.close();
+        }
+        return wrap(buffer);
+    }
+
+    /**
+     * Read a snapshot from a buffer holding the whole snapshot. Only the header is read
+     *
+     * @param buffer the snapshot
+     * @return the snapshot
+     * @throws IOException if the buffer isn't a snapshot of this version
+     */
+    static BinderSnapshot wrap(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Snapshot version " + buffer.getInt(4) + " is not supported");
+        }
+        int count = buffer.getInt(8);
+        if (count < 0 || count > (buffer.capacity() - HEADER_SIZE) / INDEX_ENTRY_SIZE) {
+            throw new IOException("The snapshot is truncated");
+        }
+        boolean hasFooter = (buffer.getInt(12) & FLAG_FOOTER) != 0;
+        if (hasFooter && count == 0) {
+            throw new IOException("The snapshot has a footer but no binders");
+        }
+        return new BinderSnapshot(buffer, count, hasFooter);
+    }
+
+    /**
+     * Write a snapshot to a file. The file is replaced once the snapshot has been completely
+     * written, so an earlier snapshot is left as it was if this fails
+     *
+     * @param items     the binders to write, each of them must have a codec, or {@link Record}s
+     *                  of binders that have already been encoded
+     * @param hasFooter true if the last item is the footer
+     * @param codecs    the codecs for each view type
+     * @param file      where to write the snapshot
+     * @throws IOException if the snapshot can't be written
+     */
+    static void write(List<?> items, boolean hasFooter,
+                      ImmutableSparseArray<BinderCodec<?>> codecs, File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(temp));
+        try {
+            write(items, hasFooter, codecs, out);
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Couldn't replace " + file);
+        }
+    }
+
+    /**
+     * Write a snapshot to a stream
+     *
+     * @see #write(List, boolean, ImmutableSparseArray, File)
+     */
+    static void write(List<?> items, boolean hasFooter,
+                      ImmutableSparseArray<BinderCodec<?>> codecs, OutputStream stream)
+            throws IOException {
+        int count = items.size();
+        Record[] records = new Record[count];
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        DataOutputStream dataOut = new DataOutputStream(data);
+        for (int i = 0; i < count; i++) {
+            Object item = items.get(i);
+            if (item instanceof Record) {
+                records[i] = (Record) item;
+                dataOut.write(records[i].mBytes);
+            } else {
+                MultiTypeBinder binder = (MultiTypeBinder) item;
+                int type = binder.getViewType().getType();
+                int start = dataOut.size();
+                codecFor(codecs, type).write(binder, dataOut);
+                records[i] = new Record(type, binder, dataOut.size() - start);
+            }
+        }
+        dataOut.flush();
+
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(count);
+        out.writeInt(hasFooter ? FLAG_FOOTER : 0);
+        int offset = indexOffset(count);
+        for (Record record : records) {
+            out.writeInt(record.mViewType);
+            out.writeInt(record.mHasItemId ? FLAG_ITEM_ID : 0);
+            out.writeLong(record.mItemId);
+            out.writeInt(offset);
+            out.writeInt(record.mLength);
+            offset += record.mLength;
+        }
+        data.writeTo(out);
+        out.flush();
+    }
+
+    private static int indexOffset(int index) {
+        return HEADER_SIZE + index * INDEX_ENTRY_SIZE;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BinderCodec<MultiTypeBinder> codecFor(
+            ImmutableSparseArray<BinderCodec<?>> codecs, int type) {
+        return (BinderCodec<MultiTypeBinder>) codecs.get(type);
+    }
+
+    /**
+     * Reads the remaining bytes of a buffer
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer mBuffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return mBuffer.hasRemaining() ? mBuffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!mBuffer.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(length, mBuffer.remaining());
+            mBuffer.get(bytes, offset, read);
+            return read;
+        }
+
+        @Override
+        public int available() {
+            return mBuffer.remaining();
+        }
+    }
+
+}
@@ -0,0 +1,867 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Keeps a fixed number of binders in memory around the last bound position. Binders further away
+ * whose view type has a {@link BinderCodec} are written to the end of a segment file and replaced
+ * in the adapter by a {@link Tombstone}. Tombstones near the bound position are read back on the
+ * background executor before they're bound.
+ * <p/>
+ * The bytes of binders still in the adapter are counted for each segment. Once most of the
+ * segment belongs to binders that have been removed, the rest are moved to a second segment and
+ * the first is emptied, and the two swap places the next time.
+ * <p/>
+ * Only the positions that may hold binders in memory are looked at when sweeping: the window kept
+ * at the last sweep, and the positions that have been added, changed or read back since.
+ * Everything except reading and writing the files happens on the UI thread.
+ * <p/>
+ * Each file is only used by one spiller at a time, so a new adapter doesn't empty the files of
+ * one that is still shown. If the file is in use "-1", "-2" and so on are added to its name
+ */
+final class BinderSpiller {
+
+    /**
+     * A segment is compacted once this many of its bytes belong to removed binders, and more of
+     * them do than don't
+     */
+    static final long MIN_DEAD_BYTES = 256 * 1024;
+
+    /**
+     * The ranges of positions that may hold binders in memory are merged into one once there are
+     * more than this many
+     */
+    private static final int MAX_RANGES = 16;
+
+    /**
+     * The spiller using each file, by path, until it's closed or garbage collected
+     */
+    private static final Map<String, WeakReference<BinderSpiller>> sFiles = new HashMap<>();
+
+    /**
+     * In place of a binder that has been, or is being, written to a segment file
+     */
+    static final class Tombstone {
+
+        private final int mViewType;
+        private final int mEpoch;
+        private final boolean mHasItemId;
+        private final long mItemId;
+
+        /**
+         * The binder while it's in memory, or null if it's only in the file
+         */
+        private MultiTypeBinder mBinder;
+
+        /**
+         * Where the binder is written, or null if it isn't. Only changed on the UI thread with
+         * mFileLock held, so other threads must hold it to read them
+         */
+        private Segment mSegment;
+        private long mOffset;
+        private int mLength;
+
+        /**
+         * The number of times the segment had been emptied when the binder was written to it
+         */
+        private int mTruncations;
+
+        private boolean mWriting;
+        private boolean mReading;
+
+        /**
+         * True once it has been removed from the adapter
+         */
+        private boolean mReleased;
+
+        private Tombstone(MultiTypeBinder binder, int viewType, int epoch) {
+            mBinder = binder;
+            mViewType = viewType;
+            mEpoch = epoch;
+            mHasItemId = binder instanceof StableIdBinder;
+            mItemId = mHasItemId ? ((StableIdBinder) binder).getItemId() : RecyclerView.NO_ID;
+        }
+
+        /**
+         * @return the binder if it's in memory, otherwise null
+         */
+        MultiTypeBinder getBinder() {
+            return mBinder;
+        }
+
+        /**
+         * @return true if the binder implements {@link StableIdBinder}
+         */
+        boolean hasItemId() {
+            return mHasItemId;
+        }
+
+        /**
+         * @return the binder's stable id, kept so it can be read without reading the binder
+         */
+        long getItemId() {
+            return mItemId;
+        }
+
+        @Override
+        public String toString() {
+            return "Tombstone{type=" + mViewType + ", offset=" + mOffset + "}";
+        }
+    }
+
+    /**
+     * A file binders are written to the end of
+     */
+    private static final class Segment {
+
+        private final File mFile;
+
+        /**
+         * Opened when the first binder is written. Guarded by mFileLock
+         */
+        private RandomAccessFile mData;
+
+        /**
+         * The number of times the segment has been emptied, so removed binders whose bytes may
+         * have been overwritten aren't read. Guarded by mFileLock
+         */
+        private int mTruncations;
+
+        /**
+         * The bytes written, and the bytes of binders still in the adapter. Only used on the UI
+         * thread
+         */
+        private long mWrittenBytes;
+        private long mLiveBytes;
+
+        /**
+         * Writes that have started but not finished. Only used on the UI thread
+         */
+        private int mPendingWrites;
+
+        Segment(File file) {
+            mFile = file;
+        }
+    }
+
+    private final ImmutableSparseArray<BinderCodec<?>> mCodecs;
+    private final File mFile;
+    private final int mMaxInMemory;
+    private final int mRehydrateDistance;
+
+    /**
+     * The number of binds, or items added or removed, between sweeps
+     */
+    private final int mSweepInterval;
+    private final Executor mExecutor;
+    private final ThreadHelper mThreadHelper;
+
+    private final Object mFileLock = new Object();
+
+    /**
+     * The file and the second file that binders are moved to when it's compacted
+     */
+    private final Segment[] mSegments;
+
+    /**
+     * The index of the segment new binders are written to
+     */
+    private int mCurrent;
+
+    private boolean mCompacting;
+
+    /**
+     * True once the files have been closed and deleted. Only changed on the UI thread, read on
+     * other threads with mFileLock held
+     */
+    private boolean mClosed;
+
+    /**
+     * Incremented when the files are emptied, so reads and writes started before then are
+     * dropped. Only changed on the UI thread, read on other threads with mFileLock held
+     */
+    private int mEpoch;
+
+    /**
+     * The start and end of each range of positions that may hold binders in memory, in order
+     */
+    private final IntArrayList mRanges = new IntArrayList();
+
+    /**
+     * True if the next sweep looks at every position, because the positions in memory aren't known
+     */
+    private boolean mSweepAll = true;
+
+    private int mLastPosition;
+    private int mBindsSinceSweep;
+    private int mSizeAtSweep;
+
+    BinderSpiller(ImmutableSparseArray<BinderCodec<?>> codecs, File file, int maxInMemory,
+                  Executor executor, ThreadHelper threadHelper) {
+        mCodecs = codecs;
+        mFile = claim(file, this);
+        mMaxInMemory = maxInMemory;
+        mRehydrateDistance = maxInMemory / 4;
+        mSweepInterval = Math.max(1, maxInMemory / 4);
+        mExecutor = executor;
+        mThreadHelper = threadHelper;
+        mSegments = new Segment[]{
+                new Segment(mFile), new Segment(new File(mFile.getPath() + ".1"))};
+    }
+
+    /**
+     * Get the file a new spiller uses, which is the file asked for unless another spiller is
+     * using it
+     */
+    private static File claim(File file, BinderSpiller spiller) {
+        synchronized (sFiles) {
+            for (int i = 0; ; i++) {
+                File candidate = i == 0 ? file : new File(file.getPath() + "-" + i);
+                WeakReference<BinderSpiller> user = sFiles.get(candidate.getPath());
+                if (user == null || user.get() == null) {
+                    sFiles.put(candidate.getPath(), new WeakReference<>(spiller));
+                    return candidate;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the file binders are written to
+     */
+    File getFile() {
+        return mFile;
+    }
+
+    /**
+     * Start reading back the binders near the position, and every so often write out the binders
+     * that are too far away from it
+     *
+     * @param position       the position that has been bound
+     * @param items          the adapter's items
+     * @param spillableCount the number of items from the start that may be written out, which
+     *                       leaves out the footer
+     */
+    void onPositionBound(int position, BinderStore items, int spillableCount) {
+        if (mClosed) {
+            return;
+        }
+        mLastPosition = position;
+        int first = Math.max(0, position - mRehydrateDistance);
+        int last = Math.min(items.size() - 1, position + mRehydrateDistance);
+        rehydrate(items, first, last);
+        markInMemory(first, last + 1);
+        if (++mBindsSinceSweep >= mSweepInterval
+                || Math.abs(items.size() - mSizeAtSweep) >= mSweepInterval) {
+            sweep(items, spillableCount);
+        }
+    }
+
+    /**
+     * Items have been added to the adapter, which may be binders in memory
+     */
+    void onInserted(int position, int count) {
+        if (mSweepAll) {
+            return;
+        }
+        for (int i = 0; i < mRanges.size(); i += 2) {
+            if (mRanges.get(i) >= position) {
+                mRanges.set(i, mRanges.get(i) + count);
+            }
+            if (mRanges.get(i + 1) > position) {
+                mRanges.set(i + 1, mRanges.get(i + 1) + count);
+            }
+        }
+        markInMemory(position, position + count);
+    }
+
+    /**
+     * Items have been removed from the adapter
+     */
+    void onRemoved(int position, int count) {
+        if (mSweepAll) {
+            return;
+        }
+        for (int i = mRanges.size() - 2; i >= 0; i -= 2) {
+            int start = shiftForRemove(mRanges.get(i), position, count);
+            int end = shiftForRemove(mRanges.get(i + 1), position, count);
+            if (end > start) {
+                mRanges.set(i, start);
+                mRanges.set(i + 1, end);
+            } else {
+                mRanges.removeRange(i, i + 2);
+            }
+        }
+    }
+
+    /**
+     * Items in the adapter have been replaced, possibly with binders in memory
+     */
+    void onChanged(int position, int count) {
+        if (!mSweepAll) {
+            markInMemory(position, position + count);
+        }
+    }
+
+    /**
+     * A tombstone has been removed from the adapter, so its binder's bytes are no longer needed
+     */
+    void release(Tombstone tombstone) {
+        tombstone.mReleased = true;
+        Segment segment = tombstone.mSegment;
+        if (segment != null) {
+            segment.mLiveBytes -= tombstone.mLength;
+            emptyIfUnused(segment);
+        }
+    }
+
+    /**
+     * Get the binder a tombstone stands in for, reading it from the file on this thread if it
+     * isn't in memory
+     *
+     * @param tombstone the tombstone
+     * @param keep      true to keep the binder in memory, because it is about to be bound
+     * @return the binder
+     * @throws IllegalStateException if the binder can't be read
+     */
+    MultiTypeBinder read(Tombstone tombstone, boolean keep) {
+        if (tombstone.mBinder != null) {
+            return tombstone.mBinder;
+        }
+        MultiTypeBinder binder;
+        try {
+            synchronized (mFileLock) {
+                binder = readRecord(tombstone);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read " + tombstone + " from " + mFile, e);
+        }
+        if (keep) {
+            tombstone.mBinder = binder;
+        }
+        return binder;
+    }
+
+    /**
+     * Read a tombstone's binder from the file on any thread, without keeping it. Only for
+     * tombstones whose binder wasn't in memory before the calling thread was given them
+     *
+     * @param tombstone the tombstone
+     * @return the binder
+     * @throws IOException if the binder can't be read, or the file has been emptied since
+     */
+    MultiTypeBinder readDetached(Tombstone tombstone) throws IOException {
+        synchronized (mFileLock) {
+            checkReadable(tombstone);
+            return readRecord(tombstone);
+        }
+    }
+
+    /**
+     * Read a tombstone's encoded binder from the file, without decoding it, on any thread. Only
+     * for tombstones whose binder wasn't in memory before the calling thread was given them
+     *
+     * @param tombstone the tombstone
+     * @return the encoded binder
+     * @throws IOException if the binder can't be read, or the file has been emptied since
+     */
+    BinderSnapshot.Record readEncoded(Tombstone tombstone) throws IOException {
+        byte[] bytes;
+        synchronized (mFileLock) {
+            checkReadable(tombstone);
+            bytes = readBytes(tombstone.mSegment, tombstone.mOffset, tombstone.mLength);
+        }
+        return new BinderSnapshot.Record(tombstone.mViewType, tombstone.mHasItemId,
+                tombstone.mItemId, bytes);
+    }
+
+    /**
+     * Empty the files. Must only be called once no tombstones are left in the adapter
+     */
+    void clear() {
+        mLastPosition = 0;
+        mBindsSinceSweep = 0;
+        mSizeAtSweep = 0;
+        mSweepAll = true;
+        mRanges.clear();
+        mCurrent = 0;
+        synchronized (mFileLock) {
+            mEpoch++;
+            for (Segment segment : mSegments) {
+                segment.mWrittenBytes = 0;
+                segment.mLiveBytes = 0;
+                truncate(segment);
+            }
+        }
+    }
+
+    /**
+     * Close and delete the files, so another spiller can use them. Reads and writes that haven't
+     * finished are dropped, and binders that have been written out can't be read any more
+     */
+    void close() {
+        synchronized (mFileLock) {
+            mEpoch++;
+            mClosed = true;
+            for (Segment segment : mSegments) {
+                if (segment.mData != null) {
+                    try {
+                        segment.mData.close();
+                    } catch (IOException e) {
+                        // it's deleted anyway
+                    }
+                    segment.mData = null;
+                }
+                segment.mFile.delete();
+            }
+        }
+        synchronized (sFiles) {
+            WeakReference<BinderSpiller> user = sFiles.get(mFile.getPath());
+            if (user != null && user.get() == this) {
+                sFiles.remove(mFile.getPath());
+            }
+        }
+    }
+
+    /**
+     * Write out the binders outside the window of positions around the last bound position, and
+     * forget the ones that have already been written
+     */
+    private void sweep(BinderStore items, int spillableCount) {
+        mBindsSinceSweep = 0;
+        mSizeAtSweep = items.size();
+        int first = Math.max(0, mLastPosition - mMaxInMemory / 2);
+        int last = Math.min(spillableCount, first + mMaxInMemory) - 1;
+        first = Math.max(0, Math.min(first, last - mMaxInMemory + 1));
+        List<Tombstone> toWrite = new ArrayList<>();
+        if (mSweepAll) {
+            spill(items, 0, first, toWrite);
+            spill(items, last + 1, spillableCount, toWrite);
+        } else {
+            for (int i = 0; i < mRanges.size(); i += 2) {
+                int start = mRanges.get(i);
+                int end = Math.min(mRanges.get(i + 1), spillableCount);
+                spill(items, start, Math.min(end, first), toWrite);
+                spill(items, Math.max(start, last + 1), end, toWrite);
+            }
+        }
+        // everything outside the window is written out, or can't be
+        mSweepAll = false;
+        mRanges.clear();
+        markInMemory(first, last + 1);
+        if (!toWrite.isEmpty()) {
+            write(toWrite);
+        }
+        compactIfNeeded(items);
+    }
+
+    private void spill(BinderStore items, int start, int end, List<Tombstone> toWrite) {
+        for (int position = start; position < end; position++) {
+            Object item = items.get(position);
+            if (item instanceof Tombstone) {
+                Tombstone tombstone = (Tombstone) item;
+                if (tombstone.mBinder == null || tombstone.mWriting) {
+                    continue;
+                }
+                if (tombstone.mSegment != null) {
+                    // already in the file from the last time it was spilled
+                    tombstone.mBinder = null;
+                } else {
+                    // the last write failed, or it was in memory when its segment was compacted
+                    toWrite.add(tombstone);
+                }
+            } else if (item instanceof MultiTypeBinder) {
+                int type = items.getViewType(position);
+                if (mCodecs.get(type) != null) {
+                    Tombstone tombstone = new Tombstone((MultiTypeBinder) item, type, mEpoch);
+                    items.set(position, tombstone, type);
+                    toWrite.add(tombstone);
+                }
+            }
+        }
+    }
+
+    private void write(final List<Tombstone> tombstones) {
+        final int count = tombstones.size();
+        final int[] types = new int[count];
+        final List<MultiTypeBinder> binders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Tombstone tombstone = tombstones.get(i);
+            tombstone.mWriting = true;
+            types[i] = tombstone.mViewType;
+            binders.add(tombstone.mBinder);
+        }
+        final Segment segment = mSegments[mCurrent];
+        segment.mPendingWrites++;
+        final int epoch = mEpoch;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final long[] offsets = new long[count];
+                final int[] lengths = new int[count];
+                final int size;
+                boolean written;
+                try {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    DataOutputStream out = new DataOutputStream(bytes);
+                    for (int i = 0; i < count; i++) {
+                        int start = out.size();
+                        codecFor(types[i]).write(binders.get(i), out);
+                        offsets[i] = start;
+                        lengths[i] = out.size() - start;
+                    }
+                    out.flush();
+                    size = out.size();
+                    synchronized (mFileLock) {
+                        written = epoch == mEpoch;
+                        if (written) {
+                            long base = append(segment, bytes.toByteArray());
+                            for (int i = 0; i < count; i++) {
+                                offsets[i] += base;
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    // keep them in memory, they are tried again on the next sweep
+                    written = false;
+                }
+                final boolean success = written;
+                mThreadHelper.postToUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        onWritten(segment, tombstones, epoch, success, offsets, lengths);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onWritten(Segment segment, List<Tombstone> tombstones, int epoch,
+                           boolean success, long[] offsets, int[] lengths) {
+        segment.mPendingWrites--;
+        if (epoch != mEpoch) {
+            return;
+        }
+        synchronized (mFileLock) {
+            for (int i = 0; i < tombstones.size(); i++) {
+                Tombstone tombstone = tombstones.get(i);
+                tombstone.mWriting = false;
+                if (success) {
+                    segment.mWrittenBytes += lengths[i];
+                    if (!tombstone.mReleased) {
+                        tombstone.mSegment = segment;
+                        tombstone.mTruncations = segment.mTruncations;
+                        tombstone.mOffset = offsets[i];
+                        tombstone.mLength = lengths[i];
+                        segment.mLiveBytes += lengths[i];
+                        // read back if it has come near the bound position since
+                        tombstone.mBinder = null;
+                    }
+                }
+            }
+        }
+        if (!success) {
+            // the tombstones are still in memory wherever they are now
+            mSweepAll = true;
+        }
+        emptyIfUnused(segment);
+    }
+
+    /**
+     * Move the binders still in the current segment to the other one, once most of its bytes
+     * belong to removed binders. Looks at every item, but only after at least as many bytes have
+     * been removed as are left, so it takes a constant time for each binder removed
+     */
+    private void compactIfNeeded(BinderStore items) {
+        final Segment from = mSegments[mCurrent];
+        final Segment to = mSegments[1 - mCurrent];
+        long deadBytes = from.mWrittenBytes - from.mLiveBytes;
+        if (mCompacting || to.mWrittenBytes > 0 || from.mPendingWrites > 0
+                || deadBytes < MIN_DEAD_BYTES || deadBytes <= from.mLiveBytes) {
+            return;
+        }
+        final List<Tombstone> toMove = new ArrayList<>();
+        synchronized (mFileLock) {
+            for (int i = 0; i < items.size(); i++) {
+                Object item = items.get(i);
+                if (!(item instanceof Tombstone) || ((Tombstone) item).mSegment != from) {
+                    continue;
+                }
+                Tombstone tombstone = (Tombstone) item;
+                if (tombstone.mBinder != null) {
+                    // in memory, it's written again if it's spilled again
+                    tombstone.mSegment = null;
+                    from.mLiveBytes -= tombstone.mLength;
+                } else {
+                    toMove.add(tombstone);
+                }
+            }
+        }
+        mCompacting = true;
+        mCurrent = 1 - mCurrent;
+        to.mPendingWrites++;
+        final int count = toMove.size();
+        final long[] offsets = new long[count];
+        final int epoch = mEpoch;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean moved;
+                try {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    for (int i = 0; i < count; i++) {
+                        Tombstone tombstone = toMove.get(i);
+                        synchronized (mFileLock) {
+                            checkReadable(tombstone);
+                            offsets[i] = bytes.size();
+                            bytes.write(readBytes(from, tombstone.mOffset, tombstone.mLength));
+                        }
+                    }
+                    synchronized (mFileLock) {
+                        moved = epoch == mEpoch;
+                        if (moved) {
+                            long base = append(to, bytes.toByteArray());
+                            for (int i = 0; i < count; i++) {
+                                offsets[i] += base;
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    // left where they are, the segment is compacted again later
+                    moved = false;
+                }
+                final boolean success = moved;
+                mThreadHelper.postToUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        onMoved(from, to, toMove, epoch, success, offsets);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onMoved(Segment from, Segment to, List<Tombstone> tombstones, int epoch,
+                         boolean success, long[] offsets) {
+        mCompacting = false;
+        to.mPendingWrites--;
+        if (epoch != mEpoch || !success) {
+            return;
+        }
+        synchronized (mFileLock) {
+            for (int i = 0; i < tombstones.size(); i++) {
+                Tombstone tombstone = tombstones.get(i);
+                to.mWrittenBytes += tombstone.mLength;
+                if (!tombstone.mReleased) {
+                    tombstone.mSegment = to;
+                    tombstone.mTruncations = to.mTruncations;
+                    tombstone.mOffset = offsets[i];
+                    from.mLiveBytes -= tombstone.mLength;
+                    to.mLiveBytes += tombstone.mLength;
+                }
+            }
+        }
+        emptyIfUnused(from);
+    }
+
+    /**
+     * Empty the segment if binders are no longer written to it and none of its bytes are needed
+     */
+    private void emptyIfUnused(Segment segment) {
+        if (segment == mSegments[mCurrent] || segment.mLiveBytes > 0
+                || segment.mPendingWrites > 0 || segment.mWrittenBytes == 0) {
+            return;
+        }
+        segment.mWrittenBytes = 0;
+        synchronized (mFileLock) {
+            truncate(segment);
+        }
+    }
+
+    private void rehydrate(BinderStore items, int first, int last) {
+        List<Tombstone> toRead = null;
+        for (int i = first; i <= last; i++) {
+            Object item = items.get(i);
+            if (item instanceof Tombstone) {
+                Tombstone tombstone = (Tombstone) item;
+                if (tombstone.mBinder == null && !tombstone.mReading) {
+                    if (toRead == null) {
+                        toRead = new ArrayList<>();
+                    }
+                    tombstone.mReading = true;
+                    toRead.add(tombstone);
+                }
+            }
+        }
+        if (toRead != null) {
+            read(toRead);
+        }
+    }
+
+    private void read(final List<Tombstone> tombstones) {
+        final int count = tombstones.size();
+        final int epoch = mEpoch;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final MultiTypeBinder[] binders = new MultiTypeBinder[count];
+                synchronized (mFileLock) {
+                    for (int i = 0; i < count && epoch == mEpoch; i++) {
+                        try {
+                            binders[i] = readRecord(tombstones.get(i));
+                        } catch (IOException e) {
+                            // read on the UI thread if it's bound
+                        }
+                    }
+                }
+                mThreadHelper.postToUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < count; i++) {
+                            Tombstone tombstone = tombstones.get(i);
+                            tombstone.mReading = false;
+                            if (tombstone.mBinder == null) {
+                                tombstone.mBinder = binders[i];
+                            }
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Add a range of positions that may hold binders in memory, merging it with the ranges it
+     * overlaps or touches
+     */
+    private void markInMemory(int start, int end) {
+        if (end <= start) {
+            return;
+        }
+        int i = 0;
+        while (i < mRanges.size() && mRanges.get(i + 1) < start) {
+            i += 2;
+        }
+        int j = i;
+        while (j < mRanges.size() && mRanges.get(j) <= end) {
+            start = Math.min(start, mRanges.get(j));
+            end = Math.max(end, mRanges.get(j + 1));
+            j += 2;
+        }
+        mRanges.removeRange(i, j);
+        mRanges.add(i, end);
+        mRanges.add(i, start);
+        if (mRanges.size() > MAX_RANGES * 2) {
+            int first = mRanges.get(0);
+            int last = mRanges.get(mRanges.size() - 1);
+            mRanges.clear();
+            mRanges.add(0, last);
+            mRanges.add(0, first);
+        }
+    }
+
+    private static int shiftForRemove(int position, int removedStart, int removedCount) {
+        if (position <= removedStart) {
+            return position;
+        }
+        return Math.max(removedStart, position - removedCount);
+    }
+
+    /**
+     * Must hold mFileLock
+     *
+     * @throws IOException if the tombstone isn't written out, or the file it's written to has
+     *                     been emptied since, which only happens once it's been removed
+     */
+    private void checkReadable(Tombstone tombstone) throws IOException {
+        if (tombstone.mEpoch != mEpoch || tombstone.mSegment == null
+                || tombstone.mTruncations != tombstone.mSegment.mTruncations) {
+            throw new IOException(tombstone + " was cleared");
+        }
+    }
+
+    /**
+     * Must hold mFileLock
+     */
+    private MultiTypeBinder readRecord(Tombstone tombstone) throws IOException {
+        if (tombstone.mSegment == null) {
+            throw new IOException(tombstone + " isn't written out");
+        }
+        byte[] bytes = readBytes(tombstone.mSegment, tombstone.mOffset, tombstone.mLength);
+        return codecFor(tombstone.mViewType).read(
+                new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * Must hold mFileLock
+     */
+    private byte[] readBytes(Segment segment, long offset, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        RandomAccessFile data = open(segment);
+        data.seek(offset);
+        data.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Must hold mFileLock
+     *
+     * @return the offset the bytes were written at
+     */
+    private long append(Segment segment, byte[] bytes) throws IOException {
+        RandomAccessFile data = open(segment);
+        long base = data.length();
+        data.seek(base);
+        data.write(bytes);
+        return base;
+    }
+
+    /**
+     * Must hold mFileLock
+     */
+    private void truncate(Segment segment) {
+        segment.mTruncations++;
+        if (segment.mData != null) {
+            try {
+                segment.mData.setLength(0);
+            } catch (IOException e) {
+                // the old records are never read again, so they're just wasted space
+            }
+        }
+    }
+
+    /**
+     * Must hold mFileLock
+     */
+    private RandomAccessFile open(Segment segment) throws IOException {
+        if (mClosed) {
+            throw new IOException(mFile + " has been closed");
+        }
+        if (segment.mData == null) {
+            segment.mData = new RandomAccessFile(segment.mFile, "rw");
+            // anything already in the file is from an adapter that has gone
+            segment.mData.setLength(0);
+        }
+        return segment.mData;
+    }
+
+    @SuppressWarnings("unchecked")
+    private BinderCodec<MultiTypeBinder> codecFor(int type) {
+        return (BinderCodec<MultiTypeBinder>) mCodecs.get(type);
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.edwardharker.multiitemadapter;
+
+/**
+ * How the adapter stores its binders. Set with {@link MultiTypeAdapter.Builder#storage(BinderStorage)}
+ */
+public enum BinderStorage {
+
+    /**
+     * Binders are stored in an array. The fastest option for reads and for adding to the end, but
+     * adding or removing anywhere else shifts every binder after that position. The default
+     */
+    ARRAY,
+
+    /**
+     * Binders are stored in chunks of a few hundred. Adding or removing anywhere only shifts the
+     * binders in one chunk, at the cost of slightly slower reads. Use for very large lists that are
+     * changed in the middle, such as adding to the top of a long chat history
+     */
+    CHUNKED
+
+}
@@ -0,0 +1,55 @@
+package com.edwardharker.multiitemadapter;
+
+import java.util.List;
+
+/**
+ * Holds the items in the adapter along with the view type of each one. An item is a
+ * {@link MultiTypeBinder}, or the data object for view types bound with a
+ * {@link MultiTypeDataBinder}
+ */
+interface BinderStore {
+
+    /**
+     * @return the number of items
+     */
+    int size();
+
+    /**
+     * @return the item at the position
+     */
+    Object get(int position);
+
+    /**
+     * @return the view type of the item at the position
+     */
+    int getViewType(int position);
+
+    /**
+     * Insert the item at the position, shifting later items up
+     */
+    void add(int position, Object item, int viewType);
+
+    /**
+     * Insert the items at the position, shifting later items up
+     *
+     * @param viewTypes the view type of each item
+     */
+    void addAll(int position, List<?> items, int[] viewTypes);
+
+    /**
+     * Replace the item at the position
+     */
+    void set(int position, Object item, int viewType);
+
+    /**
+     * Remove the items from {@code fromPosition} inclusive to {@code toPosition} exclusive,
+     * shifting later items down
+     */
+    void removeRange(int fromPosition, int toPosition);
+
+    /**
+     * Remove all of the items
+     */
+    void clear();
+
+}
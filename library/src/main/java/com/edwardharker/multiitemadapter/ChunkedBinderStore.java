@@ -0,0 +1,334 @@
+package com.edwardharker.multiitemadapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores binders in fixed size chunks so inserting or removing only shifts the binders in one
+ * chunk. The chunk holding a position is found through a {@link FenwickTree} of chunk sizes in
+ * O(log(n / CHUNK_CAPACITY)), and the last chunk found is remembered so reading positions in order
+ * is O(1).
+ * <p/>
+ * A full chunk makes room by moving binders to a neighbour with room, and is only split when
+ * neither has any, so renumbering the chunks after it happens at most once every
+ * CHUNK_CAPACITY / 2 inserts around a position. A chunk left less than a quarter full is merged
+ * into a neighbour if they fit in half a chunk. Chunks emptied by removing or merging stay in
+ * place with a size of zero, which the tree skips, until they're reused by a neighbour making
+ * room or they make up half of the chunks.
+ */
+final class ChunkedBinderStore implements BinderStore {
+
+    static final int CHUNK_CAPACITY = 256;
+
+    /**
+     * A chunk with fewer binders than this is merged into a neighbour
+     */
+    private static final int MIN_CHUNK_SIZE = CHUNK_CAPACITY / 4;
+
+    private final ArrayList<Chunk> mChunks = new ArrayList<>();
+    private final FenwickTree mChunkSizes = new FenwickTree();
+    private int[] mSizesScratch = new int[16];
+    private int mSize;
+
+    /**
+     * The number of chunks with a size of zero. The last chunk is never empty
+     */
+    private int mEmptyChunks;
+
+    /**
+     * The chunk found by the last lookup and the position of its first binder, or -1
+     */
+    private int mCachedChunk = -1;
+    private int mCachedChunkStart;
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    @Override
+    public Object get(int position) {
+        checkPosition(position);
+        Chunk chunk = mChunks.get(findChunk(position));
+        return chunk.mBinders[position - mCachedChunkStart];
+    }
+
+    @Override
+    public int getViewType(int position) {
+        checkPosition(position);
+        Chunk chunk = mChunks.get(findChunk(position));
+        return chunk.mViewTypes[position - mCachedChunkStart];
+    }
+
+    @Override
+    public void add(int position, Object binder, int viewType) {
+        if (position < 0 || position > mSize) {
+            throw new IndexOutOfBoundsException("position: " + position + " invalid. " +
+                    "Size is " + mSize);
+        }
+        int chunkIndex;
+        if (position == mSize) {
+            chunkIndex = mChunks.size() - 1;
+            if (chunkIndex < 0 || mChunks.get(chunkIndex).mSize == CHUNK_CAPACITY) {
+                mChunks.add(new Chunk());
+                mChunkSizes.append(0);
+                chunkIndex++;
+            }
+            mCachedChunk = chunkIndex;
+            mCachedChunkStart = mSize - mChunks.get(chunkIndex).mSize;
+        } else {
+            chunkIndex = findChunk(position);
+            if (mChunks.get(chunkIndex).mSize == CHUNK_CAPACITY) {
+                makeRoom(chunkIndex);
+                chunkIndex = findChunk(position);
+            }
+        }
+        Chunk chunk = mChunks.get(chunkIndex);
+        int offset = position - mCachedChunkStart;
+        System.arraycopy(chunk.mBinders, offset, chunk.mBinders, offset + 1, chunk.mSize - offset);
+        System.arraycopy(chunk.mViewTypes, offset, chunk.mViewTypes, offset + 1,
+                chunk.mSize - offset);
+        chunk.mBinders[offset] = binder;
+        chunk.mViewTypes[offset] = viewType;
+        chunk.mSize++;
+        mSize++;
+        mChunkSizes.add(chunkIndex, 1);
+        mCachedChunk = -1;
+    }
+
+    @Override
+    public void addAll(int position, List<?> binders, int[] viewTypes) {
+        for (int i = 0; i < viewTypes.length; i++) {
+            add(position + i, binders.get(i), viewTypes[i]);
+        }
+    }
+
+    @Override
+    public void set(int position, Object binder, int viewType) {
+        checkPosition(position);
+        Chunk chunk = mChunks.get(findChunk(position));
+        chunk.mBinders[position - mCachedChunkStart] = binder;
+        chunk.mViewTypes[position - mCachedChunkStart] = viewType;
+    }
+
+    @Override
+    public void removeRange(int fromPosition, int toPosition) {
+        if (fromPosition < 0 || toPosition > mSize || fromPosition > toPosition) {
+            throw new IndexOutOfBoundsException("range: " + fromPosition + " to " + toPosition
+                    + " invalid. Size is " + mSize);
+        }
+        int remaining = toPosition - fromPosition;
+        while (remaining > 0) {
+            int chunkIndex = findChunk(fromPosition);
+            Chunk chunk = mChunks.get(chunkIndex);
+            int offset = fromPosition - mCachedChunkStart;
+            int count = Math.min(remaining, chunk.mSize - offset);
+            int tail = chunk.mSize - offset - count;
+            System.arraycopy(chunk.mBinders, offset + count, chunk.mBinders, offset, tail);
+            System.arraycopy(chunk.mViewTypes, offset + count, chunk.mViewTypes, offset, tail);
+            chunk.mSize -= count;
+            for (int i = chunk.mSize; i < chunk.mSize + count; i++) {
+                chunk.mBinders[i] = null;
+            }
+            mSize -= count;
+            remaining -= count;
+            mChunkSizes.add(chunkIndex, -count);
+            if (chunk.mSize == 0) {
+                mEmptyChunks++;
+            } else if (chunk.mSize < MIN_CHUNK_SIZE) {
+                mergeIntoNeighbour(chunkIndex);
+            }
+            mCachedChunk = -1;
+        }
+        while (!mChunks.isEmpty() && mChunks.get(mChunks.size() - 1).mSize == 0) {
+            mChunks.remove(mChunks.size() - 1);
+            mChunkSizes.removeLast();
+            mEmptyChunks--;
+        }
+        if (mEmptyChunks > 0 && mEmptyChunks >= mChunks.size() / 2) {
+            removeEmptyChunks();
+        }
+    }
+
+    @Override
+    public void clear() {
+        mChunks.clear();
+        mSize = 0;
+        mEmptyChunks = 0;
+        rebuildIndex();
+        mCachedChunk = -1;
+    }
+
+    /**
+     * @return the number of chunks, including empty ones
+     */
+    int chunkCount() {
+        return mChunks.size();
+    }
+
+    /**
+     * Find the chunk holding the position, which must be less than size(), and remember the
+     * position its first binder is at in {@link #mCachedChunkStart}
+     */
+    private int findChunk(int position) {
+        if (mCachedChunk >= 0 && position >= mCachedChunkStart
+                && position < mCachedChunkStart + mChunks.get(mCachedChunk).mSize) {
+            return mCachedChunk;
+        }
+        int chunkIndex = mChunkSizes.indexOf(position);
+        if (chunkIndex == mChunks.size()) {
+            // only happens when finding the end of the last chunk while appending
+            chunkIndex--;
+        }
+        mCachedChunk = chunkIndex;
+        mCachedChunkStart = mChunkSizes.prefixSum(chunkIndex);
+        return chunkIndex;
+    }
+
+    /**
+     * Make room in a full chunk by moving some of its binders to a neighbour with room for more
+     * than one, so the neighbour isn't left full, or by splitting it if neither has room
+     */
+    private void makeRoom(int chunkIndex) {
+        if (chunkIndex + 1 < mChunks.size()
+                && mChunks.get(chunkIndex + 1).mSize <= CHUNK_CAPACITY - 2) {
+            moveToNext(chunkIndex, (CHUNK_CAPACITY - mChunks.get(chunkIndex + 1).mSize + 1) / 2);
+        } else if (chunkIndex > 0 && mChunks.get(chunkIndex - 1).mSize <= CHUNK_CAPACITY - 2) {
+            moveToPrevious(chunkIndex,
+                    (CHUNK_CAPACITY - mChunks.get(chunkIndex - 1).mSize + 1) / 2);
+        } else {
+            splitChunk(chunkIndex);
+        }
+        mCachedChunk = -1;
+    }
+
+    /**
+     * Move all the binders of an underfull chunk into a neighbour, if together they fit in half a
+     * chunk. Empty neighbours are left alone
+     */
+    private void mergeIntoNeighbour(int chunkIndex) {
+        int size = mChunks.get(chunkIndex).mSize;
+        if (chunkIndex > 0 && canMergeInto(mChunks.get(chunkIndex - 1), size)) {
+            moveToPrevious(chunkIndex, size);
+        } else if (chunkIndex + 1 < mChunks.size()
+                && canMergeInto(mChunks.get(chunkIndex + 1), size)) {
+            moveToNext(chunkIndex, size);
+        }
+    }
+
+    private static boolean canMergeInto(Chunk neighbour, int size) {
+        return neighbour.mSize > 0 && neighbour.mSize + size <= CHUNK_CAPACITY / 2;
+    }
+
+    /**
+     * Move the last count binders of a chunk to the start of the chunk after it
+     */
+    private void moveToNext(int chunkIndex, int count) {
+        Chunk chunk = mChunks.get(chunkIndex);
+        Chunk next = mChunks.get(chunkIndex + 1);
+        if (next.mSize == 0) {
+            mEmptyChunks--;
+        }
+        System.arraycopy(next.mBinders, 0, next.mBinders, count, next.mSize);
+        System.arraycopy(next.mViewTypes, 0, next.mViewTypes, count, next.mSize);
+        int from = chunk.mSize - count;
+        System.arraycopy(chunk.mBinders, from, next.mBinders, 0, count);
+        System.arraycopy(chunk.mViewTypes, from, next.mViewTypes, 0, count);
+        Arrays.fill(chunk.mBinders, from, chunk.mSize, null);
+        chunk.mSize = from;
+        next.mSize += count;
+        if (chunk.mSize == 0) {
+            mEmptyChunks++;
+        }
+        mChunkSizes.add(chunkIndex, -count);
+        mChunkSizes.add(chunkIndex + 1, count);
+    }
+
+    /**
+     * Move the first count binders of a chunk to the end of the chunk before it
+     */
+    private void moveToPrevious(int chunkIndex, int count) {
+        Chunk chunk = mChunks.get(chunkIndex);
+        Chunk previous = mChunks.get(chunkIndex - 1);
+        if (previous.mSize == 0) {
+            mEmptyChunks--;
+        }
+        System.arraycopy(chunk.mBinders, 0, previous.mBinders, previous.mSize, count);
+        System.arraycopy(chunk.mViewTypes, 0, previous.mViewTypes, previous.mSize, count);
+        int rest = chunk.mSize - count;
+        System.arraycopy(chunk.mBinders, count, chunk.mBinders, 0, rest);
+        System.arraycopy(chunk.mViewTypes, count, chunk.mViewTypes, 0, rest);
+        Arrays.fill(chunk.mBinders, rest, chunk.mSize, null);
+        chunk.mSize = rest;
+        previous.mSize += count;
+        if (chunk.mSize == 0) {
+            mEmptyChunks++;
+        }
+        mChunkSizes.add(chunkIndex - 1, count);
+        mChunkSizes.add(chunkIndex, -count);
+    }
+
+    /**
+     * Move the top half of a full chunk into a new chunk after it. Renumbers every chunk, so the
+     * empty chunks are dropped at the same time
+     */
+    private void splitChunk(int chunkIndex) {
+        Chunk chunk = mChunks.get(chunkIndex);
+        Chunk next = new Chunk();
+        int half = chunk.mSize / 2;
+        next.mSize = chunk.mSize - half;
+        System.arraycopy(chunk.mBinders, half, next.mBinders, 0, next.mSize);
+        System.arraycopy(chunk.mViewTypes, half, next.mViewTypes, 0, next.mSize);
+        for (int i = half; i < chunk.mSize; i++) {
+            chunk.mBinders[i] = null;
+        }
+        chunk.mSize = half;
+        mChunks.add(chunkIndex + 1, next);
+        removeEmptyChunks();
+    }
+
+    /**
+     * Drop the empty chunks and renumber the rest. O(n / CHUNK_CAPACITY)
+     */
+    private void removeEmptyChunks() {
+        if (mEmptyChunks > 0) {
+            int kept = 0;
+            for (int i = 0; i < mChunks.size(); i++) {
+                Chunk chunk = mChunks.get(i);
+                if (chunk.mSize > 0) {
+                    mChunks.set(kept++, chunk);
+                }
+            }
+            mChunks.subList(kept, mChunks.size()).clear();
+            mEmptyChunks = 0;
+        }
+        rebuildIndex();
+    }
+
+    private void rebuildIndex() {
+        int count = mChunks.size();
+        if (mSizesScratch.length < count) {
+            mSizesScratch = new int[Math.max(count, mSizesScratch.length * 2)];
+        }
+        for (int i = 0; i < count; i++) {
+            mSizesScratch[i] = mChunks.get(i).mSize;
+        }
+        mChunkSizes.reset(mSizesScratch, count);
+        mCachedChunk = -1;
+    }
+
+    private void checkPosition(int position) {
+        if (position < 0 || position >= mSize) {
+            throw new IndexOutOfBoundsException("position: " + position + " invalid. " +
+                    "Size is " + mSize);
+        }
+    }
+
+    private static final class Chunk {
+        final Object[] mBinders = new Object[CHUNK_CAPACITY];
+        final int[] mViewTypes = new int[CHUNK_CAPACITY];
+        int mSize;
+    }
+
+}
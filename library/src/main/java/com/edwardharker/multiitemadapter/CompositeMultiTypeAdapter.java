@@ -0,0 +1,388 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Shows several MultiTypeAdapters one after the other in a single RecyclerView, such as the
+ * independently updated sections of a screen. Each adapter keeps its own creators and binders and
+ * its changes are passed on with its position in the composite added.
+ * <p/>
+ * Finding the adapter for a position is O(log n) in the number of adapters. View types used by
+ * more than one adapter are given a different view type in the composite, so adapters don't need
+ * to know about each other's view types. Stable ids are passed on as they are, so they are only
+ * used if asked for with {@link Builder#stableIds(boolean)}
+ */
+public final class CompositeMultiTypeAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+
+    private final List<MultiTypeAdapter> mAdapters;
+
+    /**
+     * The item count of each adapter, as of the last change it notified
+     */
+    private final FenwickTree mItemCounts = new FenwickTree();
+
+    /**
+     * For each adapter, maps its view types to the view types of the composite
+     */
+    private final SparseIntArray[] mViewTypes;
+
+    /**
+     * Maps the view types of the composite back to the index of the adapter and its view type
+     */
+    private final SparseIntArray mViewTypeAdapters = new SparseIntArray();
+    private final SparseIntArray mLocalViewTypes = new SparseIntArray();
+
+    /**
+     * The next view type to give a view type that is already used by another adapter. Counts down
+     * from the largest int, as view types are usually small
+     */
+    private int mNextRemappedViewType = Integer.MAX_VALUE;
+
+    private CompositeMultiTypeAdapter(Builder builder) {
+        mAdapters = Collections.unmodifiableList(new ArrayList<>(builder.mAdapters));
+        mViewTypes = new SparseIntArray[mAdapters.size()];
+        int[] itemCounts = new int[mAdapters.size()];
+        for (int i = 0; i < mAdapters.size(); i++) {
+            MultiTypeAdapter adapter = mAdapters.get(i);
+            adapter.setParent(this);
+            mViewTypes[i] = new SparseIntArray();
+            itemCounts[i] = adapter.getItemCount();
+            adapter.registerAdapterDataObserver(new AdapterObserver(i));
+        }
+        mItemCounts.reset(itemCounts, itemCounts.length);
+        setHasStableIds(builder.mStableIds);
+    }
+
+    /**
+     * Get the adapters, in the order they are shown
+     *
+     * @return the adapters
+     */
+    @NonNull
+    public List<MultiTypeAdapter> getAdapters() {
+        return mAdapters;
+    }
+
+    /**
+     * Get the adapter that shows a position
+     *
+     * @param position the position in the composite
+     * @return the adapter, or null if nothing is at that position
+     */
+    @Nullable
+    public MultiTypeAdapter getAdapter(int position) {
+        if (position < 0 || position >= getItemCount()) {
+            return null;
+        }
+        return mAdapters.get(mItemCounts.indexOf(position));
+    }
+
+    /**
+     * Get the position within its adapter of a position in the composite
+     *
+     * @param position the position in the composite
+     * @return the position in the adapter returned by {@link #getAdapter(int)}, or
+     * {@link RecyclerView#NO_POSITION} if nothing is at that position
+     */
+    public int getLocalPosition(int position) {
+        if (position < 0 || position >= getItemCount()) {
+            return RecyclerView.NO_POSITION;
+        }
+        return position - mItemCounts.prefixSum(mItemCounts.indexOf(position));
+    }
+
+    /**
+     * Get the position in the composite of a position within one of its adapters
+     *
+     * @param adapter       the adapter
+     * @param localPosition the position in the adapter
+     * @return the position in the composite
+     * @throws IllegalArgumentException if the adapter isn't part of the composite
+     */
+    public int getPosition(@NonNull MultiTypeAdapter adapter, int localPosition) {
+        return mItemCounts.prefixSum(indexOf(adapter)) + localPosition;
+    }
+
+    @Override
+    public int getItemCount() {
+        return mItemCounts.total();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        int index = adapterIndexOf(position);
+        int localPosition = position - mItemCounts.prefixSum(index);
+        return getViewType(index, mAdapters.get(index).getItemViewType(localPosition));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        int index = adapterIndexOf(position);
+        return mAdapters.get(index).getItemId(position - mItemCounts.prefixSum(index));
+    }
+
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        int index = mViewTypeAdapters.get(viewType, -1);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown viewType: " + viewType);
+        }
+        return mAdapters.get(index).onCreateViewHolder(parent, mLocalViewTypes.get(viewType));
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        int index = adapterIndexOf(position);
+        mAdapters.get(index).onBindViewHolder(holder, position - mItemCounts.prefixSum(index));
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position,
+                                 List<Object> payloads) {
+        int index = adapterIndexOf(position);
+        mAdapters.get(index).onBindViewHolder(holder, position - mItemCounts.prefixSum(index),
+                payloads);
+    }
+
+    @Override
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        adapterFor(holder).onViewRecycled(holder);
+    }
+
+    @Override
+    public boolean onFailedToRecycleView(RecyclerView.ViewHolder holder) {
+        return adapterFor(holder).onFailedToRecycleView(holder);
+    }
+
+    @Override
+    public void onViewAttachedToWindow(RecyclerView.ViewHolder holder) {
+        adapterFor(holder).onViewAttachedToWindow(holder);
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(RecyclerView.ViewHolder holder) {
+        adapterFor(holder).onViewDetachedFromWindow(holder);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        for (MultiTypeAdapter adapter : mAdapters) {
+            adapter.onAttachedToRecyclerView(recyclerView);
+        }
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        for (MultiTypeAdapter adapter : mAdapters) {
+            adapter.onDetachedFromRecyclerView(recyclerView);
+        }
+    }
+
+    /**
+     * Get the position within an adapter of a position in the composite
+     *
+     * @return the position, or {@link RecyclerView#NO_POSITION} if the position isn't in the
+     * adapter
+     */
+    int getLocalPosition(MultiTypeAdapter adapter, int position) {
+        if (position == RecyclerView.NO_POSITION) {
+            return RecyclerView.NO_POSITION;
+        }
+        int index = indexOf(adapter);
+        int start = mItemCounts.prefixSum(index);
+        if (position < start || position >= start + mItemCounts.get(index)) {
+            return RecyclerView.NO_POSITION;
+        }
+        return position - start;
+    }
+
+    /**
+     * Get the composite's view type for one of an adapter's view types, giving it one if it
+     * hasn't got one yet. It is the same as the adapter's view type unless another adapter uses
+     * that view type
+     */
+    int getViewType(MultiTypeAdapter adapter, int localViewType) {
+        return getViewType(indexOf(adapter), localViewType);
+    }
+
+    /**
+     * Get the adapter's view type for one of the composite's view types
+     */
+    int getLocalViewType(int viewType) {
+        return mLocalViewTypes.get(viewType);
+    }
+
+    private int getViewType(int index, int localViewType) {
+        SparseIntArray viewTypes = mViewTypes[index];
+        int found = viewTypes.indexOfKey(localViewType);
+        if (found >= 0) {
+            return viewTypes.valueAt(found);
+        }
+        int viewType = localViewType;
+        if (mViewTypeAdapters.indexOfKey(viewType) >= 0) {
+            // taken by another adapter
+            do {
+                viewType = mNextRemappedViewType--;
+            } while (mViewTypeAdapters.indexOfKey(viewType) >= 0);
+        }
+        viewTypes.put(localViewType, viewType);
+        mViewTypeAdapters.put(viewType, index);
+        mLocalViewTypes.put(viewType, localViewType);
+        return viewType;
+    }
+
+    private int adapterIndexOf(int position) {
+        if (position < 0 || position >= getItemCount()) {
+            throw new IndexOutOfBoundsException("position: " + position
+                    + " invalid. Item count is " + getItemCount());
+        }
+        return mItemCounts.indexOf(position);
+    }
+
+    private MultiTypeAdapter adapterFor(RecyclerView.ViewHolder holder) {
+        return mAdapters.get(mViewTypeAdapters.get(holder.getItemViewType()));
+    }
+
+    private int indexOf(MultiTypeAdapter adapter) {
+        int index = mAdapters.indexOf(adapter);
+        if (index < 0) {
+            throw new IllegalArgumentException(adapter + " is not part of this composite");
+        }
+        return index;
+    }
+
+    /**
+     * Passes on an adapter's changes with its start position added
+     */
+    private final class AdapterObserver extends RecyclerView.AdapterDataObserver {
+
+        private final int mIndex;
+
+        AdapterObserver(int index) {
+            mIndex = index;
+        }
+
+        @Override
+        public void onChanged() {
+            mItemCounts.add(mIndex, mAdapters.get(mIndex).getItemCount()
+                    - mItemCounts.get(mIndex));
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            onItemRangeChanged(positionStart, itemCount, null);
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+            notifyItemRangeChanged(start() + positionStart, itemCount, payload);
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mItemCounts.add(mIndex, itemCount);
+            notifyItemRangeInserted(start() + positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mItemCounts.add(mIndex, -itemCount);
+            notifyItemRangeRemoved(start() + positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            if (itemCount != 1) {
+                // RecyclerView only moves one item at a time
+                notifyDataSetChanged();
+                return;
+            }
+            int start = start();
+            notifyItemMoved(start + fromPosition, start + toPosition);
+        }
+
+        private int start() {
+            return mItemCounts.prefixSum(mIndex);
+        }
+    }
+
+    /**
+     * Builder used to create the composite adapter
+     */
+    public final static class Builder {
+
+        private final List<MultiTypeAdapter> mAdapters = new ArrayList<>();
+        private boolean mStableIds;
+
+        /**
+         * Add an adapter after the ones already added. An adapter can only be part of one
+         * composite, and can't use {@link MultiTypeAdapter.Builder#recycledViewPool},
+         * {@link MultiTypeAdapter.Builder#autoTuneRecycledViews(int)} or
+         * {@link MultiTypeAdapter.Builder#prewarm(ViewType, int)}, as they work on the
+         * RecyclerView's pool by the adapter's own view types
+         *
+         * @param adapter the adapter to add
+         * @return this for method chaining
+         */
+        public Builder addAdapter(@NonNull MultiTypeAdapter adapter) {
+            if (adapter == null) {
+                throw new NullPointerException("adapter cannot be null");
+            }
+            mAdapters.add(adapter);
+            return this;
+        }
+
+        /**
+         * Use the adapters' stable ids as the composite's. The ids are passed on as they are, so
+         * they must be unique across all of the adapters, not just within each one. Every adapter
+         * must use stable ids, see {@link MultiTypeAdapter.Builder#stableIds(boolean)}
+         *
+         * @param stableIds true to use stable ids. Defaults to false
+         * @return this for method chaining
+         */
+        public Builder stableIds(boolean stableIds) {
+            mStableIds = stableIds;
+            return this;
+        }
+
+        /**
+         * Build the composite adapter. Every adapter is checked before any of them are added, so
+         * if this throws they can still be used elsewhere
+         *
+         * @return the newly created composite adapter
+         * @throws IllegalStateException    if an adapter is already part of a composite, or stable
+         *                                  ids are used and an adapter doesn't use them
+         * @throws IllegalArgumentException if an adapter was added more than once, or uses a
+         *                                  shared pool, auto tuning or prewarming
+         */
+        public CompositeMultiTypeAdapter build() {
+            Set<MultiTypeAdapter> adapters = Collections.newSetFromMap(
+                    new IdentityHashMap<MultiTypeAdapter, Boolean>());
+            for (MultiTypeAdapter adapter : mAdapters) {
+                if (!adapters.add(adapter)) {
+                    throw new IllegalArgumentException(adapter + " was added more than once");
+                }
+                adapter.checkCanJoinComposite();
+                if (mStableIds && !adapter.hasStableIds()) {
+                    throw new IllegalStateException(adapter + " doesn't use stable ids");
+                }
+            }
+            return new CompositeMultiTypeAdapter(this);
+        }
+
+    }
+
+}
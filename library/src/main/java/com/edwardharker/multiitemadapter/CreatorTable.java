@@ -0,0 +1,90 @@
+package com.edwardharker.multiitemadapter;
+
+import android.util.SparseArray;
+
+import java.util.List;
+
+/**
+ * Looks up the creator for a view type.
+ * <p/>
+ * View types are usually enum ordinals, so they are small and close together. In that case the
+ * creators are stored in an array indexed by view type. Otherwise they are stored in an
+ * {@link ImmutableSparseArray}, which is a binary search.
+ */
+final class CreatorTable {
+
+    /**
+     * A dense array is used as long as no more than this many slots per creator would be empty
+     */
+    private static final int MAX_EMPTY_SLOTS_PER_CREATOR = 2;
+
+    private final MultiTypeCreator[] mDenseCreators;
+    private final int mMinType;
+    private final ImmutableSparseArray<MultiTypeCreator> mSparseCreators;
+
+    private CreatorTable(MultiTypeCreator[] denseCreators, int minType,
+                         ImmutableSparseArray<MultiTypeCreator> sparseCreators) {
+        mDenseCreators = denseCreators;
+        mMinType = minType;
+        mSparseCreators = sparseCreators;
+    }
+
+    /**
+     * Create a table for the creators
+     *
+     * @param creators the creators to look up
+     * @return the table
+     * @throws IllegalStateException if more than one creator is given for a view type
+     */
+    static CreatorTable create(List<MultiTypeCreator> creators) {
+        SparseArray<MultiTypeCreator> sorted = new SparseArray<>(creators.size());
+        for (MultiTypeCreator creator : creators) {
+            int type = creator.getViewType().getType();
+            MultiTypeCreator existing = sorted.get(type);
+            if (existing != null) {
+                throw new IllegalStateException("View type " + type + " has more than one "
+                        + "creator: " + existing + " and " + creator);
+            }
+            sorted.put(type, creator);
+        }
+        int size = sorted.size();
+        if (size == 0) {
+            return new CreatorTable(new MultiTypeCreator[0], 0, null);
+        }
+        int minType = sorted.keyAt(0);
+        long span = (long) sorted.keyAt(size - 1) - minType + 1;
+        if (span <= (long) size * (1 + MAX_EMPTY_SLOTS_PER_CREATOR)) {
+            MultiTypeCreator[] dense = new MultiTypeCreator[(int) span];
+            for (int i = 0; i < size; i++) {
+                dense[sorted.keyAt(i) - minType] = sorted.valueAt(i);
+            }
+            return new CreatorTable(dense, minType, null);
+        }
+        return new CreatorTable(null, 0, new ImmutableSparseArray<>(sorted));
+    }
+
+    /**
+     * Get the creator for the view type
+     *
+     * @param viewType the view type
+     * @return the creator or null if there isn't one for the view type
+     */
+    MultiTypeCreator get(int viewType) {
+        if (mDenseCreators != null) {
+            int index = viewType - mMinType;
+            if (index < 0 || index >= mDenseCreators.length) {
+                return null;
+            }
+            return mDenseCreators[index];
+        }
+        return mSparseCreators.get(viewType);
+    }
+
+    /**
+     * @return true if the creators are stored in an array indexed by view type
+     */
+    boolean isDense() {
+        return mDenseCreators != null;
+    }
+
+}
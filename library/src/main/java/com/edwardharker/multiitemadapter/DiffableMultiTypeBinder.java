@@ -0,0 +1,33 @@
+package com.edwardharker.multiitemadapter;
+
+
+import android.support.annotation.NonNull;
+
+/**
+ * A MultiTypeBinder that can be compared with other binders.
+ * Used by {@link MultiTypeAdapter#submitList(java.util.List)} to work out the minimal set of
+ * changes between the old and new list. Binders that don't implement this are only considered
+ * the same item if they are equal, and are always rebound if they are not the same instance.
+ */
+public interface DiffableMultiTypeBinder extends MultiTypeBinder {
+
+    /**
+     * Check whether this binder and the other binder represent the same item, usually by
+     * comparing ids. Called on a background thread.
+     *
+     * @param other the binder to compare to. Always has the same ViewType as this binder
+     * @return true if both binders represent the same item
+     */
+    boolean isSameItemAs(@NonNull MultiTypeBinder other);
+
+    /**
+     * Check whether this binder and the other binder would bind the same data to the view holder.
+     * Only called if {@link #isSameItemAs(MultiTypeBinder)} returned true. Called on a background
+     * thread.
+     *
+     * @param other the binder to compare to. Always has the same ViewType as this binder
+     * @return true if the contents of the item haven't changed
+     */
+    boolean hasSameContentAs(@NonNull MultiTypeBinder other);
+
+}
@@ -0,0 +1,142 @@
+package com.edwardharker.multiitemadapter;
+
+import java.util.Arrays;
+
+/**
+ * A Fenwick (binary indexed) tree of non negative ints. Updating a value, summing a prefix and
+ * finding the index that contains a position are all O(log n)
+ */
+final class FenwickTree {
+
+    /**
+     * One based, mTree[i] holds the sum of the values in (i - lowbit(i), i]
+     */
+    private int[] mTree;
+    private int mSize;
+
+    FenwickTree() {
+        mTree = new int[1];
+    }
+
+    /**
+     * Replace all the values in the tree. O(n)
+     *
+     * @param values the new values
+     * @param count  the number of values to use from the start of the array
+     */
+    void reset(int[] values, int count) {
+        if (mTree.length < count + 1) {
+            mTree = new int[count + 1];
+        }
+        mSize = count;
+        for (int i = 1; i <= count; i++) {
+            mTree[i] = values[i - 1];
+        }
+        for (int i = 1; i <= count; i++) {
+            int parent = i + (i & -i);
+            if (parent <= count) {
+                mTree[parent] += mTree[i];
+            }
+        }
+    }
+
+    /**
+     * Add a value after the last one. O(log n), amortized over growing the tree
+     */
+    void append(int value) {
+        int index = mSize + 1;
+        if (mTree.length < index + 1) {
+            mTree = Arrays.copyOf(mTree, Math.max(index + 1, mTree.length * 2));
+        }
+        // the new node also covers the values in (index - lowbit(index), index)
+        mTree[index] = value + prefixSum(mSize) - prefixSum(index - (index & -index));
+        mSize = index;
+    }
+
+    /**
+     * Remove the last value. O(1), as no other node covers it
+     */
+    void removeLast() {
+        if (mSize == 0) {
+            throw new IndexOutOfBoundsException("The tree is empty");
+        }
+        mSize--;
+    }
+
+    /**
+     * @return the number of values in the tree
+     */
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * Add delta to the value at the index
+     */
+    void add(int index, int delta) {
+        checkIndex(index);
+        for (int i = index + 1; i <= mSize; i += i & -i) {
+            mTree[i] += delta;
+        }
+    }
+
+    /**
+     * @return the value at the index
+     */
+    int get(int index) {
+        checkIndex(index);
+        return prefixSum(index + 1) - prefixSum(index);
+    }
+
+    /**
+     * @return the sum of the values before the index
+     */
+    int prefixSum(int index) {
+        if (index < 0 || index > mSize) {
+            throw new IndexOutOfBoundsException("index: " + index + " invalid. Size is " + mSize);
+        }
+        int sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += mTree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return the sum of all the values
+     */
+    int total() {
+        return prefixSum(mSize);
+    }
+
+    /**
+     * Treating each value as the length of a run of positions, find the index whose run contains
+     * the position. Runs of length zero never contain a position
+     *
+     * @param position the position to find, from zero
+     * @return the index i where {@code prefixSum(i) <= position < prefixSum(i + 1)},
+     * or size() if position is at or after the total
+     */
+    int indexOf(int position) {
+        if (position < 0) {
+            throw new IndexOutOfBoundsException("position: " + position + " invalid");
+        }
+        int index = 0;
+        int remaining = position;
+        for (int step = Integer.highestOneBit(Math.max(mSize, 1)); step > 0; step >>= 1) {
+            int next = index + step;
+            if (next <= mSize && mTree[next] <= remaining) {
+                index = next;
+                remaining -= mTree[next];
+            }
+        }
+        return index;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index: " + index + " invalid. Size is " + mSize);
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.v7.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Works out whether the RecyclerView is being flung faster than the threshold, and keeps the view
+ * holders that were given a light bind while it was. When the fling slows below the threshold or
+ * stops, the callback is given those view holders so they can be fully bound.
+ * <p/>
+ * Velocity is estimated from the distance and time between scroll callbacks. It only counts as a
+ * fling while the RecyclerView is settling, so dragging quickly gets full binds.
+ */
+final class FlingTracker extends RecyclerView.OnScrollListener {
+
+    /**
+     * The payload used to ask for a full bind of a view holder that had a light bind
+     */
+    static final Object FULL_BIND = new Object();
+
+    interface Callback {
+
+        /**
+         * The fling has slowed down, these view holders had light binds and haven't been bound
+         * again or recycled since
+         */
+        void onFlingEnded(List<RecyclerView.ViewHolder> lightlyBound);
+
+    }
+
+    private final int mThresholdPixelsPerSecond;
+    private final ThreadHelper mThreadHelper;
+    private final Callback mCallback;
+
+    private final Set<RecyclerView.ViewHolder> mLightlyBound =
+            Collections.newSetFromMap(new IdentityHashMap<RecyclerView.ViewHolder, Boolean>());
+
+    private int mScrollState = RecyclerView.SCROLL_STATE_IDLE;
+    private long mLastScrollNanos;
+    private float mVelocity;
+    private boolean mFlinging;
+
+    FlingTracker(int thresholdPixelsPerSecond, ThreadHelper threadHelper, Callback callback) {
+        mThresholdPixelsPerSecond = thresholdPixelsPerSecond;
+        mThreadHelper = threadHelper;
+        mCallback = callback;
+    }
+
+    /**
+     * @return true if binders should be given a light bind
+     */
+    boolean isFlinging() {
+        return mFlinging;
+    }
+
+    void onLightBound(RecyclerView.ViewHolder holder) {
+        mLightlyBound.add(holder);
+    }
+
+    /**
+     * The view holder has been fully bound or recycled so doesn't need a full bind any more
+     */
+    void onFullyBoundOrRecycled(RecyclerView.ViewHolder holder) {
+        if (!mLightlyBound.isEmpty()) {
+            mLightlyBound.remove(holder);
+        }
+    }
+
+    /**
+     * The adapter has left the RecyclerView, forget the view holders and the scroll so far
+     */
+    void reset() {
+        mLightlyBound.clear();
+        mScrollState = RecyclerView.SCROLL_STATE_IDLE;
+        mLastScrollNanos = 0;
+        mVelocity = 0;
+        mFlinging = false;
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        mScrollState = newState;
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            mVelocity = 0;
+            mLastScrollNanos = 0;
+        }
+        update();
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        onScrolled(dx, dy, System.nanoTime());
+    }
+
+    void onScrolled(int dx, int dy, long nowNanos) {
+        if (mLastScrollNanos != 0 && nowNanos > mLastScrollNanos) {
+            float distance = (float) Math.sqrt((double) dx * dx + (double) dy * dy);
+            float velocity = distance * 1e9f / (nowNanos - mLastScrollNanos);
+            // smooth out uneven frame times
+            mVelocity = mVelocity == 0 ? velocity : (mVelocity + velocity) / 2;
+        }
+        mLastScrollNanos = nowNanos;
+        update();
+    }
+
+    private void update() {
+        boolean flinging = mScrollState == RecyclerView.SCROLL_STATE_SETTLING
+                && mVelocity > mThresholdPixelsPerSecond;
+        if (mFlinging && !flinging) {
+            // scroll callbacks can come in the middle of a scroll, when notifying isn't allowed
+            mThreadHelper.postToUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    if (mFlinging || mLightlyBound.isEmpty()) {
+                        return;
+                    }
+                    List<RecyclerView.ViewHolder> lightlyBound = new ArrayList<>(mLightlyBound);
+                    mLightlyBound.clear();
+                    mCallback.onFlingEnded(lightlyBound);
+                }
+            });
+        }
+        mFlinging = flinging;
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.edwardharker.multiitemadapter;
+
+import java.util.ArrayDeque;
+
+/**
+ * Applies large changes a slice at a time, one slice per frame, so that no frame spends more than
+ * the budget on them. Changes are applied in the order they were started. Other changes to the
+ * items can be made between slices, the changes are told where the items have moved so they can
+ * carry on from the right positions. Everything happens on the UI thread.
+ */
+final class FrameSlicer {
+
+    /**
+     * A quarter of a frame at 60 frames per second, leaving the rest for layout and drawing
+     */
+    static final long DEFAULT_FRAME_BUDGET_NANOS = 4000000L;
+
+    /**
+     * Changes should check the deadline after about this many items
+     */
+    static final int ITEMS_BETWEEN_CHECKS = 64;
+
+    /**
+     * The deadline used to apply a change all at once
+     */
+    static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private static final Runnable NO_OP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    interface Change {
+
+        /**
+         * Apply as much of the change as possible before the deadline, and at least some of it
+         *
+         * @param deadlineNanos the System.nanoTime() to stop by
+         * @return true if the whole change has been applied
+         */
+        boolean applySlice(long deadlineNanos);
+
+        /**
+         * Items have been inserted, by this change or any other
+         */
+        void onInserted(int position, int count);
+
+        /**
+         * Items have been removed, by this change or any other
+         */
+        void onRemoved(int position, int count);
+
+    }
+
+    private final ThreadHelper mThreadHelper;
+    private final long mFrameBudgetNanos;
+    private final ArrayDeque<Change> mChanges = new ArrayDeque<>();
+    private final ArrayDeque<Runnable> mOnCompletes = new ArrayDeque<>();
+
+    private boolean mFramePosted;
+
+    private final Runnable mFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mFramePosted = false;
+            applyUntil(System.nanoTime() + mFrameBudgetNanos);
+            if (!mChanges.isEmpty()) {
+                postFrame();
+            }
+        }
+    };
+
+    FrameSlicer(ThreadHelper threadHelper, long frameBudgetNanos) {
+        mThreadHelper = threadHelper;
+        mFrameBudgetNanos = frameBudgetNanos;
+    }
+
+    /**
+     * Start applying the change from the next frame
+     *
+     * @param change     the change
+     * @param onComplete run once the whole change has been applied, may be null
+     */
+    void start(Change change, Runnable onComplete) {
+        mChanges.addLast(change);
+        mOnCompletes.addLast(onComplete != null ? onComplete : NO_OP);
+        postFrame();
+    }
+
+    /**
+     * Apply all of the changes that haven't been applied yet, now
+     */
+    void finishAll() {
+        while (!mChanges.isEmpty()) {
+            applyUntil(NO_DEADLINE);
+        }
+    }
+
+    /**
+     * Tell the changes that haven't been fully applied that items have been inserted
+     */
+    void onInserted(int position, int count) {
+        for (Change change : mChanges) {
+            change.onInserted(position, count);
+        }
+    }
+
+    /**
+     * Tell the changes that haven't been fully applied that items have been removed
+     */
+    void onRemoved(int position, int count) {
+        for (Change change : mChanges) {
+            change.onRemoved(position, count);
+        }
+    }
+
+    /**
+     * @return true if there are changes that haven't been fully applied
+     */
+    boolean isApplying() {
+        return !mChanges.isEmpty();
+    }
+
+    private void applyUntil(long deadlineNanos) {
+        while (!mChanges.isEmpty()) {
+            if (mChanges.peekFirst().applySlice(deadlineNanos)) {
+                mChanges.removeFirst();
+                // the completion may start or finish other changes, so run it last
+                mOnCompletes.removeFirst().run();
+            }
+            if (isPast(deadlineNanos)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if the deadline has passed
+     */
+    static boolean isPast(long deadlineNanos) {
+        return deadlineNanos != NO_DEADLINE && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    private void postFrame() {
+        if (!mFramePosted) {
+            mFramePosted = true;
+            mThreadHelper.postToNextFrame(mFrameRunnable);
+        }
+    }
+
+}
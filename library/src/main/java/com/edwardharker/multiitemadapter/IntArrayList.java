@@ -0,0 +1,112 @@
+package com.edwardharker.multiitemadapter;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of ints that doesn't box its values
+ */
+final class IntArrayList {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] mValues;
+    private int mSize;
+
+    IntArrayList() {
+        mValues = new int[MIN_CAPACITY];
+    }
+
+    /**
+     * @return the number of values in the list
+     */
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * Get the value at the index
+     *
+     * @throws IndexOutOfBoundsException if {@code index < 0 || index >= size()}
+     */
+    int get(int index) {
+        checkIndex(index);
+        return mValues[index];
+    }
+
+    /**
+     * Replace the value at the index
+     *
+     * @throws IndexOutOfBoundsException if {@code index < 0 || index >= size()}
+     */
+    void set(int index, int value) {
+        checkIndex(index);
+        mValues[index] = value;
+    }
+
+    /**
+     * Insert a value at the index, shifting later values up
+     *
+     * @throws IndexOutOfBoundsException if {@code index < 0 || index > size()}
+     */
+    void add(int index, int value) {
+        insertSpace(index, 1);
+        mValues[index] = value;
+    }
+
+    /**
+     * Make room for count values at the index, shifting later values up.
+     * The new values are undefined until they are set
+     *
+     * @throws IndexOutOfBoundsException if {@code index < 0 || index > size()}
+     */
+    void insertSpace(int index, int count) {
+        if (index < 0 || index > mSize) {
+            throw new IndexOutOfBoundsException("index: " + index + " invalid. Size is " + mSize);
+        }
+        if (mSize + count > mValues.length) {
+            mValues = Arrays.copyOf(mValues,
+                    Math.max(mSize + count, mValues.length + (mValues.length >> 1)));
+        }
+        System.arraycopy(mValues, index, mValues, index + count, mSize - index);
+        mSize += count;
+    }
+
+    /**
+     * Remove the value at the index, shifting later values down
+     *
+     * @throws IndexOutOfBoundsException if {@code index < 0 || index >= size()}
+     */
+    int remove(int index) {
+        int value = get(index);
+        removeRange(index, index + 1);
+        return value;
+    }
+
+    /**
+     * Remove the values from {@code fromIndex} inclusive to {@code toIndex} exclusive
+     *
+     * @throws IndexOutOfBoundsException if the range is outside the list
+     */
+    void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || toIndex > mSize || fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("range: " + fromIndex + " to " + toIndex
+                    + " invalid. Size is " + mSize);
+        }
+        System.arraycopy(mValues, toIndex, mValues, fromIndex, mSize - toIndex);
+        mSize -= toIndex - fromIndex;
+    }
+
+    /**
+     * Remove all values, keeping the capacity
+     */
+    void clear() {
+        mSize = 0;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index: " + index + " invalid. Size is " + mSize);
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * A MultiTypeBinder with a cheaper bind to use while the list is being flung, such as leaving out
+ * images. See {@link MultiTypeAdapter.Builder#lightBindAboveVelocity(int)}
+ * <p/>
+ * Once the fling slows down, view holders that were bound with
+ * {@link #onBindLightViewHolder(RecyclerView.ViewHolder)} are bound again with
+ * {@link #onBindViewHolder(RecyclerView.ViewHolder)}, without being recreated or animated.
+ */
+public interface LightMultiTypeBinder extends MultiTypeBinder {
+
+    /**
+     * Bind just enough for the view holder to look right while it flies past
+     *
+     * @param holder the view holder to bind
+     */
+    void onBindLightViewHolder(RecyclerView.ViewHolder holder);
+
+}
@@ -0,0 +1,309 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A {@link MetricsListener} that keeps counts and timing histograms for each view type, and finds
+ * the view types whose creates or binds took longer than a frame budget.
+ * <p/>
+ * Timings are counted in power of two buckets, so recording one is a few array writes and memory
+ * doesn't grow with the number of timings. Percentiles are therefore only accurate to within a
+ * factor of two. Like the adapter, this should only be used from the UI thread.
+ */
+public final class MetricsAggregator implements MetricsListener {
+
+    /**
+     * The budget for a single frame at 60 frames per second
+     */
+    public static final long DEFAULT_FRAME_BUDGET_NANOS = 16666667L;
+
+    private final long mFrameBudgetNanos;
+    private final SparseArray<TypeMetrics> mMetrics = new SparseArray<>();
+
+    public MetricsAggregator() {
+        this(DEFAULT_FRAME_BUDGET_NANOS);
+    }
+
+    /**
+     * @param frameBudgetNanos creates and binds that take longer than this count as over budget
+     */
+    public MetricsAggregator(long frameBudgetNanos) {
+        if (frameBudgetNanos <= 0) {
+            throw new IllegalArgumentException("frameBudgetNanos must be positive");
+        }
+        mFrameBudgetNanos = frameBudgetNanos;
+    }
+
+    @Override
+    public void onViewHolderCreated(@NonNull ViewType viewType, long durationNanos) {
+        metricsFor(viewType).mCreates.record(durationNanos, mFrameBudgetNanos);
+    }
+
+    @Override
+    public void onViewHolderBound(@NonNull ViewType viewType, long durationNanos) {
+        metricsFor(viewType).mBinds.record(durationNanos, mFrameBudgetNanos);
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ViewType viewType) {
+        metricsFor(viewType).mRecycleCount++;
+    }
+
+    @Override
+    public void onViewAttachedToWindow(@NonNull ViewType viewType) {
+        metricsFor(viewType).mAttachCount++;
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(@NonNull ViewType viewType) {
+        metricsFor(viewType).mDetachCount++;
+    }
+
+    /**
+     * @return the budget creates and binds are measured against
+     */
+    public long getFrameBudgetNanos() {
+        return mFrameBudgetNanos;
+    }
+
+    /**
+     * Get the metrics for a view type
+     *
+     * @param viewType the view type
+     * @return the metrics, or null if nothing has been recorded for the view type
+     */
+    @Nullable
+    public TypeMetrics getMetrics(@NonNull ViewType viewType) {
+        return mMetrics.get(viewType.getType());
+    }
+
+    /**
+     * Get the metrics for every view type that something has been recorded for
+     *
+     * @return the metrics in view type order
+     */
+    @NonNull
+    public List<TypeMetrics> getAllMetrics() {
+        List<TypeMetrics> all = new ArrayList<>(mMetrics.size());
+        for (int i = 0; i < mMetrics.size(); i++) {
+            all.add(mMetrics.valueAt(i));
+        }
+        return all;
+    }
+
+    /**
+     * Get the view types that had at least one create or bind over the frame budget
+     *
+     * @return the metrics for those view types, worst first
+     */
+    @NonNull
+    public List<TypeMetrics> getOverBudget() {
+        List<TypeMetrics> overBudget = new ArrayList<>();
+        for (int i = 0; i < mMetrics.size(); i++) {
+            TypeMetrics metrics = mMetrics.valueAt(i);
+            if (metrics.getOverBudgetCount() > 0) {
+                overBudget.add(metrics);
+            }
+        }
+        Collections.sort(overBudget, new Comparator<TypeMetrics>() {
+            @Override
+            public int compare(TypeMetrics lhs, TypeMetrics rhs) {
+                long lhsCount = lhs.getOverBudgetCount();
+                long rhsCount = rhs.getOverBudgetCount();
+                return lhsCount > rhsCount ? -1 : (lhsCount == rhsCount ? 0 : 1);
+            }
+        });
+        return overBudget;
+    }
+
+    /**
+     * Forget everything recorded so far
+     */
+    public void reset() {
+        mMetrics.clear();
+    }
+
+    private TypeMetrics metricsFor(ViewType viewType) {
+        TypeMetrics metrics = mMetrics.get(viewType.getType());
+        if (metrics == null) {
+            metrics = new TypeMetrics(viewType);
+            mMetrics.put(viewType.getType(), metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * Everything recorded for one view type
+     */
+    public static final class TypeMetrics {
+
+        private final ViewType mViewType;
+        private final Histogram mCreates = new Histogram();
+        private final Histogram mBinds = new Histogram();
+        private long mRecycleCount;
+        private long mAttachCount;
+        private long mDetachCount;
+
+        TypeMetrics(ViewType viewType) {
+            mViewType = viewType;
+        }
+
+        @NonNull
+        public ViewType getViewType() {
+            return mViewType;
+        }
+
+        /**
+         * @return the time taken to create view holders
+         */
+        @NonNull
+        public Histogram getCreateTimes() {
+            return mCreates;
+        }
+
+        /**
+         * @return the time taken to bind view holders
+         */
+        @NonNull
+        public Histogram getBindTimes() {
+            return mBinds;
+        }
+
+        public long getRecycleCount() {
+            return mRecycleCount;
+        }
+
+        public long getAttachCount() {
+            return mAttachCount;
+        }
+
+        public long getDetachCount() {
+            return mDetachCount;
+        }
+
+        /**
+         * @return the number of creates and binds that took longer than the frame budget
+         */
+        public long getOverBudgetCount() {
+            return mCreates.mOverBudgetCount + mBinds.mOverBudgetCount;
+        }
+
+        @Override
+        public String toString() {
+            return "TypeMetrics{viewType=" + mViewType
+                    + ", creates=" + mCreates
+                    + ", binds=" + mBinds
+                    + ", recycled=" + mRecycleCount
+                    + ", attached=" + mAttachCount
+                    + ", detached=" + mDetachCount
+                    + "}";
+        }
+    }
+
+    /**
+     * A histogram of timings. Bucket i counts timings of at least 2^(i-1) and less than 2^i
+     * nanoseconds
+     */
+    public static final class Histogram {
+
+        static final int BUCKET_COUNT = 40;
+
+        private final long[] mBuckets = new long[BUCKET_COUNT];
+        private long mCount;
+        private long mTotalNanos;
+        private long mMaxNanos;
+        private long mOverBudgetCount;
+
+        Histogram() {
+        }
+
+        void record(long nanos, long budgetNanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            mBuckets[bucketFor(nanos)]++;
+            mCount++;
+            mTotalNanos += nanos;
+            if (nanos > mMaxNanos) {
+                mMaxNanos = nanos;
+            }
+            if (nanos > budgetNanos) {
+                mOverBudgetCount++;
+            }
+        }
+
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getTotalNanos() {
+            return mTotalNanos;
+        }
+
+        public long getMaxNanos() {
+            return mMaxNanos;
+        }
+
+        public long getMeanNanos() {
+            return mCount == 0 ? 0 : mTotalNanos / mCount;
+        }
+
+        /**
+         * @return the number of timings that were longer than the frame budget
+         */
+        public long getOverBudgetCount() {
+            return mOverBudgetCount;
+        }
+
+        /**
+         * Get an upper bound for a percentile
+         *
+         * @param percentile between 0 and 100
+         * @return no more than twice the timing at the percentile, or 0 if nothing was recorded
+         */
+        public long getPercentileNanos(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile: " + percentile
+                        + " invalid. Must be between 0 and 100");
+            }
+            if (mCount == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(mCount * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank) {
+                    return Math.min(mMaxNanos, upperBound(i));
+                }
+            }
+            return mMaxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + mCount
+                    + ", meanNanos=" + getMeanNanos()
+                    + ", p90Nanos=" + getPercentileNanos(90)
+                    + ", maxNanos=" + mMaxNanos
+                    + ", overBudget=" + mOverBudgetCount
+                    + "}";
+        }
+
+        static int bucketFor(long nanos) {
+            return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(nanos));
+        }
+
+        private static long upperBound(int bucket) {
+            return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.annotation.NonNull;
+
+/**
+ * Told how long each view type takes to create and bind, and how often its views are recycled,
+ * attached and detached. Set with {@link MultiTypeAdapter.Builder#metricsListener(MetricsListener)}
+ * <p/>
+ * All methods are called on the UI thread, in the middle of layout, so they should return quickly.
+ * {@link MetricsAggregator} keeps histograms of the timings for each view type.
+ */
+public interface MetricsListener {
+
+    /**
+     * Called after a view holder has been created
+     *
+     * @param viewType      the view type of the view holder
+     * @param durationNanos how long the creator took
+     */
+    void onViewHolderCreated(@NonNull ViewType viewType, long durationNanos);
+
+    /**
+     * Called after a view holder has been bound, including binds with a payload
+     *
+     * @param viewType      the view type of the view holder
+     * @param durationNanos how long the binder took
+     */
+    void onViewHolderBound(@NonNull ViewType viewType, long durationNanos);
+
+    /**
+     * Called when a view holder has been recycled
+     *
+     * @param viewType the view type of the view holder
+     */
+    void onViewRecycled(@NonNull ViewType viewType);
+
+    /**
+     * Called when a view holder's view has been attached to the window
+     *
+     * @param viewType the view type of the view holder
+     */
+    void onViewAttachedToWindow(@NonNull ViewType viewType);
+
+    /**
+     * Called when a view holder's view has been detached from the window
+     *
+     * @param viewType the view type of the view holder
+     */
+    void onViewDetachedFromWindow(@NonNull ViewType viewType);
+
+}
@@ -1,17 +1,40 @@
 package com.edwardharker.multiitemadapter;
 
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.VisibleForTesting;
+import android.support.v4.os.TraceCompat;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
 import android.support.v7.widget.RecyclerView;
+import android.util.Log;
 import android.util.SparseArray;
+import android.util.SparseIntArray;
 import android.view.ViewGroup;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Adapter to use with MultiTypeBinders for creating a heterogeneous list
@@ -19,34 +42,381 @@ import java.util.List;
 public final class MultiTypeAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
     /**
-     * The items in the adapter
+     * Returned by {@link #getSectionForPosition(int)} for a position that isn't in a section
      */
-    private final List<MultiTypeBinder> mBinders = new ArrayList<>();
+    public static final int NO_SECTION = -1;
+
+    /**
+     * The stable id of the first placeholder while the adapter is backed by a page source, see
+     * {@link #setPageSource(BinderPageSource, MultiTypeBinder)}
+     */
+    public static final long PLACEHOLDER_ID = Long.MIN_VALUE;
+
+    /**
+     * Shared by all adapters that don't set their own executor. Created on first use
+     */
+    private static ExecutorService sDefaultBackgroundExecutor;
+
+    private static final String TAG = "MultiTypeAdapter";
+
+    /**
+     * Saved instance state kept in the state itself can't be larger than this. The whole of an
+     * activity's saved state has to fit in a transaction buffer of 1MB shared with everything
+     * else in the process
+     */
+    private static final int MAX_INLINE_STATE_BYTES = 64 * 1024;
+
+    /**
+     * The saved instance state files still being written, by path, so a restore in the same
+     * process can wait for them
+     */
+    private static final Map<String, CountDownLatch> sStateWrites = new HashMap<>();
+
+    /**
+     * Held while writing saved instance state, so an earlier write can't replace a later one to
+     * the same file, even from another adapter
+     */
+    private static final Object sStateLock = new Object();
+
+    /**
+     * The longest a restore waits on the UI thread for saved instance state still being written
+     */
+    private static final long MAX_STATE_WAIT_MS = 1000;
+
+    /**
+     * The items in the adapter along with their view types, so getItemViewType() doesn't need to
+     * call into the binder
+     */
+    private final BinderStore mStore;
+
+    /**
+     * Read only view of the items in the adapter
+     */
+    private final List<MultiTypeBinder> mBinders = new BinderStoreList();
+
+    /**
+     * Read only view of the items in the adapter, including data items
+     */
+    private final List<Object> mItems = new ItemStoreList();
+
+    /**
+     * The number of binders of each view type in the adapter
+     */
+    private final SparseIntArray mTypeCounts = new SparseIntArray();
 
     /**
      * Maps view types to the view types creator.
      */
-    private final ImmutableSparseArray<MultiTypeCreator> mViewCreators;
+    private final CreatorTable mViewCreators;
 
     private final ThreadHelper mThreadHelper;
 
+    private final Executor mBackgroundExecutor;
+
+    /**
+     * When true, extra (slow) checks are made on the binders after every change
+     */
+    private final boolean mDebug;
+
+    /**
+     * Incremented by every change to the binders. A submitList() diff is only applied if no other
+     * change has been made since it was started, so the most recent change always wins
+     */
+    private volatile int mGeneration;
+
+    /**
+     * The number of view holders of each view type to create before they are needed
+     */
+    private final SparseIntArray mPrewarmCounts;
+
+    /**
+     * The number of view holders of each view type still to create for each pool, so attaching
+     * again to a RecyclerView with the same pool carries on instead of creating them all again
+     */
+    private final Map<RecyclerView.RecycledViewPool, SparseIntArray> mPrewarmRemaining =
+            new WeakHashMap<>();
+
+    private ViewHolderPrewarmer mPrewarmer;
+
+    /**
+     * The number of view holders of each view type the pool should hold, where it isn't the
+     * RecyclerView default
+     */
+    private final SparseIntArray mMaxRecycledViews;
+
+    /**
+     * Pool shared with other adapters, or null to use the RecyclerView's own pool
+     */
+    private final SharedRecycledViewPool mSharedPool;
+
+    /**
+     * Grows and shrinks the pool while scrolling, or null if turned off
+     */
+    private final PoolAutoTuner mPoolAutoTuner;
+
+    /**
+     * Told about creates, binds, recycles, attaches and detaches, or null if not measuring
+     */
+    private final MetricsListener mMetricsListener;
+
+    /**
+     * Names the system trace sections, or null if not tracing
+     */
+    private final TraceSections mTraceSections;
+
+    /**
+     * Prepares binders in the background ahead of them being bound, or null if they're prepared
+     * when they're bound
+     */
+    private final BinderPreparer mPreparer;
+
+    /**
+     * Binds {@link AsyncMultiTypeBinder}s and keeps track of their loads
+     */
+    private final AsyncBinder mAsyncBinder;
+
+    /**
+     * Decides when to use light binds and upgrades them afterwards, or null if light binds are off
+     */
+    private final FlingTracker mFlingTracker;
+
+    /**
+     * Applies addAllAcrossFrames() and removeAllOfAcrossFrames() a slice per frame
+     */
+    private final FrameSlicer mFrameSlicer;
+
+    /**
+     * Writes and reads the binders of each view type that can be kept out of memory
+     */
+    private final ImmutableSparseArray<BinderCodec<?>> mCodecs;
+
+    /**
+     * Writes binders far from the bound position to disk, or null if they all stay in memory
+     */
+    private final BinderSpiller mSpiller;
+
+    /**
+     * Where saved instance state is written, or null if it's kept in the state
+     */
+    private final File mStateFile;
+
+    /**
+     * The composite this adapter is shown in, or null if it's shown on its own
+     */
+    private CompositeMultiTypeAdapter mParent;
+
+    private final int mPageSize;
+    private final int mPrefetchDistance;
+    private final int mMaxPagesInMemory;
+
+    /**
+     * Loads pages while the adapter is backed by a BinderPageSource, otherwise null
+     */
+    private PageLoader mPageLoader;
+
+    /**
+     * Shown for positions whose page hasn't been loaded
+     */
+    private MultiTypeBinder mPlaceholder;
+
+    /**
+     * Sends list updates straight to the RecyclerView
+     */
+    private final ListUpdateCallback mNotifyingCallback = new ListUpdateCallback() {
+        @Override
+        public void onInserted(int position, int count) {
+            checkStableIds();
+            notifyItemRangeInserted(position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            checkStableIds();
+            notifyItemRangeRemoved(position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            notifyItemMoved(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            checkStableIds();
+            notifyItemRangeChanged(position, count, payload);
+        }
+    };
+
+    /**
+     * All changes to the binders are reported here. Changes being applied across frames and the
+     * spiller are told where the items have moved, then the change is passed on to the current
+     * batch, or to {@link #mNotifyingCallback} if there isn't one
+     */
+    private final ListUpdateCallback mUpdateCallback = new ListUpdateCallback() {
+        @Override
+        public void onInserted(int position, int count) {
+            mFrameSlicer.onInserted(position, count);
+            if (mSpiller != null) {
+                mSpiller.onInserted(position, count);
+            }
+            target().onInserted(position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mFrameSlicer.onRemoved(position, count);
+            if (mSpiller != null) {
+                mSpiller.onRemoved(position, count);
+            }
+            target().onRemoved(position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mFrameSlicer.onRemoved(fromPosition, 1);
+            mFrameSlicer.onInserted(toPosition, 1);
+            if (mSpiller != null) {
+                mSpiller.onRemoved(fromPosition, 1);
+                mSpiller.onInserted(toPosition, 1);
+            }
+            target().onMoved(fromPosition, toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            if (mSpiller != null) {
+                mSpiller.onChanged(position, count);
+            }
+            target().onChanged(position, count, payload);
+        }
+
+        private ListUpdateCallback target() {
+            return mBatch != null ? mBatch : mNotifyingCallback;
+        }
+    };
+
+    private UpdateBatch mBatch;
+
+    /**
+     * The number of beginBatch() calls that haven't been committed yet
+     */
+    private int mBatchDepth;
+
     /**
      * The footer of the adapter. This is simply the last item in the adapter and is maintained
      * as the last item when add() is called.
      */
     private MultiTypeBinder mFooter;
 
+    /**
+     * The header of the adapter, kept as the first item in the same way as the footer
+     */
+    private MultiTypeBinder mHeader;
+
+    /**
+     * The sections of the items between the header and the footer
+     */
+    private final SectionIndex mSections = new SectionIndex();
+
+    /**
+     * The data binder for each view type whose items are data rather than binders, or null if
+     * there are none
+     */
+    private final ImmutableSparseArray<MultiTypeDataBinder<?>> mDataBinders;
+
     private MultiTypeAdapter(Builder builder) {
         mThreadHelper = builder.mThreadHelper;
-        SparseArray<MultiTypeCreator> creators = new SparseArray<>(builder.mCreators.size());
-        for (MultiTypeCreator creator : builder.mCreators) {
-            creators.put(creator.getViewType().getType(), creator);
+        mStore = builder.mStorage == BinderStorage.CHUNKED
+                ? new ChunkedBinderStore() : new ArrayBinderStore();
+        mBackgroundExecutor = builder.mBackgroundExecutor != null
+                ? builder.mBackgroundExecutor : getDefaultBackgroundExecutor();
+        mDebug = builder.mDebug;
+        mPageSize = builder.mPageSize;
+        mPrefetchDistance = builder.mPrefetchDistance;
+        mMaxPagesInMemory = builder.mMaxPagesInMemory;
+        mPrewarmCounts = ViewHolderPrewarmer.copyOf(builder.mPrewarmCounts);
+        mMaxRecycledViews = ViewHolderPrewarmer.copyOf(builder.mMaxRecycledViews);
+        for (int i = 0; i < mPrewarmCounts.size(); i++) {
+            // make room for the prewarmed view holders
+            int type = mPrewarmCounts.keyAt(i);
+            int max = mMaxRecycledViews.get(type, ViewHolderPrewarmer.DEFAULT_MAX_RECYCLED_VIEWS);
+            mMaxRecycledViews.put(type, Math.max(max, mPrewarmCounts.valueAt(i)));
+        }
+        mSharedPool = builder.mSharedPool;
+        mMetricsListener = builder.mMetricsListener;
+        mTraceSections = builder.mTraceSections ? new TraceSections() : null;
+        mAsyncBinder = new AsyncBinder(mBackgroundExecutor, mThreadHelper);
+        mFrameSlicer = new FrameSlicer(mThreadHelper, builder.mFrameBudgetNanos);
+        mFlingTracker = builder.mLightBindVelocity > 0 ? new FlingTracker(
+                builder.mLightBindVelocity, mThreadHelper, new FlingTracker.Callback() {
+            @Override
+            public void onFlingEnded(List<RecyclerView.ViewHolder> lightlyBound) {
+                // the holders next to each other are sent as one change
+                beginBatch();
+                try {
+                    for (RecyclerView.ViewHolder holder : lightlyBound) {
+                        int position = holder.getAdapterPosition();
+                        if (mParent != null) {
+                            position = mParent.getLocalPosition(MultiTypeAdapter.this, position);
+                        }
+                        if (position != RecyclerView.NO_POSITION) {
+                            mUpdateCallback.onChanged(position, 1, FlingTracker.FULL_BIND);
+                        }
+                    }
+                } finally {
+                    commitBatch();
+                }
+            }
+        }) : null;
+        mPreparer = builder.mPrepareDistance > 0 ? new BinderPreparer(mBackgroundExecutor,
+                mThreadHelper, builder.mPrepareDistance) : null;
+        mPoolAutoTuner = builder.mAutoTuneMaxRecycledViews > 0
+                ? new PoolAutoTuner(builder.mAutoTuneMaxRecycledViews, mMaxRecycledViews) : null;
+        setHasStableIds(builder.mStableIds);
+        mViewCreators = CreatorTable.create(builder.mCreators);
+        for (ViewType viewType : builder.mRequiredViewTypes) {
+            if (mViewCreators.get(viewType.getType()) == null) {
+                throw new IllegalStateException("No creator added for view type " + viewType
+                        + ". Make sure you call Builder.addCreator()");
+            }
+        }
+        for (int i = 0; i < builder.mPrewarmCounts.size(); i++) {
+            if (mViewCreators.get(builder.mPrewarmCounts.keyAt(i)) == null) {
+                throw new IllegalStateException("No creator added for prewarmed view type "
+                        + builder.mPrewarmCounts.keyAt(i)
+                        + ". Make sure you call Builder.addCreator()");
+            }
+        }
+        for (int i = 0; i < builder.mCodecs.size(); i++) {
+            int type = builder.mCodecs.keyAt(i);
+            if (builder.mDataBinders.get(type) != null) {
+                throw new IllegalStateException("View type " + type + " has a codec but is "
+                        + "bound by a MultiTypeDataBinder. Codecs are only used for binders");
+            }
+        }
+        mCodecs = new ImmutableSparseArray<>(builder.mCodecs);
+        mStateFile = builder.mStateFile;
+        mSpiller = builder.mSpillFile != null ? new BinderSpiller(mCodecs, builder.mSpillFile,
+                builder.mMaxBindersInMemory, mBackgroundExecutor, mThreadHelper) : null;
+        if (builder.mDataBinders.size() == 0) {
+            mDataBinders = null;
+        } else {
+            mDataBinders = new ImmutableSparseArray<>(builder.mDataBinders);
+            for (int i = 0; i < mDataBinders.size(); i++) {
+                if (mViewCreators.get(mDataBinders.keyAt(i)) == null) {
+                    throw new IllegalStateException("No creator added for data binder view type "
+                            + mDataBinders.keyAt(i) + ". Make sure you call Builder.addCreator()");
+                }
+            }
+        }
+        // last, so an adapter that fails to build doesn't leave its creators in the pool
+        if (mSharedPool != null) {
+            mSharedPool.register(builder.mCreators, mMaxRecycledViews);
         }
-        mViewCreators = new ImmutableSparseArray<>(creators);
     }
 
     /**
-     * Add an item to the adapter
+     * Add an item to the adapter, at the end of the last section if there are sections
      *
      * @param binder the item to add
      * @throws IllegalStateException if not called from the UI thread
@@ -54,21 +424,25 @@ public final class MultiTypeAdapter extends RecyclerView.Adapter<RecyclerView.Vi
     public void add(@NonNull MultiTypeBinder binder) {
         checkMainThread();
         checkNonNull(binder, "binder");
-        if (mFooter != null) {
-            mBinders.add(mBinders.size() - 1, binder);
-        } else {
-            mBinders.add(binder);
-        }
-        // TODO: replace with notifyItemChanged/inserted
-        notifyDataSetChanged();
+        cancelPendingChanges();
+        int position = appendPosition();
+        insertBinder(position, binder);
+        mSections.append(1);
+        mUpdateCallback.onInserted(position, 1);
     }
 
     /**
-     * Add an item to the adapter at the position
+     * Add an item to the adapter at the position. The item is kept after the header and before
+     * the footer. It joins the section of the item before it, unless that is a section's footer.
+     * Items can't be added after the last section's footer, as there is no section for them to
+     * join
      *
      * @param position the position to add the binder at
      * @param binder   the binder to add
-     * @throws IllegalStateException     if not called from the UI thread
+     * @throws IllegalStateException     if not called from the UI thread, or the position is
+     *                                   before an item backed by the page source
+     * @throws IllegalArgumentException  if the position is between a section's footer and the
+     *                                   next section's header, or after the last section's footer
      * @throws IndexOutOfBoundsException if {@code position < 0 || position > size()}
      */
     public void add(int position, @NonNull MultiTypeBinder binder) {
@@ -78,11 +452,24 @@ public final class MultiTypeAdapter extends RecyclerView.Adapter<RecyclerView.Vi
             throw new IndexOutOfBoundsException("position: " + position + " invalid. " +
                     "Item count is " + getItemCount());
         }
+        if (mHeader != null && position == 0) {
+            position++;
+        }
         if (mFooter != null && position == mBinders.size()) {
             position--;
         }
-        mBinders.add(position, binder);
-        notifyItemInserted(position);
+        checkNotPaged(position);
+        int itemPosition = position - headerOffset();
+        if (!mSections.canInsert(itemPosition)) {
+            throw new IllegalArgumentException("position: " + position + " is "
+                    + (itemPosition == mSections.total()
+                    ? "after the last section's footer" : "between two sections")
+                    + ". Use addToSection() instead");
+        }
+        cancelPendingChanges();
+        insertBinder(position, binder);
+        mSections.insert(itemPosition, 1);
+        mUpdateCallback.onInserted(position, 1);
     }
 
     /**
@@ -94,13 +481,135 @@ public final class MultiTypeAdapter extends RecyclerView.Adapter<RecyclerView.Vi
     public void addAll(@NonNull Collection<MultiTypeBinder> binders) {
         checkMainThread();
         checkNonNull(binders, "binders");
-        if (mFooter != null) {
-            mBinders.addAll(mBinders.size() - 1, binders);
-        } else {
-            mBinders.addAll(binders);
+        if (binders.isEmpty()) {
+            return;
+        }
+        cancelPendingChanges();
+        int position = appendPosition();
+        insertBinders(position, binders);
+        mSections.append(binders.size());
+        mUpdateCallback.onInserted(position, binders.size());
+    }
+
+    /**
+     * Add an item of a view type bound by a {@link MultiTypeDataBinder}. Only the data and view
+     * type are kept for the item
+     *
+     * @param viewType the view type of the item
+     * @param data     the data to bind the item with
+     * @throws IllegalStateException    if not called from the UI thread
+     * @throws IllegalArgumentException if no data binder has been added for the view type
+     */
+    public void addItem(@NonNull ViewType viewType, @NonNull Object data) {
+        checkMainThread();
+        checkNonNull(viewType, "viewType");
+        checkNonNull(data, "data");
+        checkDataType(viewType);
+        cancelPendingChanges();
+        int position = appendPosition();
+        insertItem(position, data, viewType.getType());
+        mSections.append(1);
+        mUpdateCallback.onInserted(position, 1);
+    }
+
+    /**
+     * Add items of a view type bound by a {@link MultiTypeDataBinder}
+     *
+     * @param viewType the view type of the items
+     * @param data     the data for each item
+     * @throws IllegalStateException    if not called from the UI thread
+     * @throws IllegalArgumentException if no data binder has been added for the view type
+     */
+    public void addItems(@NonNull ViewType viewType, @NonNull Collection<?> data) {
+        checkMainThread();
+        checkNonNull(viewType, "viewType");
+        checkNonNull(data, "data");
+        checkDataType(viewType);
+        if (data.isEmpty()) {
+            return;
+        }
+        cancelPendingChanges();
+        int position = appendPosition();
+        List<?> items = new ArrayList<>(data);
+        int[] types = new int[items.size()];
+        Arrays.fill(types, viewType.getType());
+        insertItems(position, items, types);
+        mSections.append(items.size());
+        mUpdateCallback.onInserted(position, items.size());
+    }
+
+    /**
+     * Replace the item at position with an item of a view type bound by a
+     * {@link MultiTypeDataBinder}
+     *
+     * @param position the position to update
+     * @param viewType the view type of the new item
+     * @param data     the data to bind the item with
+     * @throws IllegalStateException     if not called from the UI thread, or the position is
+     *                                   backed by the page source
+     * @throws IllegalArgumentException  if no data binder has been added for the view type
+     * @throws IndexOutOfBoundsException if {@code position < 0 || position >= size()}
+     */
+    public void updateItem(int position, @NonNull ViewType viewType, @NonNull Object data) {
+        checkMainThread();
+        checkNonNull(viewType, "viewType");
+        checkNonNull(data, "data");
+        checkDataType(viewType);
+        if (position < 0 || position >= mBinders.size()) {
+            throw new IndexOutOfBoundsException("position: " + position + " invalid. " +
+                    "Item count is " + getItemCount());
+        }
+        if (mFooter != null && position == mBinders.size() - 1) {
+            throw new IllegalArgumentException("position: " + position + " is the footer, "
+                    + "which must be a MultiTypeBinder");
         }
-        // TODO: replace with notifyRangeChanged
-        notifyDataSetChanged();
+        if (mHeader != null && position == 0) {
+            throw new IllegalArgumentException("position: " + position + " is the header, "
+                    + "which must be a MultiTypeBinder");
+        }
+        checkNotPaged(position);
+        cancelPendingChanges();
+        replaceItem(position, data, viewType.getType());
+        mUpdateCallback.onChanged(position, 1, null);
+    }
+
+    /**
+     * Get the item at the position
+     *
+     * @param adapterPosition the position in the adapter to get
+     * @return the MultiTypeBinder, or the data if the view type is bound by a
+     * {@link MultiTypeDataBinder}, or null if nothing at that position
+     * @throws IllegalStateException if not called from the UI thread
+     */
+    @Nullable
+    public Object getItem(int adapterPosition) {
+        checkMainThread();
+        if (adapterPosition < 0 || adapterPosition >= mStore.size()) {
+            return null;
+        }
+        return itemAt(adapterPosition);
+    }
+
+    /**
+     * Add all the items to the adapter a slice at a time, spending no more than the frame budget
+     * on them each frame, so adding a very large number of items doesn't drop frames. Each slice
+     * is notified as it is added. See {@link Builder#frameBudgetNanos(long)}
+     * <p/>
+     * Adding starts on the next frame, after any earlier changes across frames have finished.
+     * Other changes made before then are applied straight away and the rest of the items are
+     * added after them, where add() would put them. Replacing all of the items, such as with
+     * submitList(), adds the rest of the items straight away first
+     *
+     * @param binders    the binders to add
+     * @param onComplete run once all the binders have been added, may be null
+     * @throws IllegalStateException if not called from the UI thread
+     */
+    public void addAllAcrossFrames(@NonNull Collection<MultiTypeBinder> binders,
+                                   @Nullable Runnable onComplete) {
+        checkMainThread();
+        checkNonNull(binders, "binders");
+        cancelPendingChanges();
+        mFrameSlicer.start(new AddAllChange(new ArrayList<>(binders)), onComplete);
     }
 
     /**
@@ -113,13 +622,16 @@ public final class MultiTypeAdapter extends RecyclerView.Adapter<RecyclerView.Vi
     public void setFooter(@NonNull MultiTypeBinder binder) {
         checkMainThread();
         checkNonNull(binder, "binder");
+        cancelPendingChanges();
         if (mFooter != null) {
-            mBinders.remove(mBinders.size() - 1);
+            replaceBinder(mBinders.size() - 1, binder);
+            mFooter = binder;
+            mUpdateCallback.onChanged(mBinders.size() - 1, 1, null);
+        } else {
+            insertBinder(mBinders.size(), binder);
+            mFooter = binder;
+            mUpdateCallback.onInserted(mBinders.size() - 1, 1);
         }
-        mBinders.add(binder);
-        mFooter = binder;
-        // TODO: replace with notifyItemInserted
-        notifyDataSetChanged();
     }
 
     /**
@@ -130,10 +642,10 @@ public final class MultiTypeAdapter extends RecyclerView.Adapter<RecyclerView.Vi
     public void clearFooter() {
         checkMainThread();
         if (mFooter != null) {
-            mBinders.remove(mBinders.size() - 1);
+            cancelPendingChanges();
+            removeBinder(mBinders.size() - 1);
             mFooter = null;
-            // TODO: replace with notifyItemChange
-            notifyDataSetChanged();
+            mUpdateCallback.onRemoved(mBinders.size(), 1);
         }
     }
 
@@ -150,172 +662,1826 @@ public final class MultiTypeAdapter extends RecyclerView.Adapter<RecyclerView.Vi
     }
 
     /**
-     * Remove the item at position.
-     * Note if the there is a footer set and {@code position == getItemCount() - 1} the footer will be removed
+     * Add the binder to the start of the adapter. Any call to add() will insert after the header.
+     * Calling setHeader() again will overwrite the old header
      *
-     * @param position the position to remove
-     * @throws IllegalStateException     if not called from the UI thread
-     * @throws IndexOutOfBoundsException if {@code position < 0 || position > size()}
+     * @param binder the binder to add as the header
+     * @throws IllegalStateException if not called from the UI thread
      */
-    public void remove(int position) {
+    public void setHeader(@NonNull MultiTypeBinder binder) {
         checkMainThread();
-        if (position < 0 || position > mBinders.size()) {
-            throw new IndexOutOfBoundsException("position: " + position + " invalid. " +
-                    "Item count is " + getItemCount());
-        }
-        if (mFooter != null && position == mBinders.size() - 1) {
-            clearFooter();
+        checkNonNull(binder, "binder");
+        cancelPendingChanges();
+        if (mHeader != null) {
+            replaceBinder(0, binder);
+            mHeader = binder;
+            mUpdateCallback.onChanged(0, 1, null);
         } else {
-            mBinders.remove(position);
-            notifyItemRemoved(position);
+            insertBinder(0, binder);
+            mHeader = binder;
+            mUpdateCallback.onInserted(0, 1);
         }
     }
 
     /**
-     * Remove all of the items of the view type
+     * Clear the header from the adapter if one has been set
      *
-     * @param viewType the view type to remove all items of
      * @throws IllegalStateException if not called from the UI thread
      */
-    public void removeAllOf(@NonNull ViewType viewType) {
+    public void clearHeader() {
         checkMainThread();
-        checkNonNull(viewType, "viewType");
-        if (mFooter != null && viewType.equals(mFooter.getViewType())) {
-            clearFooter();
-        }
-        Iterator<MultiTypeBinder> iterator = mBinders.iterator();
-        while (iterator.hasNext()) {
-            MultiTypeBinder binder = iterator.next();
-            if (binder.getViewType().equals(viewType)) {
-                iterator.remove();
-            }
+        if (mHeader != null) {
+            cancelPendingChanges();
+            removeBinder(0);
+            mHeader = null;
+            mUpdateCallback.onRemoved(0, 1);
         }
-        notifyDataSetChanged();
     }
 
     /**
-     * Clear all items from the adapter
+     * Get the header
      *
+     * @return the header or null if no header has been set
      * @throws IllegalStateException if not called from the UI thread
      */
-    public void clear() {
+    @Nullable
+    public MultiTypeBinder getHeader() {
         checkMainThread();
-        mBinders.clear();
-        mFooter = null;
-        notifyDataSetChanged();
+        return mHeader;
     }
 
     /**
-     * Get all the binders in the adapter
+     * Add a section after the last one, before the footer. Each section can have its own header
+     * and footer. Items added with add() go at the end of the last section, before its footer.
+     * Replacing all of the items, such as with submitList() or clear(), removes the sections.
+     * <p/>
+     * A section is only removed by {@link #removeSection(int)}. One whose items have all been
+     * removed stays as an empty section, so the indices of the sections after it don't change,
+     * and items can be added to it again with {@link #addToSection(int, MultiTypeBinder)}
      *
-     * @return the binders in the adapter.
-     * Never null, will be an empty list if there isn't anything in the adapter
+     * @param header  the section's header, may be null
+     * @param binders the items in the section
+     * @param footer  the section's footer, may be null
+     * @return the index of the section
      * @throws IllegalStateException if not called from the UI thread
      */
-    @NonNull
-    public List<MultiTypeBinder> getBinders() {
+    public int addSection(@Nullable MultiTypeBinder header,
+                          @NonNull Collection<MultiTypeBinder> binders,
+                          @Nullable MultiTypeBinder footer) {
         checkMainThread();
-        return Collections.unmodifiableList(mBinders);
+        checkNonNull(binders, "binders");
+        cancelPendingChanges();
+        List<MultiTypeBinder> section = new ArrayList<>(binders.size() + 2);
+        if (header != null) {
+            section.add(header);
+        }
+        section.addAll(binders);
+        if (footer != null) {
+            section.add(footer);
+        }
+        int position = headerOffset() + mSections.total();
+        insertBinders(position, section);
+        int index = mSections.addSection(section.size(), header != null, footer != null);
+        if (!section.isEmpty()) {
+            mUpdateCallback.onInserted(position, section.size());
+        }
+        return index;
     }
 
     /**
-     * Get all of the binders of a particular view type in the adapter
+     * Add an item to the end of a section, before its footer
      *
-     * @param type the type of binders to get
-     * @return the binders in the adapter of the given type.
-     * Never null, will be an empty list if there isn't anything of the given type
-     * @throws IllegalStateException if not called from the UI thread
+     * @param section the index of the section
+     * @param binder  the item to add
+     * @throws IllegalStateException     if not called from the UI thread
+     * @throws IndexOutOfBoundsException if {@code section < 0 || section >= getSectionCount()}
      */
-    @NonNull
-    public List<MultiTypeBinder> getBinders(@Nullable ViewType type) {
+    public void addToSection(int section, @NonNull MultiTypeBinder binder) {
         checkMainThread();
-        List<MultiTypeBinder> results = new ArrayList<>(mBinders.size());
-        for (MultiTypeBinder binder : mBinders) {
-            if (binder.getViewType().equals(type)) {
-                results.add(binder);
-            }
-        }
-        return Collections.unmodifiableList(results);
+        checkNonNull(binder, "binder");
+        checkSection(section);
+        cancelPendingChanges();
+        int position = headerOffset() + mSections.endPosition(section);
+        insertBinder(position, binder);
+        mSections.insertInSection(section, 1);
+        mUpdateCallback.onInserted(position, 1);
     }
 
     /**
-     * Get the binder at the position
+     * Remove a section along with its header and footer. The sections after it move down by one
      *
-     * @param adapterPosition the position in the adapter to get
-     * @return the MultiTypeBinder or null if nothing at that position
-     * @throws IllegalStateException if not called from the UI thread
+     * @param section the index of the section
+     * @throws IllegalStateException     if not called from the UI thread
+     * @throws IndexOutOfBoundsException if {@code section < 0 || section >= getSectionCount()}
      */
-    @Nullable
-    public MultiTypeBinder getBinder(int adapterPosition) {
+    public void removeSection(int section) {
         checkMainThread();
-        if (adapterPosition < 0 || adapterPosition >= mBinders.size()) {
-            return null;
+        checkSection(section);
+        cancelPendingChanges();
+        int position = headerOffset() + mSections.start(section);
+        int count = mSections.length(section);
+        removeBinders(position, position + count);
+        mSections.removeSection(section);
+        if (count > 0) {
+            mUpdateCallback.onRemoved(position, count);
         }
-        return mBinders.get(adapterPosition);
     }
 
-    @Override
-    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
-        MultiTypeCreator creator = mViewCreators.get(viewType);
-        if (creator == null) {
+    /**
+     * Get the number of sections
+     *
+     * @return the number of sections
+     * @throws IllegalStateException if not called from the UI thread
+     */
+    public int getSectionCount() {
+        checkMainThread();
+        return mSections.sectionCount();
+    }
+
+    /**
+     * Get the section a position is in. O(log n) in the number of sections
+     *
+     * @param adapterPosition the position in the adapter
+     * @return the index of the section, or {@link #NO_SECTION} if the position is the header, the
+     * footer, an item added before the first section or not in the adapter
+     * @throws IllegalStateException if not called from the UI thread
+     */
+    public int getSectionForPosition(int adapterPosition) {
+        checkMainThread();
+        int position = adapterPosition - headerOffset();
+        if (position < 0 || position >= mSections.total()) {
+            return NO_SECTION;
+        }
+        return mSections.sectionOf(position);
+    }
+
+    /**
+     * Get the first position of a section, which is its header if it has one, such as to jump to
+     * the section. O(log n) in the number of sections
+     *
+     * @param section the index of the section
+     * @return the position in the adapter
+     * @throws IllegalStateException     if not called from the UI thread
+     * @throws IndexOutOfBoundsException if {@code section < 0 || section >= getSectionCount()}
+     */
+    public int getPositionForSection(int section) {
+        checkMainThread();
+        checkSection(section);
+        return headerOffset() + mSections.start(section);
+    }
+
+    /**
+     * Get the position of the header of the section a position is in, such as to draw it as a
+     * sticky header. O(log n) in the number of sections
+     *
+     * @param adapterPosition the position in the adapter
+     * @return the position of the section's header, or {@link RecyclerView#NO_POSITION} if the
+     * position isn't in a section or the section has no header
+     * @throws IllegalStateException if not called from the UI thread
+     */
+    public int getSectionHeaderPosition(int adapterPosition) {
+        int section = getSectionForPosition(adapterPosition);
+        if (section == NO_SECTION || !mSections.hasHeader(section)) {
+            return RecyclerView.NO_POSITION;
+        }
+        return headerOffset() + mSections.start(section);
+    }
+
+    /**
+     * Remove the item at position.
+     * Note if the there is a footer set and {@code position == getItemCount() - 1} the footer will be removed,
+     * and if there is a header set and {@code position == 0} the header will be removed
+     *
+     * @param position the position to remove
+     * @throws IllegalStateException     if not called from the UI thread, or the position is
+     *                                   backed by the page source
+     * @throws IndexOutOfBoundsException if {@code position < 0 || position > size()}
+     */
+    public void remove(int position) {
+        checkMainThread();
+        if (position < 0 || position > mBinders.size()) {
+            throw new IndexOutOfBoundsException("position: " + position + " invalid. " +
+                    "Item count is " + getItemCount());
+        }
+        if (mFooter != null && position == mBinders.size() - 1) {
+            clearFooter();
+        } else if (mHeader != null && position == 0) {
+            clearHeader();
+        } else {
+            checkNotPaged(position);
+            cancelPendingChanges();
+            removeBinder(position);
+            mUpdateCallback.onRemoved(position, 1);
+        }
+    }
+
+    /**
+     * Replace the item at position and rebind it
+     *
+     * @param position the position to update
+     * @param binder   the new binder for the position
+     * @throws IllegalStateException     if not called from the UI thread, or the position is
+     *                                   backed by the page source
+     * @throws IndexOutOfBoundsException if {@code position < 0 || position >= size()}
+     * @see #update(int, MultiTypeBinder, Object)
+     */
+    public void update(int position, @NonNull MultiTypeBinder binder) {
+        update(position, binder, null);
+    }
+
+    /**
+     * Replace the item at position and send the payload with the change.
+     * If the new binder implements {@link PayloadMultiTypeBinder} and the view holder is still
+     * bound it is updated with the payload, otherwise it is bound again in full.
+     * Note if there is a footer set and {@code position == getItemCount() - 1} the footer will be
+     * replaced
+     *
+     * @param position the position to update
+     * @param binder   the new binder for the position
+     * @param payload  describes what has changed. Can be null to rebind in full
+     * @throws IllegalStateException     if not called from the UI thread, or the position is
+     *                                   backed by the page source
+     * @throws IndexOutOfBoundsException if {@code position < 0 || position >= size()}
+     */
+    public void update(int position, @NonNull MultiTypeBinder binder, @Nullable Object payload) {
+        checkMainThread();
+        checkNonNull(binder, "binder");
+        if (position < 0 || position >= mBinders.size()) {
+            throw new IndexOutOfBoundsException("position: " + position + " invalid. " +
+                    "Item count is " + getItemCount());
+        }
+        checkNotPaged(position);
+        cancelPendingChanges();
+        replaceBinder(position, binder);
+        if (mFooter != null && position == mBinders.size() - 1) {
+            mFooter = binder;
+        } else if (mHeader != null && position == 0) {
+            mHeader = binder;
+        }
+        mUpdateCallback.onChanged(position, 1, payload);
+    }
+
+    /**
+     * Remove all of the items of the view type
+     *
+     * @param viewType the view type to remove all items of
+     * @throws IllegalStateException if not called from the UI thread, or the adapter is backed by
+     *                               a page source
+     */
+    public void removeAllOf(@NonNull ViewType viewType) {
+        checkMainThread();
+        checkNonNull(viewType, "viewType");
+        int type = viewType.getType();
+        int toRemove = mTypeCounts.get(type);
+        if (toRemove == 0) {
+            return;
+        }
+        checkNotPaging();
+        cancelPendingChanges();
+        if (mFooter != null && mStore.getViewType(mStore.size() - 1) == type) {
+            mFooter = null;
+        }
+        int headerOffset = headerOffset();
+        // Compact the list in place, recording each run of removed items against the position it
+        // starts at once the runs before it have been removed. Stops as soon as the last item of
+        // the type has been found and shifts the rest of the list down in one go
+        SparseIntArray removedRanges = new SparseIntArray();
+        int write = 0;
+        int read = 0;
+        for (int removed = 0; removed < toRemove; read++) {
+            int readType = mStore.getViewType(read);
+            if (readType == type) {
+                releaseItem(mStore.get(read));
+                removedRanges.put(write, removedRanges.get(write) + 1);
+                removed++;
+                if (read == 0 && headerOffset == 1) {
+                    mHeader = null;
+                    headerOffset = 0;
+                } else if (write - headerOffset < mSections.total()) {
+                    mSections.remove(write - headerOffset, 1);
+                }
+            } else {
+                mStore.set(write++, mStore.get(read), readType);
+            }
+        }
+        mStore.removeRange(write, read);
+        mTypeCounts.delete(type);
+        for (int i = 0; i < removedRanges.size(); i++) {
+            mUpdateCallback.onRemoved(removedRanges.keyAt(i), removedRanges.valueAt(i));
+        }
+    }
+
+    /**
+     * Remove all of the items of the view type a slice at a time, spending no more than the frame
+     * budget on them each frame. Each run of removed items is notified as it is removed. See
+     * {@link Builder#frameBudgetNanos(long)}
+     * <p/>
+     * Removing starts on the next frame, after any earlier changes across frames have finished.
+     * Other changes made before then are applied straight away, and items of the view type they
+     * add are removed as well. Replacing all of the items, such as with submitList(), removes the
+     * rest of the items straight away first
+     *
+     * @param viewType   the view type to remove all items of
+     * @param onComplete run once all the items have been removed, may be null
+     * @throws IllegalStateException if not called from the UI thread, or the adapter is backed by
+     *                               a page source
+     */
+    public void removeAllOfAcrossFrames(@NonNull ViewType viewType,
+                                        @Nullable Runnable onComplete) {
+        checkMainThread();
+        checkNonNull(viewType, "viewType");
+        checkNotPaging();
+        cancelPendingChanges();
+        mFrameSlicer.start(new RemoveAllOfChange(viewType.getType()), onComplete);
+    }
+
+    /**
+     * Replace the items in the adapter with the binders. The difference between the current items
+     * and the new binders is calculated on a background thread and then the adapter is updated with
+     * the minimal set of insert, remove, move and change notifications. The footer is kept.
+     * <p/>
+     * If submitList() is called again, or the adapter is changed in any other way, before the
+     * difference has been calculated this list is dropped.
+     * Implement {@link DiffableMultiTypeBinder} to allow binders to be matched up between lists
+     *
+     * @param binders the new items
+     * @throws IllegalStateException if not called from the UI thread or the adapter holds items
+     *                               added with {@link #addItem(ViewType, Object)}
+     */
+    public void submitList(@NonNull List<MultiTypeBinder> binders) {
+        checkMainThread();
+        checkNonNull(binders, "binders");
+        if (hasDataItems()) {
+            throw new IllegalStateException("The adapter holds data for a MultiTypeDataBinder, "
+                    + "which submitList() can't diff against. Use clear() first");
+        }
+        cancelAllChanges();
+        final int generation = mGeneration;
+        final List<MultiTypeBinder> newBinders = new ArrayList<>(binders.size() + 2);
+        if (mHeader != null) {
+            newBinders.add(mHeader);
+        }
+        newBinders.addAll(binders);
+        if (mFooter != null) {
+            newBinders.add(mFooter);
+        }
+        if (mStore.size() == 0 || newBinders.isEmpty()) {
+            // nothing to diff
+            replaceWithoutDiff(newBinders);
+            return;
+        }
+        final List<Object> oldItems = snapshotStore();
+        mBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration) {
+                    return;
+                }
+                final List<MultiTypeBinder> oldBinders;
+                try {
+                    oldBinders = readBinders(oldItems);
+                } catch (IOException e) {
+                    // they can't be matched up, so replace them all
+                    mThreadHelper.postToUiThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (generation == mGeneration) {
+                                replaceWithoutDiff(newBinders);
+                            }
+                        }
+                    });
+                    return;
+                }
+                if (mTraceSections != null) {
+                    TraceCompat.beginSection(TraceSections.DIFF);
+                }
+                final DiffUtil.DiffResult result;
+                try {
+                    result = DiffUtil.calculateDiff(
+                            new BinderDiffCallback(oldBinders, newBinders), true);
+                } finally {
+                    if (mTraceSections != null) {
+                        TraceCompat.endSection();
+                    }
+                }
+                mThreadHelper.postToUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mGeneration) {
+                            return;
+                        }
+                        if (mTraceSections != null) {
+                            TraceCompat.beginSection(TraceSections.DISPATCH_DIFF);
+                        }
+                        try {
+                            replaceAllBinders(newBinders);
+                            result.dispatchUpdatesTo(mUpdateCallback);
+                        } finally {
+                            if (mTraceSections != null) {
+                                TraceCompat.endSection();
+                            }
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private void replaceWithoutDiff(List<MultiTypeBinder> binders) {
+        int oldSize = mStore.size();
+        replaceAllBinders(binders);
+        if (oldSize > 0) {
+            mUpdateCallback.onRemoved(0, oldSize);
+        }
+        if (!binders.isEmpty()) {
+            mUpdateCallback.onInserted(0, binders.size());
+        }
+    }
+
+    /**
+     * Copy the store's items on the UI thread, so they can be read on another thread. Binders
+     * that spillToDisk() has written out and binders that haven't been decoded from a snapshot
+     * yet are left as they are, to be read by {@link #readBinders(List)}
+     */
+    private List<Object> snapshotStore() {
+        List<Object> items = new ArrayList<>(mStore.size());
+        for (int i = 0; i < mStore.size(); i++) {
+            Object item = mStore.get(i);
+            if (item instanceof BinderSpiller.Tombstone
+                    && ((BinderSpiller.Tombstone) item).getBinder() != null) {
+                item = ((BinderSpiller.Tombstone) item).getBinder();
+            }
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * Read and decode the binders in a copy from {@link #snapshotStore()}, without keeping them.
+     * May be called on any thread
+     *
+     * @throws IOException if a binder can't be read or decoded
+     */
+    private List<MultiTypeBinder> readBinders(List<Object> items) throws IOException {
+        List<MultiTypeBinder> binders = new ArrayList<>(items.size());
+        for (Object item : items) {
+            if (item instanceof BinderSpiller.Tombstone) {
+                binders.add(mSpiller.readDetached((BinderSpiller.Tombstone) item));
+            } else if (item instanceof BinderSnapshot.Entry) {
+                binders.add(((BinderSnapshot.Entry) item).decode(mCodecs));
+            } else {
+                binders.add((MultiTypeBinder) item);
+            }
+        }
+        return binders;
+    }
+
+    /**
+     * Back the adapter with a page source for lists too large to hold in memory. The adapter is
+     * filled with the placeholder, then pages of binders are loaded in the background as positions
+     * within the prefetch distance are bound and replace the placeholders. Once more than the
+     * maximum number of pages are loaded, the least recently bound page is swapped back to
+     * placeholders. See {@link Builder#pageSize(int)}, {@link Builder#prefetchDistance(int)} and
+     * {@link Builder#maxPagesInMemory(int)}.
+     * <p/>
+     * Replaces the current items, the header and footer are kept. Paging stops when all of the
+     * items are replaced, such as by submitList() or clear(). Until then items can be added after
+     * the paged items and the header and footer can be changed, but the paged items can't be
+     * added before, removed or replaced, and removeAllOf() can't be used.
+     * <p/>
+     * With stable ids, each placeholder's id is {@link #PLACEHOLDER_ID} plus its position among
+     * the paged items, which the ids of other items mustn't use
+     *
+     * @param source      loads the pages
+     * @param placeholder shown while a position is loading. Its creator must have been added
+     * @throws IllegalStateException if not called from the UI thread or maxPagesInMemory is too
+     *                               small for the prefetch distance
+     */
+    public void setPageSource(@NonNull BinderPageSource source,
+                              @NonNull MultiTypeBinder placeholder) {
+        checkMainThread();
+        checkNonNull(source, "source");
+        checkNonNull(placeholder, "placeholder");
+        int minPages = 2 * ((mPrefetchDistance + mPageSize - 1) / mPageSize) + 1;
+        if (mMaxPagesInMemory < minPages) {
+            throw new IllegalStateException("maxPagesInMemory must be at least " + minPages
+                    + " to hold the pages within the prefetch distance");
+        }
+        cancelAllChanges();
+        int itemCount = source.getItemCount();
+        int oldSize = mStore.size();
+        List<MultiTypeBinder> placeholders = new ArrayList<>(itemCount + 2);
+        if (mHeader != null) {
+            placeholders.add(mHeader);
+        }
+        placeholders.addAll(Collections.nCopies(itemCount, placeholder));
+        if (mFooter != null) {
+            placeholders.add(mFooter);
+        }
+        replaceAllBinders(placeholders);
+        mPlaceholder = placeholder;
+        mPageLoader = new PageLoader(source, itemCount, mPageSize, mPrefetchDistance,
+                mMaxPagesInMemory, mBackgroundExecutor, mThreadHelper, new PageLoader.Callback() {
+            @Override
+            public void onPageLoaded(int startPosition, List<MultiTypeBinder> binders) {
+                for (int i = 0; i < binders.size(); i++) {
+                    MultiTypeBinder binder = binders.get(i);
+                    checkNonNull(binder, "binder");
+                    replaceBinder(headerOffset() + startPosition + i, binder);
+                }
+                mUpdateCallback.onChanged(headerOffset() + startPosition, binders.size(), null);
+            }
+
+            @Override
+            public void onPageUnloaded(int startPosition, int count) {
+                for (int i = 0; i < count; i++) {
+                    replaceBinder(headerOffset() + startPosition + i, mPlaceholder);
+                }
+                mUpdateCallback.onChanged(headerOffset() + startPosition, count, null);
+            }
+        });
+        if (oldSize > 0) {
+            mUpdateCallback.onRemoved(0, oldSize);
+        }
+        if (!placeholders.isEmpty()) {
+            mUpdateCallback.onInserted(0, placeholders.size());
+        }
+    }
+
+    /**
+     * Write the binders to a snapshot file on the background executor, to be shown with
+     * {@link #restoreSnapshot(File)} the next time the list is created, such as on the next
+     * launch. Only binders whose view type has a codec are written, see
+     * {@link Builder#addCodec(BinderCodec)}. The file is replaced once the snapshot has been
+     * written. If it can't be written the earlier snapshot is kept
+     *
+     * @param file where to write the snapshot
+     * @throws IllegalStateException if not called from the UI thread
+     */
+    public void saveSnapshot(@NonNull final File file) {
+        checkMainThread();
+        checkNonNull(file, "file");
+        final List<Object> items = snapshotItems();
+        final boolean hasFooter = snapshotHasFooter();
+        mBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    BinderSnapshot.write(encodeWrittenOut(items), hasFooter, mCodecs, file);
+                } catch (IOException e) {
+                    // the snapshot is only a cache, the last one that was written is kept
+                }
+            }
+        });
+    }
+
+    /**
+     * Replace the items with the binders in a snapshot written by {@link #saveSnapshot(File)}.
+     * The file is memory mapped and a binder is only decoded when it is bound or read, so the
+     * first screen can be shown straight away however large the snapshot is. Binders of view
+     * types that no longer have a codec are left out. The footer is replaced if the snapshot has
+     * one, otherwise it is kept
+     *
+     * @param file the snapshot
+     * @return true if the snapshot was restored, false if the file is missing or isn't a snapshot
+     * @throws IllegalStateException if not called from the UI thread
+     */
+    public boolean restoreSnapshot(@NonNull File file) {
+        checkMainThread();
+        checkNonNull(file, "file");
+        try {
+            restore(BinderSnapshot.open(file));
+        } catch (IOException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Save the binders whose view type has a codec, and the footer if it has one, so they can be
+     * put back with {@link #onRestoreInstanceState(Parcelable)} after a configuration change or
+     * the process being killed. See {@link Builder#addCodec(BinderCodec)}.
+     * <p/>
+     * With a file set with {@link Builder#instanceStateFile(File)}, the binders are encoded and
+     * written to it on the background executor, and the state only holds its path. Without one
+     * they are encoded into the state on the UI thread, and lists too large to keep small enough
+     * for the transaction it's sent in aren't saved. That is logged, and throws in debug builds
+     *
+     * @return the state to put in the activity or fragment's saved state
+     * @throws IllegalStateException if not called from the UI thread, or in debug builds if the
+     *                               binders couldn't be saved
+     */
+    @NonNull
+    public Parcelable onSaveInstanceState() {
+        checkMainThread();
+        List<Object> items = snapshotItems();
+        boolean hasFooter = snapshotHasFooter();
+        if (mStateFile != null) {
+            saveState(items, hasFooter);
+            return new SavedState(null, mStateFile.getPath());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            BinderSnapshot.write(encodeWrittenOut(items), hasFooter, mCodecs, bytes);
+        } catch (IOException e) {
+            stateNotSaved("Couldn't encode the binders", e);
+            return new SavedState(null, null);
+        }
+        if (bytes.size() > MAX_INLINE_STATE_BYTES) {
+            stateNotSaved("The binders take " + bytes.size() + " bytes, too many to keep in the "
+                    + "saved state. Set Builder.instanceStateFile() to save them", null);
+            return new SavedState(null, null);
+        }
+        return new SavedState(bytes.toByteArray(), null);
+    }
+
+    /**
+     * Write the items to {@link #mStateFile} on the background executor, replacing the state
+     * saved before. A write is skipped if the file has been saved to again since, by this adapter
+     * or another one, as the later write replaces it
+     */
+    private void saveState(final List<Object> items, final boolean hasFooter) {
+        final File file = mStateFile;
+        final CountDownLatch written = new CountDownLatch(1);
+        synchronized (sStateWrites) {
+            sStateWrites.put(file.getPath(), written);
+        }
+        mBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    synchronized (sStateLock) {
+                        boolean latest;
+                        synchronized (sStateWrites) {
+                            latest = sStateWrites.get(file.getPath()) == written;
+                        }
+                        if (latest) {
+                            writeState(items, hasFooter, file);
+                        }
+                    }
+                } finally {
+                    synchronized (sStateWrites) {
+                        if (sStateWrites.get(file.getPath()) == written) {
+                            sStateWrites.remove(file.getPath());
+                        }
+                    }
+                    written.countDown();
+                }
+            }
+        });
+    }
+
+    /**
+     * Write saved instance state on the background executor. If it can't be written the file is
+     * deleted, so an earlier state isn't restored in its place
+     */
+    private void writeState(List<Object> items, boolean hasFooter, final File file) {
+        try {
+            BinderSnapshot.write(encodeWrittenOut(items), hasFooter, mCodecs, file);
+        } catch (final IOException e) {
+            file.delete();
+            mThreadHelper.postToUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    stateNotSaved("Couldn't write the binders to " + file, e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Wait up to {@link #MAX_STATE_WAIT_MS} for saved instance state that is still being written
+     * to the file
+     *
+     * @return true if the file has been written, false if it's still being written
+     */
+    private static boolean awaitState(File file) {
+        CountDownLatch written;
+        synchronized (sStateWrites) {
+            written = sStateWrites.get(file.getPath());
+        }
+        if (written == null) {
+            return true;
+        }
+        try {
+            return written.await(MAX_STATE_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Report saved instance state that was dropped, throwing in debug builds so it's noticed
+     *
+     * @throws IllegalStateException in debug builds
+     */
+    private void stateNotSaved(String message, @Nullable Throwable cause) {
+        if (mDebug) {
+            throw new IllegalStateException(message, cause);
+        }
+        Log.w(TAG, message, cause);
+    }
+
+    /**
+     * Replace the items with the ones saved by {@link #onSaveInstanceState()}. Call before the
+     * first layout, such as in onCreate(), and the items are there for it. Binders are only
+     * decoded when they are bound or read. The footer is replaced if one was saved, otherwise it
+     * is kept. If the state is still being written to a file, waits up to a second for it to be
+     * written. The file is kept, so the same state can be restored again
+     *
+     * @param state the state returned by {@link #onSaveInstanceState()}
+     * @return true if the items were restored, false if nothing was saved, it can't be read or
+     *         it's taking too long to write
+     * @throws IllegalStateException    if not called from the UI thread
+     * @throws IllegalArgumentException if the state wasn't saved by a MultiTypeAdapter
+     */
+    public boolean onRestoreInstanceState(@NonNull Parcelable state) {
+        checkMainThread();
+        checkNonNull(state, "state");
+        if (!(state instanceof SavedState)) {
+            throw new IllegalArgumentException("state must come from onSaveInstanceState(), not "
+                    + state);
+        }
+        SavedState savedState = (SavedState) state;
+        try {
+            if (savedState.mSnapshot != null) {
+                restore(BinderSnapshot.wrap(ByteBuffer.wrap(savedState.mSnapshot)));
+            } else if (savedState.mSnapshotPath != null) {
+                File file = new File(savedState.mSnapshotPath);
+                if (!awaitState(file)) {
+                    return false;
+                }
+                restore(BinderSnapshot.open(file));
+            } else {
+                return false;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Close and delete the files set with {@link Builder#spillToDisk(File, int)}, so they don't
+     * take up space once the adapter is no longer used, and another adapter can use them. Call it
+     * when the list is gone for good, such as in onDestroy() when the activity isn't being
+     * recreated. Binders that have been written out can't be bound or read after this. Does
+     * nothing if the adapter doesn't spill to disk
+     *
+     * @throws IllegalStateException if not called from the UI thread
+     */
+    public void release() {
+        checkMainThread();
+        if (mSpiller != null) {
+            mSpiller.close();
+        }
+    }
+
+    /**
+     * Get the items to put in a snapshot, on the UI thread. Binders that spillToDisk() has written
+     * out and binders that haven't been decoded from a snapshot yet are left as they are
+     */
+    private List<Object> snapshotItems() {
+        List<Object> items = new ArrayList<>();
+        for (int i = headerOffset(); i < mStore.size(); i++) {
+            if (mCodecs.get(mStore.getViewType(i)) == null) {
+                continue;
+            }
+            Object item = mStore.get(i);
+            if (item instanceof BinderSpiller.Tombstone
+                    && ((BinderSpiller.Tombstone) item).getBinder() != null) {
+                item = ((BinderSpiller.Tombstone) item).getBinder();
+            }
+            items.add(item);
+        }
+        return items;
+    }
+
+    private boolean snapshotHasFooter() {
+        return mFooter != null && mCodecs.get(mFooter.getViewType().getType()) != null;
+    }
+
+    /**
+     * Swap the items from {@link #snapshotItems()} that aren't in memory for their encoded
+     * bytes, so they can be put in a snapshot without being decoded. May be called on any thread
+     */
+    private List<Object> encodeWrittenOut(List<Object> items) throws IOException {
+        List<Object> encoded = new ArrayList<>(items.size());
+        for (Object item : items) {
+            if (item instanceof BinderSpiller.Tombstone) {
+                encoded.add(mSpiller.readEncoded((BinderSpiller.Tombstone) item));
+            } else if (item instanceof BinderSnapshot.Entry) {
+                encoded.add(((BinderSnapshot.Entry) item).toRecord());
+            } else {
+                encoded.add(item);
+            }
+        }
+        return encoded;
+    }
+
+    /**
+     * Replace the items with the entries of a snapshot, leaving out view types without a codec
+     *
+     * @throws IOException if the snapshot's footer can't be decoded
+     */
+    private void restore(BinderSnapshot snapshot) throws IOException {
+        MultiTypeBinder footer = mFooter;
+        int count = snapshot.size();
+        if (snapshot.hasFooter()) {
+            count--;
+            BinderSnapshot.Entry last = snapshot.entry(count);
+            if (mCodecs.get(last.getViewType()) != null) {
+                footer = last.decode(mCodecs);
+            }
+        }
+        cancelAllChanges();
+        int oldSize = mStore.size();
+        List<Object> items = new ArrayList<>(count + 2);
+        int[] types = new int[count + 2];
+        if (mHeader != null) {
+            types[0] = mHeader.getViewType().getType();
+            items.add(mHeader);
+        }
+        for (int i = 0; i < count; i++) {
+            BinderSnapshot.Entry entry = snapshot.entry(i);
+            int type = entry.getViewType();
+            if (mCodecs.get(type) != null) {
+                types[items.size()] = type;
+                items.add(entry);
+            }
+        }
+        if (footer != null) {
+            types[items.size()] = footer.getViewType().getType();
+            items.add(footer);
+        }
+        clearStore();
+        insertItems(0, items, Arrays.copyOf(types, items.size()));
+        mFooter = footer;
+        resetSections();
+        if (oldSize > 0) {
+            mUpdateCallback.onRemoved(0, oldSize);
+        }
+        if (!items.isEmpty()) {
+            mUpdateCallback.onInserted(0, items.size());
+        }
+    }
+
+    /**
+     * Start recording changes instead of notifying the RecyclerView straight away.
+     * Changes are merged into as few notifications as possible and sent when
+     * {@link #commitBatch()} is called. Batches can be nested, only the outermost commit sends
+     * notifications
+     *
+     * @throws IllegalStateException if not called from the UI thread
+     */
+    public void beginBatch() {
+        checkMainThread();
+        if (mBatchDepth++ == 0) {
+            mBatch = new UpdateBatch(mNotifyingCallback);
+        }
+    }
+
+    /**
+     * Send the notifications for the changes made since {@link #beginBatch()}
+     *
+     * @throws IllegalStateException if not called from the UI thread or there is no batch to commit
+     */
+    public void commitBatch() {
+        checkMainThread();
+        if (mBatchDepth == 0) {
+            throw new IllegalStateException("commitBatch() called without beginBatch()");
+        }
+        if (--mBatchDepth == 0) {
+            UpdateBatch batch = mBatch;
+            mBatch = null;
+            if (mTraceSections != null) {
+                TraceCompat.beginSection(TraceSections.COMMIT_BATCH);
+            }
+            try {
+                batch.dispatch();
+            } finally {
+                if (mTraceSections != null) {
+                    TraceCompat.endSection();
+                }
+            }
+        }
+    }
+
+    /**
+     * Run the changes made by the runnable as a single batch
+     *
+     * @param changes makes the changes to the adapter
+     * @throws IllegalStateException if not called from the UI thread
+     * @see #beginBatch()
+     */
+    public void batch(@NonNull Runnable changes) {
+        checkNonNull(changes, "changes");
+        beginBatch();
+        try {
+            changes.run();
+        } finally {
+            commitBatch();
+        }
+    }
+
+    /**
+     * Clear all items from the adapter
+     *
+     * @throws IllegalStateException if not called from the UI thread
+     */
+    public void clear() {
+        checkMainThread();
+        cancelAllChanges();
+        int size = mBinders.size();
+        mHeader = null;
+        mFooter = null;
+        replaceAllBinders(Collections.<MultiTypeBinder>emptyList());
+        if (mPreparer != null) {
+            mPreparer.clear();
+        }
+        if (size > 0) {
+            mUpdateCallback.onRemoved(0, size);
+        }
+    }
+
+    /**
+     * Get all the binders in the adapter
+     *
+     * @return the binders in the adapter.
+     * Never null, will be an empty list if there isn't anything in the adapter
+     * @throws IllegalStateException if not called from the UI thread, or the adapter holds items
+     *                               added with {@link #addItem(ViewType, Object)}. Use
+     *                               {@link #getItems()} for those
+     */
+    @NonNull
+    public List<MultiTypeBinder> getBinders() {
+        checkMainThread();
+        if (hasDataItems()) {
+            throw new IllegalStateException("The adapter holds data for a MultiTypeDataBinder, "
+                    + "which isn't a MultiTypeBinder. Use getItems() instead");
+        }
+        return Collections.unmodifiableList(mBinders);
+    }
+
+    /**
+     * Get all the items in the adapter, as returned by {@link #getItem(int)}
+     *
+     * @return the MultiTypeBinders, and the data of the items added with
+     * {@link #addItem(ViewType, Object)}. Never null, will be an empty list if there isn't
+     * anything in the adapter
+     * @throws IllegalStateException if not called from the UI thread
+     */
+    @NonNull
+    public List<Object> getItems() {
+        checkMainThread();
+        return mItems;
+    }
+
+    /**
+     * Get all of the binders of a particular view type in the adapter. The list is a copy made
+     * in one pass over the adapter, so it doesn't change when the adapter does
+     *
+     * @param type the type of binders to get
+     * @return the binders in the adapter of the given type.
+     * Never null, will be an empty list if there isn't anything of the given type
+     * @throws IllegalStateException if not called from the UI thread
+     */
+    @NonNull
+    public List<MultiTypeBinder> getBinders(@Nullable ViewType type) {
+        checkMainThread();
+        if (type == null) {
+            return Collections.emptyList();
+        }
+        int viewType = type.getType();
+        int count = mTypeCounts.get(viewType);
+        List<MultiTypeBinder> results = new ArrayList<>(count);
+        for (int i = 0; i < mStore.size() && results.size() < count; i++) {
+            if (mStore.getViewType(i) == viewType) {
+                results.add(binderAt(i));
+            }
+        }
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Get the number of binders of a particular view type in the adapter
+     *
+     * @param type the type of binders to count
+     * @return the number of binders of the type
+     * @throws IllegalStateException if not called from the UI thread
+     */
+    public int getItemCount(@NonNull ViewType type) {
+        checkMainThread();
+        checkNonNull(type, "type");
+        return mTypeCounts.get(type.getType());
+    }
+
+    /**
+     * Get the binder at the position
+     *
+     * @param adapterPosition the position in the adapter to get
+     * @return the MultiTypeBinder or null if nothing at that position
+     * @throws IllegalStateException if not called from the UI thread or the item at the position
+     *                               was added with {@link #addItem(ViewType, Object)}
+     */
+    @Nullable
+    public MultiTypeBinder getBinder(int adapterPosition) {
+        checkMainThread();
+        if (adapterPosition < 0 || adapterPosition >= mBinders.size()) {
+            return null;
+        }
+        return mBinders.get(adapterPosition);
+    }
+
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        MultiTypeCreator creator = mViewCreators.get(viewType);
+        if (creator == null) {
             throw new IllegalArgumentException("Unknown viewType: " + viewType
                     + ". Make sure you call Builder.addCreator()");
         }
-        RecyclerView.ViewHolder holder = creator.onCreateViewHolder(parent);
-        if (!(holder instanceof MultiTypeViewHolder)) {
-            throw new RuntimeException("ViewHolder must implement MultiTypeViewHolder");
+        if (mTraceSections != null) {
+            TraceCompat.beginSection(mTraceSections.createSection(creator.getViewType()));
+        }
+        long start = mMetricsListener != null ? System.nanoTime() : 0;
+        RecyclerView.ViewHolder holder;
+        try {
+            holder = creator.onCreateViewHolder(parent);
+        } finally {
+            if (mTraceSections != null) {
+                TraceCompat.endSection();
+            }
+        }
+        if (mMetricsListener != null) {
+            mMetricsListener.onViewHolderCreated(creator.getViewType(), System.nanoTime() - start);
+        }
+        if (!(holder instanceof MultiTypeViewHolder)) {
+            throw new RuntimeException("ViewHolder must implement MultiTypeViewHolder");
+        }
+        if (mPoolAutoTuner != null) {
+            mPoolAutoTuner.onViewHolderCreated(viewType);
+        }
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+        bindViewHolder(holder, position, null);
+    }
+
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position,
+                                 List<Object> payloads) {
+        bindViewHolder(holder, position, payloads);
+    }
+
+    private void bindViewHolder(RecyclerView.ViewHolder holder, int position,
+                                @Nullable List<Object> payloads) {
+        long start = mMetricsListener != null ? System.nanoTime() : 0;
+        Object item = mStore.get(position);
+        if (item instanceof BinderSpiller.Tombstone) {
+            // not read back in time
+            item = mSpiller.read((BinderSpiller.Tombstone) item, true);
+        } else if (item instanceof BinderSnapshot.Entry) {
+            item = decode(position, (BinderSnapshot.Entry) item);
+        }
+        MultiTypeDataBinder<Object> dataBinder = dataBinderFor(mStore.getViewType(position));
+        if (mTraceSections != null) {
+            TraceCompat.beginSection(mTraceSections.bindSection(dataBinder != null
+                    ? dataBinder.getViewType() : ((MultiTypeBinder) item).getViewType()));
+        }
+        try {
+            if (dataBinder != null) {
+                bindData(holder, dataBinder, item);
+            } else {
+                bindBinder(holder, (MultiTypeBinder) item, payloads);
+            }
+        } finally {
+            if (mTraceSections != null) {
+                TraceCompat.endSection();
+            }
+        }
+        if (mMetricsListener != null) {
+            mMetricsListener.onViewHolderBound(dataBinder != null ? dataBinder.getViewType()
+                    : ((MultiTypeBinder) item).getViewType(), System.nanoTime() - start);
+        }
+        if (mPoolAutoTuner != null) {
+            mPoolAutoTuner.onViewHolderBound(mStore.getViewType(position));
+        }
+        if (mPageLoader != null && position >= headerOffset()) {
+            mPageLoader.onPositionBound(position - headerOffset());
+        }
+        if (mPreparer != null) {
+            mPreparer.onPositionBound(position, mStore);
+        }
+        if (mSpiller != null) {
+            mSpiller.onPositionBound(position, mStore,
+                    mFooter != null ? mStore.size() - 1 : mStore.size());
+        }
+    }
+
+    private void bindData(RecyclerView.ViewHolder holder, MultiTypeDataBinder<Object> dataBinder,
+                          Object data) {
+        mAsyncBinder.cancel(holder);
+        if (mFlingTracker != null) {
+            mFlingTracker.onFullyBoundOrRecycled(holder);
+        }
+        dataBinder.onBindViewHolder(holder, data);
+    }
+
+    private void bindBinder(RecyclerView.ViewHolder holder, MultiTypeBinder binder,
+                            @Nullable List<Object> payloads) {
+        if (payloads != null && !payloads.isEmpty() && binder instanceof PayloadMultiTypeBinder
+                && !payloads.contains(FlingTracker.FULL_BIND)) {
+            // the holder may have been showing another binder that was still loading
+            mAsyncBinder.cancelUnlessFor(holder, binder);
+            ((PayloadMultiTypeBinder) binder).onBindViewHolder(holder, payloads);
+            return;
+        }
+        // a full bind replaces whatever an earlier async bind was going to show
+        mAsyncBinder.cancel(holder);
+        if (mFlingTracker != null) {
+            if (mFlingTracker.isFlinging() && binder instanceof LightMultiTypeBinder) {
+                ((LightMultiTypeBinder) binder).onBindLightViewHolder(holder);
+                mFlingTracker.onLightBound(holder);
+                return;
+            }
+            mFlingTracker.onFullyBoundOrRecycled(holder);
+        }
+        if (binder instanceof PreparableMultiTypeBinder) {
+            bindPrepared(holder, (PreparableMultiTypeBinder<?>) binder);
+        } else if (binder instanceof AsyncMultiTypeBinder) {
+            mAsyncBinder.bind(holder, (AsyncMultiTypeBinder<?>) binder);
+        } else {
+            binder.onBindViewHolder(holder);
+        }
+    }
+
+    private <T> void bindPrepared(RecyclerView.ViewHolder holder,
+                                  PreparableMultiTypeBinder<T> binder) {
+        T prepared = mPreparer != null ? mPreparer.getPrepared(binder) : binder.prepare();
+        binder.onBindViewHolder(holder, prepared);
+    }
+
+    @Override
+    public int getItemCount() {
+        return mStore.size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        if (!hasStableIds()) {
+            return RecyclerView.NO_ID;
+        }
+        return getStableId(position);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return mStore.getViewType(position);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        if (mSharedPool != null) {
+            recyclerView.setRecycledViewPool(mSharedPool.getPool());
+        } else {
+            RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+            for (int i = 0; i < mMaxRecycledViews.size(); i++) {
+                int type = mMaxRecycledViews.keyAt(i);
+                if (mParent != null) {
+                    type = mParent.getViewType(this, type);
+                }
+                pool.setMaxRecycledViews(type, mMaxRecycledViews.valueAt(i));
+            }
+        }
+        if (mPoolAutoTuner != null) {
+            mPoolAutoTuner.attach(recyclerView.getRecycledViewPool());
+            recyclerView.addOnScrollListener(mPoolAutoTuner);
+        }
+        if (mFlingTracker != null) {
+            recyclerView.addOnScrollListener(mFlingTracker);
+        }
+        if (mPrewarmCounts.size() > 0) {
+            RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+            SparseIntArray remaining = mPrewarmRemaining.get(pool);
+            if (remaining == null) {
+                remaining = ViewHolderPrewarmer.copyOf(mPrewarmCounts);
+                mPrewarmRemaining.put(pool, remaining);
+            }
+            if (remaining.size() > 0) {
+                mPrewarmer = new ViewHolderPrewarmer(this, recyclerView, remaining);
+                mPrewarmer.start();
+            }
+        }
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        mAsyncBinder.cancelAll();
+        if (mFlingTracker != null) {
+            recyclerView.removeOnScrollListener(mFlingTracker);
+            mFlingTracker.reset();
+        }
+        if (mPoolAutoTuner != null) {
+            recyclerView.removeOnScrollListener(mPoolAutoTuner);
+            mPoolAutoTuner.detach();
+        }
+        if (mPrewarmer != null) {
+            mPrewarmer.stop();
+            mPrewarmer = null;
+        }
+    }
+
+    @Override
+    public void onViewRecycled(RecyclerView.ViewHolder holder) {
+        super.onViewRecycled(holder);
+        mAsyncBinder.cancel(holder);
+        if (mFlingTracker != null) {
+            mFlingTracker.onFullyBoundOrRecycled(holder);
+        }
+        if (mMetricsListener != null) {
+            mMetricsListener.onViewRecycled(viewTypeOf(holder));
+        }
+    }
+
+    @Override
+    public void onViewAttachedToWindow(RecyclerView.ViewHolder holder) {
+        super.onViewAttachedToWindow(holder);
+        ((MultiTypeViewHolder) holder).onViewAttachedToWindow();
+        if (mMetricsListener != null) {
+            mMetricsListener.onViewAttachedToWindow(viewTypeOf(holder));
+        }
+    }
+
+    @Override
+    public void onViewDetachedFromWindow(RecyclerView.ViewHolder holder) {
+        super.onViewDetachedFromWindow(holder);
+        ((MultiTypeViewHolder) holder).onViewDetachedToWindow();
+        if (mMetricsListener != null) {
+            mMetricsListener.onViewDetachedFromWindow(viewTypeOf(holder));
+        }
+    }
+
+    private ViewType viewTypeOf(RecyclerView.ViewHolder holder) {
+        int type = holder.getItemViewType();
+        if (mParent != null) {
+            type = mParent.getLocalViewType(type);
+        }
+        return mViewCreators.get(type).getViewType();
+    }
+
+    /**
+     * Check the adapter can be added to a composite, before any of the composite's adapters are
+     * changed
+     *
+     * @throws IllegalStateException    if the adapter is already part of a composite
+     * @throws IllegalArgumentException if the adapter uses a shared pool, auto tuning or prewarming
+     */
+    void checkCanJoinComposite() {
+        if (mParent != null) {
+            throw new IllegalStateException("The adapter is already part of a composite");
+        }
+        if (mSharedPool != null || mPoolAutoTuner != null || mPrewarmCounts.size() > 0) {
+            throw new IllegalArgumentException("An adapter in a composite can't use a shared "
+                    + "pool, auto tuning or prewarming");
+        }
+    }
+
+    /**
+     * Called when the adapter is added to a composite, once {@link #checkCanJoinComposite()} has
+     * passed. Positions and view types seen by the RecyclerView are then the composite's
+     */
+    void setParent(CompositeMultiTypeAdapter parent) {
+        mParent = parent;
+    }
+
+    /**
+     * Check the current thread is the main (UI) thread and throw an exception if not
+     *
+     * @throws IllegalStateException if this is not the main thread
+     */
+    private void checkMainThread() {
+        if (!mThreadHelper.isUiThread()) {
+            throw new IllegalStateException(
+                    "MultiTypeAdapter should only be used from the UI thread");
+        }
+    }
+
+    /**
+     * Called before the items are changed by anything other than a page loading or a change
+     * across frames. Drops any submitList() diff that is still being worked out. Changes across
+     * frames carry on from where the items have moved to
+     */
+    private void cancelPendingChanges() {
+        mGeneration++;
+    }
+
+    /**
+     * Called before all of the items are replaced. Finishes any changes being applied across
+     * frames, since they were asked for first, drops any submitList() diff and stops paging.
+     * Pages that are still loading are dropped
+     */
+    private void cancelAllChanges() {
+        mFrameSlicer.finishAll();
+        cancelPendingChanges();
+        if (mPageLoader != null) {
+            mPageLoader.cancel();
+            mPageLoader = null;
+            mPlaceholder = null;
+        }
+    }
+
+    /**
+     * @return the position after the items backed by the page source, or the first item position
+     * if the adapter isn't paging
+     */
+    private int pagedEnd() {
+        return headerOffset() + (mPageLoader != null ? mPageLoader.getItemCount() : 0);
+    }
+
+    /**
+     * Paged items can't be added before, removed or replaced, as the pages are loaded into fixed
+     * positions. Items can be added after them
+     *
+     * @param position the first position that would move or change
+     * @throws IllegalStateException if the position is one of the paged items
+     */
+    private void checkNotPaged(int position) {
+        if (position >= headerOffset() && position < pagedEnd()) {
+            throw new IllegalStateException("position: " + position + " is backed by the page "
+                    + "source. Paged items can't be added before, removed or replaced");
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if the adapter is backed by a page source
+     */
+    private void checkNotPaging() {
+        if (mPageLoader != null) {
+            throw new IllegalStateException("Items can't be removed by view type while the "
+                    + "adapter is backed by a page source");
+        }
+    }
+
+    private void insertBinder(int position, MultiTypeBinder binder) {
+        int type = binder.getViewType().getType();
+        checkBinderType(type);
+        insertItem(position, binder, type);
+    }
+
+    private void insertItem(int position, Object item, int type) {
+        mStore.add(position, item, type);
+        incrementTypeCount(type, 1);
+    }
+
+    private void insertBinders(int position, Collection<MultiTypeBinder> binders) {
+        List<MultiTypeBinder> list = binders instanceof List
+                ? (List<MultiTypeBinder>) binders : new ArrayList<>(binders);
+        int[] types = new int[list.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = list.get(i).getViewType().getType();
+            checkBinderType(types[i]);
+        }
+        insertItems(position, list, types);
+    }
+
+    private void insertItems(int position, List<?> items, int[] types) {
+        for (int type : types) {
+            incrementTypeCount(type, 1);
+        }
+        mStore.addAll(position, items, types);
+    }
+
+    private void replaceBinder(int position, MultiTypeBinder binder) {
+        int type = binder.getViewType().getType();
+        checkBinderType(type);
+        replaceItem(position, binder, type);
+    }
+
+    private void replaceItem(int position, Object item, int type) {
+        incrementTypeCount(mStore.getViewType(position), -1);
+        releaseItem(mStore.get(position));
+        mStore.set(position, item, type);
+        incrementTypeCount(type, 1);
+    }
+
+    private void removeBinder(int position) {
+        removeBinders(position, position + 1);
+    }
+
+    /**
+     * Remove the binders from the store and from their sections. A header or footer being removed
+     * must still be set when this is called
+     */
+    private void removeBinders(int start, int end) {
+        for (int i = start; i < end; i++) {
+            incrementTypeCount(mStore.getViewType(i), -1);
+            releaseItem(mStore.get(i));
+        }
+        int headerOffset = headerOffset();
+        int sectionStart = Math.max(start - headerOffset, 0);
+        int sectionEnd = Math.min(end - headerOffset, mSections.total());
+        if (sectionStart < sectionEnd) {
+            mSections.remove(sectionStart, sectionEnd - sectionStart);
+        }
+        mStore.removeRange(start, end);
+    }
+
+    /**
+     * Replace all the binders, including the header and footer if they are set. Any sections are
+     * removed
+     */
+    private void replaceAllBinders(Collection<MultiTypeBinder> binders) {
+        clearStore();
+        insertBinders(0, binders);
+        resetSections();
+    }
+
+    /**
+     * Remove every item from the store, emptying the spill file as none of it is needed any more
+     */
+    private void clearStore() {
+        mStore.clear();
+        mTypeCounts.clear();
+        if (mSpiller != null) {
+            mSpiller.clear();
+        }
+    }
+
+    /**
+     * Tell the spiller an item that may have been written out has been removed from the store
+     */
+    private void releaseItem(Object item) {
+        if (item instanceof BinderSpiller.Tombstone) {
+            mSpiller.release((BinderSpiller.Tombstone) item);
+        }
+    }
+
+    /**
+     * Remove all the sections, leaving the items between the header and footer outside any
+     */
+    private void resetSections() {
+        mSections.reset(mStore.size() - headerOffset() - (mFooter != null ? 1 : 0));
+    }
+
+    private int headerOffset() {
+        return mHeader != null ? 1 : 0;
+    }
+
+    /**
+     * @return where add() puts a binder, before the footer of the last section or before the
+     * footer
+     */
+    private int appendPosition() {
+        return headerOffset() + mSections.appendPosition();
+    }
+
+    private void checkSection(int section) {
+        if (section < 0 || section >= mSections.sectionCount()) {
+            throw new IndexOutOfBoundsException("section: " + section + " invalid. " +
+                    "Section count is " + mSections.sectionCount());
+        }
+    }
+
+    private void incrementTypeCount(int type, int delta) {
+        int count = mTypeCounts.get(type) + delta;
+        if (count == 0) {
+            mTypeCounts.delete(type);
+        } else {
+            mTypeCounts.put(type, count);
+        }
+    }
+
+    /**
+     * In debug mode, check that no two binders have the same stable id
+     *
+     * @throws IllegalStateException if there are duplicate ids
+     */
+    private void checkStableIds() {
+        if (!mDebug || !hasStableIds()) {
+            return;
+        }
+        Set<Long> ids = new HashSet<>(mStore.size());
+        for (int i = 0; i < mStore.size(); i++) {
+            long id = getStableId(i);
+            if (!ids.add(id)) {
+                throw new IllegalStateException("Duplicate stable id " + id + " for item "
+                        + mStore.get(i));
+            }
+        }
+    }
+
+    private long getStableId(int position) {
+        if (mPageLoader != null && position >= headerOffset() && position < pagedEnd()
+                && !mPageLoader.isLoaded(position - headerOffset())) {
+            // placeholders are all the same binder
+            return PLACEHOLDER_ID + position - headerOffset();
+        }
+        Object item = mStore.get(position);
+        MultiTypeDataBinder<Object> dataBinder = dataBinderFor(mStore.getViewType(position));
+        if (dataBinder != null) {
+            if (!(dataBinder instanceof StableIdDataBinder)) {
+                throw new IllegalStateException("Data binders must implement StableIdDataBinder "
+                        + "when stable ids are enabled. " + dataBinder + " does not");
+            }
+            return ((StableIdDataBinder<Object>) dataBinder).getItemId(item);
+        }
+        if (item instanceof BinderSpiller.Tombstone
+                && ((BinderSpiller.Tombstone) item).hasItemId()) {
+            return ((BinderSpiller.Tombstone) item).getItemId();
+        }
+        if (item instanceof BinderSnapshot.Entry && ((BinderSnapshot.Entry) item).hasItemId()) {
+            return ((BinderSnapshot.Entry) item).getItemId();
+        }
+        if (!(item instanceof StableIdBinder)) {
+            throw new IllegalStateException("Binders must implement StableIdBinder when stable "
+                    + "ids are enabled. " + item + " does not");
+        }
+        return ((StableIdBinder) item).getItemId();
+    }
+
+    /**
+     * @return the data binder for the view type, or null if its items are binders
+     */
+    @SuppressWarnings("unchecked")
+    private MultiTypeDataBinder<Object> dataBinderFor(int type) {
+        return mDataBinders == null ? null : (MultiTypeDataBinder<Object>) mDataBinders.get(type);
+    }
+
+    /**
+     * Get the binder at the position
+     *
+     * @throws IllegalStateException if the item at the position is data for a data binder
+     */
+    private MultiTypeBinder binderAt(int position) {
+        if (dataBinderFor(mStore.getViewType(position)) != null) {
+            throw new IllegalStateException("The item at position " + position + " is data for a "
+                    + "MultiTypeDataBinder, not a MultiTypeBinder. Use getItem() instead");
+        }
+        return (MultiTypeBinder) itemAt(position);
+    }
+
+    /**
+     * @return true if any of the items were added with addItem() or addItems()
+     */
+    private boolean hasDataItems() {
+        if (mDataBinders == null) {
+            return false;
+        }
+        for (int i = 0; i < mDataBinders.size(); i++) {
+            if (mTypeCounts.get(mDataBinders.keyAt(i)) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the item at the position, reading it back from disk if it has been written out
+     */
+    private Object itemAt(int position) {
+        Object item = mStore.get(position);
+        if (item instanceof BinderSpiller.Tombstone) {
+            return mSpiller.read((BinderSpiller.Tombstone) item, false);
+        }
+        if (item instanceof BinderSnapshot.Entry) {
+            return decode(position, (BinderSnapshot.Entry) item);
+        }
+        return item;
+    }
+
+    /**
+     * Decode a binder restored from a snapshot and keep it in place of the entry. It's the same
+     * item, so nothing is notified
+     */
+    private MultiTypeBinder decode(int position, BinderSnapshot.Entry entry) {
+        MultiTypeBinder binder;
+        try {
+            binder = entry.decode(mCodecs);
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't decode " + entry + " from the snapshot", e);
+        }
+        mStore.set(position, binder, mStore.getViewType(position));
+        if (mSpiller != null) {
+            // it can be written out now it's a binder
+            mSpiller.onChanged(position, 1);
         }
-        return holder;
+        return binder;
     }
 
-    @Override
-    public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
-        MultiTypeBinder binder = mBinders.get(position);
-        binder.onBindViewHolder(holder);
+    private void checkDataType(ViewType viewType) {
+        if (dataBinderFor(viewType.getType()) == null) {
+            throw new IllegalArgumentException("No data binder added for view type " + viewType
+                    + ". Make sure you call Builder.addDataBinder()");
+        }
     }
 
-    @Override
-    public int getItemCount() {
-        return mBinders.size();
+    /**
+     * @throws IllegalArgumentException if the view type's items are data rather than binders
+     */
+    private void checkBinderType(int type) {
+        if (dataBinderFor(type) != null) {
+            throw new IllegalArgumentException("View type " + type + " is bound by a "
+                    + "MultiTypeDataBinder. Add its data with addItem() instead");
+        }
     }
 
-    @Override
-    public int getItemViewType(int position) {
-        return mBinders.get(position).getViewType().getType();
+    private static synchronized Executor getDefaultBackgroundExecutor() {
+        if (sDefaultBackgroundExecutor == null) {
+            sDefaultBackgroundExecutor = Executors.newSingleThreadExecutor();
+        }
+        return sDefaultBackgroundExecutor;
     }
 
-    @Override
-    public void onViewRecycled(RecyclerView.ViewHolder holder) {
-        super.onViewRecycled(holder);
+    private static void checkNonNull(Object check, String objectName) {
+        if (check == null) {
+            throw new NullPointerException(objectName + " cannot be null");
+        }
     }
 
-    @Override
-    public void onViewAttachedToWindow(RecyclerView.ViewHolder holder) {
-        super.onViewAttachedToWindow(holder);
-        ((MultiTypeViewHolder) holder).onViewAttachedToWindow();
+    /**
+     * Adds binders where add() would a slice at a time, notifying each frame's slice as one insert
+     */
+    private final class AddAllChange implements FrameSlicer.Change {
+
+        private final List<MultiTypeBinder> mToAdd;
+        private int mAdded;
+
+        AddAllChange(List<MultiTypeBinder> toAdd) {
+            mToAdd = toAdd;
+        }
+
+        @Override
+        public boolean applySlice(long deadlineNanos) {
+            int position = appendPosition();
+            int sliceStart = mAdded;
+            do {
+                int end = Math.min(mToAdd.size(), mAdded + FrameSlicer.ITEMS_BETWEEN_CHECKS);
+                insertBinders(position + mAdded - sliceStart, mToAdd.subList(mAdded, end));
+                mSections.append(end - mAdded);
+                mAdded = end;
+            } while (mAdded < mToAdd.size() && !FrameSlicer.isPast(deadlineNanos));
+            if (mAdded > sliceStart) {
+                mUpdateCallback.onInserted(position, mAdded - sliceStart);
+            }
+            return mAdded == mToAdd.size();
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            // each slice is added at the append position as it is then
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+        }
     }
 
-    @Override
-    public void onViewDetachedFromWindow(RecyclerView.ViewHolder holder) {
-        super.onViewDetachedFromWindow(holder);
-        ((MultiTypeViewHolder) holder).onViewDetachedToWindow();
+    /**
+     * Removes the binders of a view type a run at a time, working from the end of the list so
+     * that the positions still to be looked at don't move. If items of the view type are added
+     * behind the scan it starts again from the end once it reaches the start
+     */
+    private final class RemoveAllOfChange implements FrameSlicer.Change {
+
+        private final int mType;
+
+        /**
+         * Everything from here on has been looked at, or -1 before the first slice
+         */
+        private int mScanPosition = -1;
+
+        RemoveAllOfChange(int type) {
+            mType = type;
+        }
+
+        @Override
+        public boolean applySlice(long deadlineNanos) {
+            if (mScanPosition == -1) {
+                mScanPosition = mStore.size();
+            }
+            int examined = 0;
+            while (mTypeCounts.get(mType) > 0) {
+                if (mScanPosition == 0) {
+                    mScanPosition = mStore.size();
+                }
+                if (examined >= FrameSlicer.ITEMS_BETWEEN_CHECKS) {
+                    if (FrameSlicer.isPast(deadlineNanos)) {
+                        return false;
+                    }
+                    examined = 0;
+                }
+                int runEnd = mScanPosition;
+                while (mScanPosition > 0 && mStore.getViewType(mScanPosition - 1) == mType) {
+                    mScanPosition--;
+                }
+                if (mScanPosition == runEnd) {
+                    mScanPosition--;
+                    examined++;
+                } else {
+                    boolean removesFooter = mFooter != null && runEnd == mStore.size();
+                    boolean removesHeader = mHeader != null && mScanPosition == 0;
+                    removeBinders(mScanPosition, runEnd);
+                    if (removesFooter) {
+                        mFooter = null;
+                    }
+                    if (removesHeader) {
+                        mHeader = null;
+                    }
+                    mUpdateCallback.onRemoved(mScanPosition, runEnd - mScanPosition);
+                    examined += runEnd - mScanPosition;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            if (position < mScanPosition) {
+                mScanPosition += count;
+            }
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            if (position < mScanPosition) {
+                mScanPosition -= Math.min(count, mScanPosition - position);
+            }
+        }
     }
 
     /**
-     * Check the current thread is the main (UI) thread and throw an exception if not
-     *
-     * @throws IllegalStateException if this is not the main thread
+     * Read only view of the binders in {@link #mStore}
      */
-    private void checkMainThread() {
-        if (!mThreadHelper.isUiThread()) {
-            throw new IllegalStateException(
-                    "MultiTypeAdapter should only be used from the UI thread");
+    private final class BinderStoreList extends AbstractList<MultiTypeBinder>
+            implements RandomAccess {
+
+        @Override
+        public MultiTypeBinder get(int index) {
+            return binderAt(index);
+        }
+
+        @Override
+        public int size() {
+            return mStore.size();
         }
     }
 
-    private static void checkNonNull(Object check, String objectName) {
-        if (check == null) {
-            throw new NullPointerException(objectName + " cannot be null");
+    /**
+     * Read only view of the items in {@link #mStore}, as returned by getItem()
+     */
+    private final class ItemStoreList extends AbstractList<Object> implements RandomAccess {
+
+        @Override
+        public Object get(int index) {
+            return itemAt(index);
+        }
+
+        @Override
+        public int size() {
+            return mStore.size();
+        }
+    }
+
+    /**
+     * The state returned by {@link MultiTypeAdapter#onSaveInstanceState()}. Holds either a small
+     * snapshot of the binders or the path of the file a large one was written to
+     */
+    public static class SavedState implements Parcelable {
+
+        public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel source) {
+                return new SavedState(source.createByteArray(), source.readString());
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+
+        private final byte[] mSnapshot;
+        private final String mSnapshotPath;
+
+        SavedState(@Nullable byte[] snapshot, @Nullable String snapshotPath) {
+            mSnapshot = snapshot;
+            mSnapshotPath = snapshotPath;
+        }
+
+        @Override
+        public int describeContents() {
+            return 0;
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            dest.writeByteArray(mSnapshot);
+            dest.writeString(mSnapshotPath);
         }
     }
 
@@ -325,7 +2491,29 @@ public final class MultiTypeAdapter extends RecyclerView.Adapter<RecyclerView.Vi
     public final static class Builder {
 
         private final List<MultiTypeCreator> mCreators = new ArrayList<>();
+        private final SparseArray<MultiTypeDataBinder<?>> mDataBinders = new SparseArray<>();
+        private final SparseArray<BinderCodec<?>> mCodecs = new SparseArray<>();
+        private final List<ViewType> mRequiredViewTypes = new ArrayList<>();
         private ThreadHelper mThreadHelper = ThreadHelper.DEFAULT;
+        private Executor mBackgroundExecutor;
+        private boolean mStableIds;
+        private BinderStorage mStorage = BinderStorage.ARRAY;
+        private int mPageSize = 50;
+        private int mPrefetchDistance = 50;
+        private int mMaxPagesInMemory = 10;
+        private final SparseIntArray mPrewarmCounts = new SparseIntArray();
+        private final SparseIntArray mMaxRecycledViews = new SparseIntArray();
+        private SharedRecycledViewPool mSharedPool;
+        private int mAutoTuneMaxRecycledViews;
+        private MetricsListener mMetricsListener;
+        private boolean mTraceSections;
+        private int mPrepareDistance;
+        private int mLightBindVelocity;
+        private long mFrameBudgetNanos = FrameSlicer.DEFAULT_FRAME_BUDGET_NANOS;
+        private File mSpillFile;
+        private int mMaxBindersInMemory;
+        private File mStateFile;
+        private boolean mDebug;
 
         /**
          * Register a MultiTypeCreator to be used by the adapter.
@@ -340,6 +2528,109 @@ public final class MultiTypeAdapter extends RecyclerView.Adapter<RecyclerView.Vi
             return this;
         }
 
+        /**
+         * Register the data binder for a view type. Items of the view type are then added as data
+         * with {@link MultiTypeAdapter#addItem(ViewType, Object)} instead of as binders. A creator
+         * must still be added for the view type
+         *
+         * @param dataBinder the data binder to add
+         * @return this for method chaining
+         * @throws IllegalStateException if a data binder has already been added for the view type
+         */
+        public Builder addDataBinder(@NonNull MultiTypeDataBinder<?> dataBinder) {
+            checkNonNull(dataBinder, "dataBinder");
+            int type = dataBinder.getViewType().getType();
+            MultiTypeDataBinder<?> existing = mDataBinders.get(type);
+            if (existing != null) {
+                throw new IllegalStateException("View type " + type + " has more than one "
+                        + "data binder: " + existing + " and " + dataBinder);
+            }
+            mDataBinders.put(type, dataBinder);
+            return this;
+        }
+
+        /**
+         * Register the codec for a view type, so its binders can be written out of memory.
+         * See {@link #spillToDisk(File, int)} and {@link MultiTypeAdapter#saveSnapshot(File)}
+         *
+         * @param codec the codec to add
+         * @return this for method chaining
+         * @throws IllegalStateException if a codec has already been added for the view type
+         */
+        public Builder addCodec(@NonNull BinderCodec<?> codec) {
+            checkNonNull(codec, "codec");
+            int type = codec.getViewType().getType();
+            BinderCodec<?> existing = mCodecs.get(type);
+            if (existing != null) {
+                throw new IllegalStateException("View type " + type + " has more than one "
+                        + "codec: " + existing + " and " + codec);
+            }
+            mCodecs.put(type, codec);
+            return this;
+        }
+
+        /**
+         * Keep only the binders around the bound position in memory, however many are added.
+         * Binders further away whose view type has a codec are written to the end of the file on
+         * the background executor and read back before they're near enough to be bound.
+         * <p/>
+         * Once most of the file belongs to binders that have been removed, the rest are moved to
+         * a second file with ".1" added to the name and the first is emptied. Both files are
+         * emptied whenever all of the items are replaced, and anything already in them is
+         * overwritten. While another adapter is using the file "-1", "-2" and so on are added to
+         * the name, until it calls {@link MultiTypeAdapter#release()} or is garbage collected.
+         * The old list is read from the files on the background executor by
+         * {@link MultiTypeAdapter#submitList(List)}, but other reads of binders far from the
+         * bound position, such as {@link MultiTypeAdapter#getBinders()}, read them on the UI
+         * thread
+         *
+         * @param file               the file to write binders to, usually in the cache directory
+         * @param maxBindersInMemory the number of binders around the bound position to keep in
+         *                           memory. Should be well over the number on screen
+         * @return this for method chaining
+         */
+        public Builder spillToDisk(@NonNull File file, int maxBindersInMemory) {
+            checkNonNull(file, "file");
+            if (maxBindersInMemory < 1) {
+                throw new IllegalArgumentException("maxBindersInMemory must be at least 1");
+            }
+            mSpillFile = file;
+            mMaxBindersInMemory = maxBindersInMemory;
+            return this;
+        }
+
+        /**
+         * Set the file {@link MultiTypeAdapter#onSaveInstanceState()} writes the binders to on the
+         * background executor, instead of encoding them into the saved state on the UI thread.
+         * The file is replaced each time the state is saved and kept when it's restored, so use
+         * the same file for the same list and a different one for each list shown at once
+         *
+         * @param file the file, usually in the cache directory
+         * @return this for method chaining
+         */
+        public Builder instanceStateFile(@NonNull File file) {
+            checkNonNull(file, "file");
+            mStateFile = file;
+            return this;
+        }
+
+        /**
+         * Make sure a creator has been added for each of the view types when the adapter is built,
+         * instead of failing when the first item of a missing view type is shown.
+         * For an enum of view types pass {@code values()}
+         *
+         * @param viewTypes the view types that need a creator
+         * @return this for method chaining
+         */
+        public Builder requireCreatorsFor(@NonNull ViewType... viewTypes) {
+            checkNonNull(viewTypes, "viewTypes");
+            for (ViewType viewType : viewTypes) {
+                checkNonNull(viewType, "viewType");
+                mRequiredViewTypes.add(viewType);
+            }
+            return this;
+        }
+
         /**
          * Set the thread helper - useful for testing
          *
@@ -353,10 +2644,256 @@ public final class MultiTypeAdapter extends RecyclerView.Adapter<RecyclerView.Vi
             return this;
         }
 
+        /**
+         * Set the executor used for work done off the UI thread, such as calculating the
+         * difference between lists in submitList(). Defaults to a single background thread shared
+         * by all adapters
+         *
+         * @param executor the executor
+         * @return this for method chaining
+         */
+        public Builder backgroundExecutor(@NonNull Executor executor) {
+            checkNonNull(executor, "executor");
+            mBackgroundExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Prepare {@link PreparableMultiTypeBinder}s on the background executor before they are
+         * bound. When a position is bound, the binders up to this many positions further on in the
+         * direction of scrolling are prepared. Without this, binders are prepared as they're bound
+         *
+         * @param prepareDistance the number of positions ahead to prepare, or 0 to not prepare
+         *                        ahead
+         * @return this for method chaining
+         */
+        public Builder prepareDistance(int prepareDistance) {
+            if (prepareDistance < 0) {
+                throw new IllegalArgumentException("prepareDistance must not be negative");
+            }
+            mPrepareDistance = prepareDistance;
+            return this;
+        }
+
+        /**
+         * Give {@link LightMultiTypeBinder}s a light bind while the list is flung faster than
+         * this. When the fling slows down or stops, the view holders that had a light bind are
+         * fully bound
+         *
+         * @param pixelsPerSecond the fling velocity above which to use light binds, or 0 to always
+         *                        fully bind
+         * @return this for method chaining
+         */
+        public Builder lightBindAboveVelocity(int pixelsPerSecond) {
+            if (pixelsPerSecond < 0) {
+                throw new IllegalArgumentException("pixelsPerSecond must not be negative");
+            }
+            mLightBindVelocity = pixelsPerSecond;
+            return this;
+        }
+
+        /**
+         * Set how long each frame may spend applying
+         * {@link MultiTypeAdapter#addAllAcrossFrames} and
+         * {@link MultiTypeAdapter#removeAllOfAcrossFrames}. Defaults to 4ms, a quarter of a frame
+         * at 60 frames per second
+         *
+         * @param budgetNanos the time to spend each frame, in nanoseconds
+         * @return this for method chaining
+         */
+        public Builder frameBudgetNanos(long budgetNanos) {
+            if (budgetNanos <= 0) {
+                throw new IllegalArgumentException("budgetNanos must be positive");
+            }
+            mFrameBudgetNanos = budgetNanos;
+            return this;
+        }
+
+        /**
+         * Choose how the binders are stored
+         *
+         * @param storage the storage to use. Defaults to {@link BinderStorage#ARRAY}
+         * @return this for method chaining
+         */
+        public Builder storage(@NonNull BinderStorage storage) {
+            checkNonNull(storage, "storage");
+            mStorage = storage;
+            return this;
+        }
+
+        /**
+         * Create view holders for the view type before they are needed. Once the adapter is
+         * attached to a RecyclerView, one view holder is created each time the UI thread is idle
+         * and put in the RecyclerView's pool until there are count of them. The pool is made big
+         * enough to hold them all. Each pool is only prewarmed once, so attaching to a RecyclerView
+         * with the same pool again only creates the ones that hadn't been created yet
+         *
+         * @param viewType the view type to create view holders for. Its creator must be added
+         * @param count    the number of view holders to create
+         * @return this for method chaining
+         */
+        public Builder prewarm(@NonNull ViewType viewType, int count) {
+            checkNonNull(viewType, "viewType");
+            if (count < 0) {
+                throw new IllegalArgumentException("count cannot be negative");
+            }
+            if (count == 0) {
+                mPrewarmCounts.delete(viewType.getType());
+            } else {
+                mPrewarmCounts.put(viewType.getType(), count);
+            }
+            return this;
+        }
+
+        /**
+         * Set the number of view holders of the view type the RecyclerView's pool keeps for reuse.
+         * Raise it for view types that fill the screen many times over, so view holders aren't
+         * thrown away and created again while scrolling
+         *
+         * @param viewType         the view type
+         * @param maxRecycledViews the number of view holders to keep. The RecyclerView default is 5
+         * @return this for method chaining
+         */
+        public Builder maxRecycledViews(@NonNull ViewType viewType, int maxRecycledViews) {
+            checkNonNull(viewType, "viewType");
+            if (maxRecycledViews < 0) {
+                throw new IllegalArgumentException("maxRecycledViews cannot be negative");
+            }
+            mMaxRecycledViews.put(viewType.getType(), maxRecycledViews);
+            return this;
+        }
+
+        /**
+         * Let the adapter size the pool for each view type while the list is scrolled. View types
+         * that keep needing new view holders get a bigger pool, view types that aren't being
+         * shown are shrunk back towards the size set by {@link #maxRecycledViews(ViewType, int)}
+         *
+         * @param maxRecycledViews the most view holders to keep for any one view type
+         * @return this for method chaining
+         */
+        public Builder autoTuneRecycledViews(int maxRecycledViews) {
+            if (maxRecycledViews < 1) {
+                throw new IllegalArgumentException("maxRecycledViews must be at least 1");
+            }
+            mAutoTuneMaxRecycledViews = maxRecycledViews;
+            return this;
+        }
+
+        /**
+         * Measure how long each view type takes to create and bind. When no listener is set
+         * nothing is measured
+         *
+         * @param listener told about each create, bind, recycle, attach and detach, or null
+         * @return this for method chaining
+         * @see MetricsAggregator
+         */
+        public Builder metricsListener(@Nullable MetricsListener listener) {
+            mMetricsListener = listener;
+            return this;
+        }
+
+        /**
+         * Wrap creates, binds, submitList() diffs and batch commits in system trace sections so
+         * they show up in systrace and Perfetto captures. Create and bind sections are named
+         * after the view type, which uses the enum name if the view type is an enum
+         *
+         * @param traceSections true to write trace sections
+         * @return this for method chaining
+         */
+        public Builder traceSections(boolean traceSections) {
+            mTraceSections = traceSections;
+            return this;
+        }
+
+        /**
+         * Share a pool of view holders with other adapters. The pool is set on the RecyclerView
+         * when the adapter is attached
+         *
+         * @param pool the pool to share
+         * @return this for method chaining
+         */
+        public Builder recycledViewPool(@NonNull SharedRecycledViewPool pool) {
+            checkNonNull(pool, "pool");
+            mSharedPool = pool;
+            return this;
+        }
+
+        /**
+         * Set the number of items loaded at a time when using
+         * {@link MultiTypeAdapter#setPageSource(BinderPageSource, MultiTypeBinder)}
+         *
+         * @param pageSize the number of items in a page. Defaults to 50
+         * @return this for method chaining
+         */
+        public Builder pageSize(int pageSize) {
+            if (pageSize < 1) {
+                throw new IllegalArgumentException("pageSize must be at least 1");
+            }
+            mPageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * Set how close to a bound position, in items, a page has to be before it is loaded when
+         * using {@link MultiTypeAdapter#setPageSource(BinderPageSource, MultiTypeBinder)}
+         *
+         * @param prefetchDistance the number of items. Defaults to 50
+         * @return this for method chaining
+         */
+        public Builder prefetchDistance(int prefetchDistance) {
+            if (prefetchDistance < 0) {
+                throw new IllegalArgumentException("prefetchDistance cannot be negative");
+            }
+            mPrefetchDistance = prefetchDistance;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of pages held in memory when using
+         * {@link MultiTypeAdapter#setPageSource(BinderPageSource, MultiTypeBinder)}.
+         * Must be enough to cover the prefetch distance either side of a page, which is checked
+         * when the page source is set
+         *
+         * @param maxPagesInMemory the number of pages. Defaults to 10
+         * @return this for method chaining
+         */
+        public Builder maxPagesInMemory(int maxPagesInMemory) {
+            mMaxPagesInMemory = maxPagesInMemory;
+            return this;
+        }
+
+        /**
+         * Use stable ids so the RecyclerView can keep the same view holder for an item when the
+         * data changes. All binders must implement {@link StableIdBinder}
+         *
+         * @param stableIds true to use stable ids. Defaults to false
+         * @return this for method chaining
+         */
+        public Builder stableIds(boolean stableIds) {
+            mStableIds = stableIds;
+            return this;
+        }
+
+        /**
+         * Turn on extra checks that are too slow for release builds, such as checking that stable
+         * ids are unique after every change
+         *
+         * @param debug true to turn on the checks. Defaults to false
+         * @return this for method chaining
+         */
+        public Builder debug(boolean debug) {
+            mDebug = debug;
+            return this;
+        }
+
         /**
          * Build the adapter
          *
          * @return the newly created adapter
+         * @throws IllegalStateException if more than one creator was added for a view type or a
+         *                               required or prewarmed view type has no creator. Or if an
+         *                               adapter sharing the pool uses a different kind of creator
+         *                               for one of the view types
          */
         public MultiTypeAdapter build() {
             return new MultiTypeAdapter(this);
@@ -10,7 +10,8 @@ import android.support.v7.widget.RecyclerView;
 public interface MultiTypeBinder {
 
     /**
-     * Get the ViewType that this binder represents
+     * Get the ViewType that this binder represents.
+     * The adapter reads this once when the binder is added, so it must not change afterwards
      *
      * @return the ViewType
      */
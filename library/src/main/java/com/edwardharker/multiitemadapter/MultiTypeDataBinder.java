@@ -0,0 +1,33 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * Binds the data for every item of one view type. Unlike a {@link MultiTypeBinder}, which is
+ * created for each item and holds its data, one MultiTypeDataBinder is added to the adapter with
+ * {@link MultiTypeAdapter.Builder#addDataBinder(MultiTypeDataBinder)} and the items are just their
+ * data, added with {@link MultiTypeAdapter#addItem(ViewType, Object)}. The adapter then only
+ * holds the data object and view type for each item, which saves memory on very large lists.
+ *
+ * @param <T> the type of data bound
+ */
+public interface MultiTypeDataBinder<T> {
+
+    /**
+     * Get the view type this binds
+     *
+     * @return the view type
+     */
+    @NonNull
+    ViewType getViewType();
+
+    /**
+     * The equivalent of Adapter.onBindViewHolder()
+     *
+     * @param holder the view holder to bind
+     * @param data   the data of the item being bound
+     */
+    void onBindViewHolder(RecyclerView.ViewHolder holder, T data);
+
+}
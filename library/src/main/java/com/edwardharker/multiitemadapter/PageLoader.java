@@ -0,0 +1,153 @@
+package com.edwardharker.multiitemadapter;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads pages from a {@link BinderPageSource} as positions near them are bound, and unloads the
+ * least recently used pages once more than the maximum are loaded.
+ * Everything except loading the page happens on the UI thread.
+ */
+final class PageLoader {
+
+    interface Callback {
+
+        /**
+         * A page has been loaded and should replace the placeholders from startPosition
+         */
+        void onPageLoaded(int startPosition, List<MultiTypeBinder> binders);
+
+        /**
+         * A page has been unloaded and should be replaced with placeholders
+         */
+        void onPageUnloaded(int startPosition, int count);
+
+    }
+
+    private final BinderPageSource mSource;
+    private final int mItemCount;
+    private final int mPageSize;
+    private final int mPrefetchDistance;
+    private final int mMaxPages;
+    private final Executor mExecutor;
+    private final ThreadHelper mThreadHelper;
+    private final Callback mCallback;
+
+    /**
+     * The loaded pages, least recently bound first
+     */
+    private final Map<Integer, Integer> mLoadedPages = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<Integer> mLoadingPages = new HashSet<>();
+
+    /**
+     * Set on the UI thread, read on the executor's thread before loading a page
+     */
+    private volatile boolean mCancelled;
+
+    PageLoader(BinderPageSource source, int itemCount, int pageSize, int prefetchDistance,
+               int maxPages, Executor executor, ThreadHelper threadHelper, Callback callback) {
+        mSource = source;
+        mItemCount = itemCount;
+        mPageSize = pageSize;
+        mPrefetchDistance = prefetchDistance;
+        mMaxPages = maxPages;
+        mExecutor = executor;
+        mThreadHelper = threadHelper;
+        mCallback = callback;
+    }
+
+    /**
+     * Load any pages within the prefetch distance of the position that aren't loaded yet
+     *
+     * @param position the position that has been bound
+     */
+    void onPositionBound(int position) {
+        if (mCancelled || position >= mItemCount) {
+            return;
+        }
+        // mark the page as recently used
+        mLoadedPages.get(position / mPageSize);
+        int firstPage = Math.max(0, position - mPrefetchDistance) / mPageSize;
+        int lastPage = Math.min(mItemCount - 1, position + mPrefetchDistance) / mPageSize;
+        for (int page = firstPage; page <= lastPage; page++) {
+            if (!mLoadedPages.containsKey(page) && !mLoadingPages.contains(page)) {
+                load(page);
+            }
+        }
+    }
+
+    /**
+     * @return the number of positions backed by the source
+     */
+    int getItemCount() {
+        return mItemCount;
+    }
+
+    /**
+     * @return true if the page of the position is loaded, rather than showing placeholders
+     */
+    boolean isLoaded(int position) {
+        // containsKey() doesn't count as an access, so it doesn't change which page is unloaded
+        return mLoadedPages.containsKey(position / mPageSize);
+    }
+
+    /**
+     * Stop loading pages. Pages that are still loading are dropped
+     */
+    void cancel() {
+        mCancelled = true;
+    }
+
+    private void load(final int page) {
+        mLoadingPages.add(page);
+        final int startPosition = page * mPageSize;
+        final int count = Math.min(mPageSize, mItemCount - startPosition);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<MultiTypeBinder> loaded = null;
+                if (!mCancelled) {
+                    try {
+                        loaded = mSource.loadPage(startPosition, count);
+                    } catch (RuntimeException e) {
+                        // leave it unloaded, it will be tried again next time it's near
+                    }
+                }
+                final List<MultiTypeBinder> binders = loaded;
+                mThreadHelper.postToUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPageLoaded(page, startPosition, count, binders);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onPageLoaded(int page, int startPosition, int count,
+                              List<MultiTypeBinder> binders) {
+        mLoadingPages.remove(page);
+        if (mCancelled || binders == null) {
+            return;
+        }
+        if (binders.size() != count) {
+            throw new IllegalStateException("BinderPageSource.loadPage() returned "
+                    + binders.size() + " binders for page at " + startPosition + ", expected "
+                    + count);
+        }
+        mLoadedPages.put(page, count);
+        mCallback.onPageLoaded(startPosition, binders);
+        Iterator<Map.Entry<Integer, Integer>> eldest = mLoadedPages.entrySet().iterator();
+        while (mLoadedPages.size() > mMaxPages) {
+            Map.Entry<Integer, Integer> entry = eldest.next();
+            eldest.remove();
+            mCallback.onPageUnloaded(entry.getKey() * mPageSize, entry.getValue());
+        }
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.edwardharker.multiitemadapter;
+
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+
+import java.util.List;
+
+/**
+ * A MultiTypeBinder that can update part of the view holder instead of binding everything again.
+ * Payloads are sent with {@link MultiTypeAdapter#update(int, MultiTypeBinder, Object)}
+ */
+public interface PayloadMultiTypeBinder extends MultiTypeBinder {
+
+    /**
+     * The equivalent of Adapter.onBindViewHolder() with payloads. Only update the parts of the
+     * view holder described by the payloads. Only called when there is at least one payload,
+     * otherwise {@link #onBindViewHolder(RecyclerView.ViewHolder)} is called
+     *
+     * @param holder   The ViewHolder which is already bound to this item
+     * @param payloads The payloads sent since the view holder was last bound. Never empty
+     */
+    void onBindViewHolder(RecyclerView.ViewHolder holder, @NonNull List<Object> payloads);
+
+}
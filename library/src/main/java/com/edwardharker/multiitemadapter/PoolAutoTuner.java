@@ -0,0 +1,140 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+
+/**
+ * Sizes the RecyclerView's pool from how view holders are used while scrolling.
+ * <p/>
+ * Scrolling is watched in windows of {@link #BINDS_PER_WINDOW} binds. A view type that needed new
+ * view holders during a window didn't have enough in the pool, so its pool grows by the number
+ * created, up to the maximum. A view type that isn't bound at all for
+ * {@link #IDLE_WINDOWS_BEFORE_SHRINK} windows has its pool halved, down to the size it started at.
+ * Creating and binding outside of scrolling, such as the first layout, is ignored.
+ */
+final class PoolAutoTuner extends RecyclerView.OnScrollListener {
+
+    static final int BINDS_PER_WINDOW = 100;
+    static final int IDLE_WINDOWS_BEFORE_SHRINK = 5;
+
+    private final int mMaxRecycledViews;
+
+    /**
+     * The size each view type starts at and never shrinks below, where it isn't the default
+     */
+    private final SparseIntArray mMinRecycledViews;
+
+    /**
+     * The current size of the pool for each view type seen so far
+     */
+    private final SparseIntArray mSizes = new SparseIntArray();
+
+    private final SparseIntArray mWindowCreates = new SparseIntArray();
+    private final SparseIntArray mWindowBinds = new SparseIntArray();
+    private final SparseIntArray mIdleWindows = new SparseIntArray();
+    private int mWindowBindCount;
+
+    private RecyclerView.RecycledViewPool mPool;
+    private boolean mScrolling;
+
+    /**
+     * @param maxRecycledViews the most view holders the pool will hold for any view type
+     * @param minRecycledViews the starting size for view types that don't use the default
+     */
+    PoolAutoTuner(int maxRecycledViews, SparseIntArray minRecycledViews) {
+        mMaxRecycledViews = maxRecycledViews;
+        mMinRecycledViews = minRecycledViews;
+    }
+
+    /**
+     * Start tuning the pool
+     */
+    void attach(RecyclerView.RecycledViewPool pool) {
+        mPool = pool;
+        for (int i = 0; i < mSizes.size(); i++) {
+            mPool.setMaxRecycledViews(mSizes.keyAt(i), mSizes.valueAt(i));
+        }
+    }
+
+    /**
+     * Stop tuning the pool
+     */
+    void detach() {
+        mPool = null;
+        mScrolling = false;
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        mScrolling = newState != RecyclerView.SCROLL_STATE_IDLE;
+    }
+
+    void onViewHolderCreated(int viewType) {
+        if (mScrolling && mPool != null) {
+            mWindowCreates.put(viewType, mWindowCreates.get(viewType) + 1);
+        }
+    }
+
+    void onViewHolderBound(int viewType) {
+        if (!mScrolling || mPool == null) {
+            return;
+        }
+        mWindowBinds.put(viewType, mWindowBinds.get(viewType) + 1);
+        if (++mWindowBindCount >= BINDS_PER_WINDOW) {
+            endWindow();
+        }
+    }
+
+    /**
+     * @return the current pool size for the view type
+     */
+    int getSize(int viewType) {
+        return mSizes.get(viewType, minSize(viewType));
+    }
+
+    private void endWindow() {
+        for (int i = 0; i < mWindowBinds.size(); i++) {
+            track(mWindowBinds.keyAt(i));
+        }
+        for (int i = 0; i < mWindowCreates.size(); i++) {
+            track(mWindowCreates.keyAt(i));
+        }
+        for (int i = 0; i < mSizes.size(); i++) {
+            int viewType = mSizes.keyAt(i);
+            int size = mSizes.valueAt(i);
+            int newSize = size;
+            int creates = mWindowCreates.get(viewType);
+            if (creates > 0) {
+                newSize = Math.min(mMaxRecycledViews, size + creates);
+                mIdleWindows.delete(viewType);
+            } else if (mWindowBinds.get(viewType) == 0) {
+                int idleWindows = mIdleWindows.get(viewType) + 1;
+                if (idleWindows >= IDLE_WINDOWS_BEFORE_SHRINK) {
+                    newSize = Math.max(minSize(viewType), size / 2);
+                    idleWindows = 0;
+                }
+                mIdleWindows.put(viewType, idleWindows);
+            } else {
+                mIdleWindows.delete(viewType);
+            }
+            if (newSize != size) {
+                mSizes.put(viewType, newSize);
+                mPool.setMaxRecycledViews(viewType, newSize);
+            }
+        }
+        mWindowCreates.clear();
+        mWindowBinds.clear();
+        mWindowBindCount = 0;
+    }
+
+    private void track(int viewType) {
+        if (mSizes.indexOfKey(viewType) < 0) {
+            mSizes.put(viewType, minSize(viewType));
+        }
+    }
+
+    private int minSize(int viewType) {
+        return mMinRecycledViews.get(viewType, ViewHolderPrewarmer.DEFAULT_MAX_RECYCLED_VIEWS);
+    }
+
+}
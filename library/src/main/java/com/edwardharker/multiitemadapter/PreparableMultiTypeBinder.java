@@ -0,0 +1,37 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.annotation.WorkerThread;
+import android.support.v7.widget.RecyclerView;
+
+/**
+ * A MultiTypeBinder that splits binding into work that doesn't touch views, such as formatting
+ * text or building spans, and applying the result to the view holder.
+ * <p/>
+ * When {@link MultiTypeAdapter.Builder#prepareDistance(int)} is set, {@link #prepare()} is called
+ * on the background executor for binders close to the ones being bound, so binding only has to
+ * apply the result. If the result isn't ready in time, prepare() is called on the UI thread
+ * instead. {@link #onBindViewHolder(RecyclerView.ViewHolder)} isn't called by the adapter, but
+ * should do the same as {@code onBindViewHolder(holder, prepare())}
+ *
+ * @param <T> the type of the prepared result
+ */
+public interface PreparableMultiTypeBinder<T> extends MultiTypeBinder {
+
+    /**
+     * Do the work needed to bind that doesn't touch views. May be called on any thread and more
+     * than once
+     *
+     * @return the result to bind with, may be null
+     */
+    @WorkerThread
+    T prepare();
+
+    /**
+     * Bind the view holder with the prepared result
+     *
+     * @param holder   the view holder to bind
+     * @param prepared the result of {@link #prepare()}
+     */
+    void onBindViewHolder(RecyclerView.ViewHolder holder, T prepared);
+
+}
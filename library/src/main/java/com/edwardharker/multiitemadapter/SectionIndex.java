@@ -0,0 +1,207 @@
+package com.edwardharker.multiitemadapter;
+
+/**
+ * The sections of the adapter's items, not counting the adapter's header and footer. The items
+ * are split into runs: run 0 holds the items before the first section and each section is a run
+ * after it. Finding the section of a position and the first position of a section are O(log n) in
+ * the number of sections.
+ * <p/>
+ * Positions are from the first item after the adapter's header
+ */
+final class SectionIndex {
+
+    private static final int FLAG_HEADER = 1;
+    private static final int FLAG_FOOTER = 2;
+
+    /**
+     * The number of items in each run
+     */
+    private final FenwickTree mLengths = new FenwickTree();
+
+    /**
+     * Whether each run starts with a header and ends with a footer
+     */
+    private final IntArrayList mFlags = new IntArrayList();
+
+    SectionIndex() {
+        reset(0);
+    }
+
+    /**
+     * Remove all of the sections
+     *
+     * @param itemCount the number of items, which are now all before the first section
+     */
+    void reset(int itemCount) {
+        mLengths.reset(new int[]{itemCount}, 1);
+        mFlags.clear();
+        mFlags.add(0, 0);
+    }
+
+    /**
+     * @return the number of items in all the runs
+     */
+    int total() {
+        return mLengths.total();
+    }
+
+    int sectionCount() {
+        return mLengths.size() - 1;
+    }
+
+    /**
+     * Add a section after the last one
+     *
+     * @param length    the number of items in the section, including its header and footer
+     * @param hasHeader true if the first item is the section's header
+     * @param hasFooter true if the last item is the section's footer
+     * @return the index of the section
+     */
+    int addSection(int length, boolean hasHeader, boolean hasFooter) {
+        mLengths.append(length);
+        mFlags.add(mFlags.size(), (hasHeader ? FLAG_HEADER : 0) | (hasFooter ? FLAG_FOOTER : 0));
+        return sectionCount() - 1;
+    }
+
+    /**
+     * Remove a section that has no items left. O(n) in the number of sections
+     */
+    void removeSection(int section) {
+        int run = section + 1;
+        int[] lengths = new int[mLengths.size() - 1];
+        for (int i = 0, j = 0; i < mLengths.size(); i++) {
+            if (i != run) {
+                lengths[j++] = mLengths.get(i);
+            }
+        }
+        mLengths.reset(lengths, lengths.length);
+        mFlags.remove(run);
+    }
+
+    /**
+     * @return the section the position is in, or {@link MultiTypeAdapter#NO_SECTION} if it's
+     * before the first section
+     */
+    int sectionOf(int position) {
+        return mLengths.indexOf(position) - 1;
+    }
+
+    /**
+     * @return the position of the first item in the section
+     */
+    int start(int section) {
+        return mLengths.prefixSum(section + 1);
+    }
+
+    /**
+     * @return the number of items in the section, including its header and footer
+     */
+    int length(int section) {
+        return mLengths.get(section + 1);
+    }
+
+    boolean hasHeader(int section) {
+        return (mFlags.get(section + 1) & FLAG_HEADER) != 0;
+    }
+
+    boolean hasFooter(int section) {
+        return (mFlags.get(section + 1) & FLAG_FOOTER) != 0;
+    }
+
+    /**
+     * @return where an item added to the end of the section goes, before its footer
+     */
+    int endPosition(int section) {
+        return endOfRun(section + 1);
+    }
+
+    /**
+     * @return where an item added to the end of the items goes, before the last section's footer
+     */
+    int appendPosition() {
+        return endOfRun(mLengths.size() - 1);
+    }
+
+    /**
+     * Add items at the end of a section, before its footer
+     */
+    void insertInSection(int section, int count) {
+        mLengths.add(section + 1, count);
+    }
+
+    /**
+     * Add items at {@link #appendPosition()}
+     */
+    void append(int count) {
+        mLengths.add(mLengths.size() - 1, count);
+    }
+
+    /**
+     * @return true if items can be added at the position with {@link #insert(int, int)}. They
+     * can't be added between a section's footer and the next section's header, or after the last
+     * section's footer
+     */
+    boolean canInsert(int position) {
+        return runForInsert(position) >= 0;
+    }
+
+    /**
+     * Add items at a position. They join the run of the item before them, unless it is a
+     * section's footer, in which case they join the next run. That may be an empty section
+     */
+    void insert(int position, int count) {
+        int run = runForInsert(position);
+        if (run < 0) {
+            throw new IllegalArgumentException("position: " + position + " is between sections");
+        }
+        mLengths.add(run, count);
+    }
+
+    /**
+     * Remove items, which may span several runs. A section whose header or footer is removed no
+     * longer has one
+     */
+    void remove(int position, int count) {
+        while (count > 0) {
+            int run = mLengths.indexOf(position);
+            int start = mLengths.prefixSum(run);
+            int end = start + mLengths.get(run);
+            int removed = Math.min(count, end - position);
+            int flags = mFlags.get(run);
+            if (position == start) {
+                flags &= ~FLAG_HEADER;
+            }
+            if (position + removed == end) {
+                flags &= ~FLAG_FOOTER;
+            }
+            mFlags.set(run, flags);
+            mLengths.add(run, -removed);
+            // the next run now starts at the same position
+            count -= removed;
+        }
+    }
+
+    private int endOfRun(int run) {
+        int end = mLengths.prefixSum(run + 1);
+        return (mFlags.get(run) & FLAG_FOOTER) != 0 ? end - 1 : end;
+    }
+
+    private int runForInsert(int position) {
+        if (position == 0) {
+            // run 0 has no header
+            return 0;
+        }
+        int before = mLengths.indexOf(position - 1);
+        if (position < mLengths.prefixSum(before + 1)
+                || (mFlags.get(before) & FLAG_FOOTER) == 0) {
+            return before;
+        }
+        int after = before + 1;
+        if (after == mLengths.size()) {
+            return -1;
+        }
+        // an empty section has no header
+        return (mFlags.get(after) & FLAG_HEADER) == 0 ? after : -1;
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.annotation.NonNull;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import java.util.List;
+
+/**
+ * A RecycledViewPool that can be shared by several MultiTypeAdapters, such as the pages of a
+ * ViewPager, so view holders created for one can be reused by the others.
+ * Set with {@link MultiTypeAdapter.Builder#recycledViewPool(SharedRecycledViewPool)}.
+ * <p/>
+ * Because view holders are shared by view type, every adapter must use the same kind of creator for
+ * a view type. This is checked as each adapter is built, but only by the creator's class, so two
+ * instances of one class that create different views, such as from different layouts, aren't
+ * caught. Give those different view types. The pool holds as many view holders of a type as the
+ * adapter that asked for the most.
+ */
+public final class SharedRecycledViewPool {
+
+    private final RecyclerView.RecycledViewPool mPool;
+
+    /**
+     * The class of the creator used for each view type by the adapters sharing the pool
+     */
+    private final SparseArray<Class<?>> mCreatorClasses = new SparseArray<>();
+
+    private final SparseIntArray mMaxRecycledViews = new SparseIntArray();
+
+    public SharedRecycledViewPool() {
+        this(new RecyclerView.RecycledViewPool());
+    }
+
+    /**
+     * @param pool the pool to share
+     */
+    public SharedRecycledViewPool(@NonNull RecyclerView.RecycledViewPool pool) {
+        if (pool == null) {
+            throw new NullPointerException("pool cannot be null");
+        }
+        mPool = pool;
+    }
+
+    /**
+     * @return the pool being shared
+     */
+    @NonNull
+    public RecyclerView.RecycledViewPool getPool() {
+        return mPool;
+    }
+
+    /**
+     * Add an adapter's creators and pool sizes
+     *
+     * @param creators         the adapter's creators
+     * @param maxRecycledViews the number of view holders the adapter wants kept for each view type
+     * @throws IllegalStateException if another adapter uses a creator of a different class for one
+     *                               of the view types
+     */
+    void register(List<MultiTypeCreator> creators, SparseIntArray maxRecycledViews) {
+        for (MultiTypeCreator creator : creators) {
+            int type = creator.getViewType().getType();
+            Class<?> existing = mCreatorClasses.get(type);
+            if (existing != null && existing != creator.getClass()) {
+                throw new IllegalStateException("View type " + type + " is created by "
+                        + existing.getName() + " in another adapter sharing this pool, not "
+                        + creator.getClass().getName());
+            }
+        }
+        for (MultiTypeCreator creator : creators) {
+            mCreatorClasses.put(creator.getViewType().getType(), creator.getClass());
+        }
+        for (int i = 0; i < maxRecycledViews.size(); i++) {
+            int type = maxRecycledViews.keyAt(i);
+            int max = maxRecycledViews.valueAt(i);
+            if (max > mMaxRecycledViews.get(type)) {
+                mMaxRecycledViews.put(type, max);
+                mPool.setMaxRecycledViews(type, max);
+            }
+        }
+    }
+
+}
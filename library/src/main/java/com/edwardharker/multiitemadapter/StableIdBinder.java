@@ -0,0 +1,17 @@
+package com.edwardharker.multiitemadapter;
+
+/**
+ * A MultiTypeBinder with an id that is unique within the adapter and doesn't change for the
+ * item it represents. Every binder must implement this when stable ids are turned on with
+ * {@link MultiTypeAdapter.Builder#stableIds(boolean)}
+ */
+public interface StableIdBinder extends MultiTypeBinder {
+
+    /**
+     * The equivalent of Adapter.getItemId()
+     *
+     * @return the stable id of the item
+     */
+    long getItemId();
+
+}
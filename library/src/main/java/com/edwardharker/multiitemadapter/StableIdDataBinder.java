@@ -0,0 +1,21 @@
+package com.edwardharker.multiitemadapter;
+
+/**
+ * A MultiTypeDataBinder that gives each item a stable id. Required for items added with
+ * {@link MultiTypeAdapter#addItem(ViewType, Object)} when
+ * {@link MultiTypeAdapter.Builder#stableIds(boolean)} is turned on
+ *
+ * @param <T> the type of data bound
+ */
+public interface StableIdDataBinder<T> extends MultiTypeDataBinder<T> {
+
+    /**
+     * Get the stable id of an item. Every item in the adapter must have a different id and an
+     * item's id must not change
+     *
+     * @param data the data of the item
+     * @return the id
+     */
+    long getItemId(T data);
+
+}
@@ -1,6 +1,10 @@
 package com.edwardharker.multiitemadapter;
 
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
 import android.os.Looper;
+import android.view.Choreographer;
 
 /**
  * Handy thread related functions
@@ -9,6 +13,13 @@ public class ThreadHelper {
 
     public static final ThreadHelper DEFAULT = new ThreadHelper();
 
+    /**
+     * How long to wait for the next frame when Choreographer isn't available
+     */
+    private static final long FRAME_DELAY_MILLIS = 16;
+
+    private Handler mMainHandler;
+
     /**
      * @return true if the current thread is the UI thread
      */
@@ -16,4 +27,54 @@ public class ThreadHelper {
         return Looper.getMainLooper().equals(Looper.myLooper());
     }
 
-}
\ No newline at end of file
+    /**
+     * Run the runnable on the UI thread at some point in the future
+     *
+     * @param runnable the runnable to run
+     */
+    public void postToUiThread(Runnable runnable) {
+        synchronized (this) {
+            if (mMainHandler == null) {
+                mMainHandler = new Handler(Looper.getMainLooper());
+            }
+        }
+        mMainHandler.post(runnable);
+    }
+
+    /**
+     * Run the runnable on the UI thread when the next frame starts. Must be called from the UI
+     * thread. Before Jelly Bean, when there's no Choreographer, it runs after a frame's worth of
+     * time instead
+     *
+     * @param runnable the runnable to run
+     */
+    public void postToNextFrame(Runnable runnable) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            FrameCallbacks.post(runnable);
+        } else {
+            synchronized (this) {
+                if (mMainHandler == null) {
+                    mMainHandler = new Handler(Looper.getMainLooper());
+                }
+            }
+            mMainHandler.postDelayed(runnable, FRAME_DELAY_MILLIS);
+        }
+    }
+
+    /**
+     * Kept apart so Choreographer is only loaded on versions that have it
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static final class FrameCallbacks {
+
+        static void post(final Runnable runnable) {
+            Choreographer.getInstance().postFrameCallback(new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    runnable.run();
+                }
+            });
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.edwardharker.multiitemadapter;
+
+import android.util.SparseArray;
+
+/**
+ * Names the system trace sections the adapter writes when
+ * {@link MultiTypeAdapter.Builder#traceSections(boolean)} is on, so they show up in systrace and
+ * Perfetto captures. Create and bind sections are named after the view type, e.g.
+ * "MultiTypeAdapter bind HEADER". The names are built once for each view type so tracing doesn't
+ * allocate on every bind.
+ * <p/>
+ * The tracesummary tool parses these names, so change it too if they change.
+ */
+final class TraceSections {
+
+    static final String PREFIX = "MultiTypeAdapter ";
+    static final String CREATE = PREFIX + "create ";
+    static final String BIND = PREFIX + "bind ";
+    static final String DIFF = PREFIX + "diff";
+    static final String DISPATCH_DIFF = PREFIX + "dispatch diff";
+    static final String COMMIT_BATCH = PREFIX + "commit batch";
+
+    /**
+     * android.os.Trace throws if a section name is longer than this
+     */
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+
+    private final SparseArray<String> mCreateSections = new SparseArray<>();
+    private final SparseArray<String> mBindSections = new SparseArray<>();
+
+    String createSection(ViewType viewType) {
+        return section(mCreateSections, CREATE, viewType);
+    }
+
+    String bindSection(ViewType viewType) {
+        return section(mBindSections, BIND, viewType);
+    }
+
+    /**
+     * Get a readable name for a view type. Enums use their name, anything else uses its class
+     * name and type
+     */
+    static String nameOf(ViewType viewType) {
+        if (viewType instanceof Enum) {
+            return ((Enum<?>) viewType).name();
+        }
+        return viewType.getClass().getSimpleName() + "(" + viewType.getType() + ")";
+    }
+
+    private static String section(SparseArray<String> sections, String prefix, ViewType viewType) {
+        String section = sections.get(viewType.getType());
+        if (section == null) {
+            section = prefix + nameOf(viewType);
+            if (section.length() > MAX_SECTION_NAME_LENGTH) {
+                section = section.substring(0, MAX_SECTION_NAME_LENGTH);
+            }
+            sections.put(viewType.getType(), section);
+        }
+        return section;
+    }
+
+}
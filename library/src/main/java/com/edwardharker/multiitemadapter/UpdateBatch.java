@@ -0,0 +1,255 @@
+package com.edwardharker.multiitemadapter;
+
+import android.support.v7.util.ListUpdateCallback;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records list updates and merges them into as few updates as possible before passing them on.
+ * <p/>
+ * The list as it will be after the updates is kept as runs of items that were in the list before
+ * the batch and runs of inserted items. Each update splits and joins the runs, shifting the
+ * positions of the updates before it. When the batch is dispatched the gaps between the old runs
+ * are sent as removes, the inserted runs as inserts and the changed old runs as changes, each
+ * merged with its neighbours. Removing items that were inserted in the batch cancels the insert
+ * and changes to inserted items are dropped because they will be bound anyway. Changes to the
+ * same item with different payloads are merged into a change without a payload.
+ * <p/>
+ * Moves aren't recorded, they send the updates so far first.
+ */
+final class UpdateBatch implements ListUpdateCallback {
+
+    /**
+     * The payload of an old run that hasn't changed
+     */
+    private static final Object UNCHANGED = new Object();
+
+    /**
+     * The old index of an inserted run
+     */
+    private static final int INSERTED = -1;
+
+    /**
+     * A run of positions in the list after the updates
+     */
+    private static final class Run {
+
+        /**
+         * The index before the batch of the first item, or {@link #INSERTED}
+         */
+        int mOldStart;
+        int mCount;
+
+        /**
+         * For old runs, {@link #UNCHANGED} or the payload they changed with
+         */
+        Object mPayload;
+
+        Run(int oldStart, int count, Object payload) {
+            mOldStart = oldStart;
+            mCount = count;
+            mPayload = payload;
+        }
+
+        boolean isInserted() {
+            return mOldStart == INSERTED;
+        }
+    }
+
+    private final ListUpdateCallback mTarget;
+
+    /**
+     * The runs from the start of the list, up to the last position an update has touched
+     */
+    private final List<Run> mRuns = new ArrayList<>();
+
+    /**
+     * The number of positions covered by {@link #mRuns}
+     */
+    private int mRunsCount;
+
+    /**
+     * The old index of the first item after {@link #mRuns}. Everything from there on is as it was
+     * before the batch
+     */
+    private int mTailOldStart;
+
+    /**
+     * The change being merged with its neighbours while dispatching
+     */
+    private int mChangePosition;
+    private int mChangeCount;
+    private Object mChangePayload;
+
+    UpdateBatch(ListUpdateCallback target) {
+        mTarget = target;
+    }
+
+    @Override
+    public void onInserted(int position, int count) {
+        if (count <= 0) {
+            return;
+        }
+        int index = split(position);
+        if (index > 0 && mRuns.get(index - 1).isInserted()) {
+            mRuns.get(index - 1).mCount += count;
+        } else if (index < mRuns.size() && mRuns.get(index).isInserted()) {
+            mRuns.get(index).mCount += count;
+        } else {
+            mRuns.add(index, new Run(INSERTED, count, null));
+        }
+        mRunsCount += count;
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+        if (count <= 0) {
+            return;
+        }
+        int start = split(position);
+        int end = split(position + count);
+        // removed old items become a gap between the old runs, removed inserted items are gone
+        mRuns.subList(start, end).clear();
+        mRunsCount -= count;
+        join(start);
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+        dispatch();
+        mTarget.onMoved(fromPosition, toPosition);
+    }
+
+    @Override
+    public void onChanged(int position, int count, Object payload) {
+        if (count <= 0) {
+            return;
+        }
+        int start = split(position);
+        int end = split(position + count);
+        for (int i = start; i < end; i++) {
+            Run run = mRuns.get(i);
+            if (run.isInserted()) {
+                // inserted items are bound from scratch
+                continue;
+            }
+            if (run.mPayload == UNCHANGED) {
+                run.mPayload = payload;
+            } else if (run.mPayload != payload) {
+                run.mPayload = null;
+            }
+        }
+        for (int i = end; i >= start; i--) {
+            join(i);
+        }
+    }
+
+    /**
+     * Pass on the updates that have been recorded
+     */
+    void dispatch() {
+        int position = 0;
+        int oldIndex = 0;
+        for (Run run : mRuns) {
+            if (run.isInserted()) {
+                sendChange();
+                mTarget.onInserted(position, run.mCount);
+            } else {
+                if (run.mOldStart > oldIndex) {
+                    sendChange();
+                    mTarget.onRemoved(position, run.mOldStart - oldIndex);
+                }
+                if (run.mPayload != UNCHANGED) {
+                    change(position, run.mCount, run.mPayload);
+                }
+                oldIndex = run.mOldStart + run.mCount;
+            }
+            position += run.mCount;
+        }
+        sendChange();
+        if (mTailOldStart > oldIndex) {
+            mTarget.onRemoved(position, mTailOldStart - oldIndex);
+        }
+        mRuns.clear();
+        mRunsCount = 0;
+        mTailOldStart = 0;
+    }
+
+    /**
+     * Make sure a run starts at the position, extending the runs from the tail if needed
+     *
+     * @return the index of the run that starts at the position
+     */
+    private int split(int position) {
+        if (position >= mRunsCount) {
+            int count = position - mRunsCount;
+            if (count > 0) {
+                mRuns.add(new Run(mTailOldStart, count, UNCHANGED));
+                mTailOldStart += count;
+                mRunsCount = position;
+            }
+            return mRuns.size();
+        }
+        int start = 0;
+        for (int i = 0; i < mRuns.size(); i++) {
+            Run run = mRuns.get(i);
+            if (position == start) {
+                return i;
+            }
+            if (position < start + run.mCount) {
+                int before = position - start;
+                Run after = new Run(run.isInserted() ? INSERTED : run.mOldStart + before,
+                        run.mCount - before, run.mPayload);
+                run.mCount = before;
+                mRuns.add(i + 1, after);
+                return i + 1;
+            }
+            start += run.mCount;
+        }
+        return mRuns.size();
+    }
+
+    /**
+     * Join the run at the index with the one before it if they can be treated as one
+     */
+    private void join(int index) {
+        if (index <= 0 || index >= mRuns.size()) {
+            return;
+        }
+        Run before = mRuns.get(index - 1);
+        Run run = mRuns.get(index);
+        boolean joins = before.isInserted()
+                ? run.isInserted()
+                : !run.isInserted() && before.mOldStart + before.mCount == run.mOldStart
+                && before.mPayload == run.mPayload;
+        if (joins) {
+            before.mCount += run.mCount;
+            mRuns.remove(index);
+        }
+    }
+
+    /**
+     * Record a change, merging it with the one before if they are next to each other
+     */
+    private void change(int position, int count, Object payload) {
+        if (mChangeCount > 0 && mChangePosition + mChangeCount == position
+                && mChangePayload == payload) {
+            mChangeCount += count;
+            return;
+        }
+        sendChange();
+        mChangePosition = position;
+        mChangeCount = count;
+        mChangePayload = payload;
+    }
+
+    private void sendChange() {
+        if (mChangeCount > 0) {
+            mTarget.onChanged(mChangePosition, mChangeCount, mChangePayload);
+            mChangeCount = 0;
+            mChangePayload = null;
+        }
+    }
+
+}
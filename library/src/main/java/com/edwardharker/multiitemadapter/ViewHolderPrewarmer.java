@@ -0,0 +1,94 @@
+package com.edwardharker.multiitemadapter;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.v7.widget.RecyclerView;
+import android.util.SparseIntArray;
+
+/**
+ * Creates view holders ahead of time and puts them in the RecyclerView's pool, so the first
+ * scroll through a screen doesn't have to inflate them. One view holder is created each time the
+ * UI thread is idle so frames are never held up by more than a single inflation.
+ */
+final class ViewHolderPrewarmer implements MessageQueue.IdleHandler {
+
+    /**
+     * The pool holds this many view holders of each type unless told otherwise
+     */
+    static final int DEFAULT_MAX_RECYCLED_VIEWS = 5;
+
+    private final RecyclerView.Adapter<RecyclerView.ViewHolder> mAdapter;
+    private final RecyclerView mRecyclerView;
+
+    /**
+     * The number of view holders still to create for each view type. Counted down as they're
+     * created, so a later prewarmer given the same counts carries on from there
+     */
+    private final SparseIntArray mRemaining;
+
+    private boolean mStarted;
+
+    /**
+     * @param adapter      the adapter to create view holders with
+     * @param recyclerView the RecyclerView whose pool the view holders are put in
+     * @param remaining    the number of view holders to create for each view type, which is
+     *                     counted down as they're created
+     */
+    ViewHolderPrewarmer(RecyclerView.Adapter<RecyclerView.ViewHolder> adapter,
+                        RecyclerView recyclerView, SparseIntArray remaining) {
+        mAdapter = adapter;
+        mRecyclerView = recyclerView;
+        mRemaining = remaining;
+    }
+
+    /**
+     * Start creating view holders when the UI thread is idle. The pool must already be big enough
+     * to hold them
+     */
+    void start() {
+        Looper.myQueue().addIdleHandler(this);
+        mStarted = true;
+    }
+
+    /**
+     * Stop creating view holders
+     */
+    void stop() {
+        if (mStarted) {
+            Looper.myQueue().removeIdleHandler(this);
+            mStarted = false;
+        }
+    }
+
+    /**
+     * SparseIntArray.clone() needs API 14
+     */
+    static SparseIntArray copyOf(SparseIntArray array) {
+        SparseIntArray copy = new SparseIntArray(array.size());
+        for (int i = 0; i < array.size(); i++) {
+            copy.append(array.keyAt(i), array.valueAt(i));
+        }
+        return copy;
+    }
+
+    @Override
+    public boolean queueIdle() {
+        if (mRemaining.size() == 0) {
+            mStarted = false;
+            return false;
+        }
+        int viewType = mRemaining.keyAt(0);
+        int remaining = mRemaining.valueAt(0) - 1;
+        if (remaining <= 0) {
+            mRemaining.removeAt(0);
+        } else {
+            mRemaining.put(viewType, remaining);
+        }
+        // createViewHolder() sets the view type on the holder, which the pool needs
+        RecyclerView.ViewHolder holder = mAdapter.createViewHolder(mRecyclerView, viewType);
+        mRecyclerView.getRecycledViewPool().putRecycledView(holder);
+        mStarted = mRemaining.size() > 0;
+        return mStarted;
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.edwardharker.multiitemadapter.tracesummary;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the sections written by MultiTypeAdapter out of an ftrace text trace, such as a systrace
+ * HTML file or a Perfetto trace converted with "traceconv systrace".
+ * <p/>
+ * Sections are "tracing_mark_write: B|pid|name" and "tracing_mark_write: E|pid" lines. They nest,
+ * so each thread has a stack of the sections it has begun. Any other lines are skipped.
+ */
+final class AtraceParser {
+
+    /**
+     * Must match TraceSections.PREFIX in the library
+     */
+    static final String PREFIX = "MultiTypeAdapter ";
+
+    private static final Pattern LINE = Pattern.compile(
+            "^\\s*.+-(\\d+)\\s+(?:\\(\\s*[\\d-]+\\)\\s+)?\\[\\d+\\]\\s+(?:\\S{4,5}\\s+)?"
+                    + "(\\d+)\\.(\\d+):\\s+tracing_mark_write:\\s+([BE])(?:\\|\\d+)?(?:\\|(.*))?$");
+
+    private final Map<String, Deque<Section>> mStacks = new HashMap<>();
+    private final Map<String, List<Long>> mDurations = new LinkedHashMap<>();
+
+    /**
+     * Parse a trace
+     *
+     * @param reader the trace
+     * @return the durations in nanoseconds of each MultiTypeAdapter section, by section name
+     */
+    static Map<String, List<Long>> parse(BufferedReader reader) throws IOException {
+        AtraceParser parser = new AtraceParser();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            parser.parseLine(line);
+        }
+        return parser.mDurations;
+    }
+
+    private void parseLine(String line) {
+        if (!line.contains("tracing_mark_write")) {
+            return;
+        }
+        Matcher matcher = LINE.matcher(line);
+        if (!matcher.matches()) {
+            return;
+        }
+        String tid = matcher.group(1);
+        long timestampNanos = toNanos(matcher.group(2), matcher.group(3));
+        Deque<Section> stack = mStacks.get(tid);
+        if (stack == null) {
+            stack = new ArrayDeque<>();
+            mStacks.put(tid, stack);
+        }
+        if (matcher.group(4).equals("B")) {
+            String name = matcher.group(5);
+            stack.push(new Section(name == null ? "" : name.trim(), timestampNanos));
+        } else if (!stack.isEmpty()) {
+            Section section = stack.pop();
+            if (section.mName.startsWith(PREFIX)) {
+                List<Long> durations = mDurations.get(section.mName);
+                if (durations == null) {
+                    durations = new ArrayList<>();
+                    mDurations.put(section.mName, durations);
+                }
+                durations.add(timestampNanos - section.mStartNanos);
+            }
+        }
+    }
+
+    /**
+     * Convert a timestamp in seconds, split at the decimal point, to nanoseconds
+     */
+    static long toNanos(String seconds, String fraction) {
+        String nanos = fraction.length() > 9 ? fraction.substring(0, 9) : fraction;
+        while (nanos.length() < 9) {
+            nanos = nanos + "0";
+        }
+        return Long.parseLong(seconds) * 1000000000L + Long.parseLong(nanos);
+    }
+
+    private static final class Section {
+
+        private final String mName;
+        private final long mStartNanos;
+
+        Section(String name, long startNanos) {
+            mName = name;
+            mStartNanos = startNanos;
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.edwardharker.multiitemadapter.tracesummary;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Prints the p50, p95 and p99 create and bind time for each view type in a trace captured with
+ * MultiTypeAdapter.Builder.traceSections(true)
+ * <p/>
+ * Usage: java -jar tracesummary.jar trace.html
+ */
+public final class TraceSummary {
+
+    private static final String CREATE = AtraceParser.PREFIX + "create ";
+    private static final String BIND = AtraceParser.PREFIX + "bind ";
+
+    private TraceSummary() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java -jar tracesummary.jar <ftrace text or systrace html>");
+            System.exit(1);
+        }
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(args[0]), "UTF-8"));
+        try {
+            print(summarise(AtraceParser.parse(reader)), System.out);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Work out the percentiles for each create and bind section
+     *
+     * @param durations the section durations from {@link AtraceParser#parse(BufferedReader)}
+     * @return a row for each view type and stage, sorted by view type
+     */
+    static List<Row> summarise(Map<String, List<Long>> durations) {
+        List<Row> rows = new ArrayList<>();
+        for (Map.Entry<String, List<Long>> entry : durations.entrySet()) {
+            String name = entry.getKey();
+            if (name.startsWith(CREATE)) {
+                rows.add(new Row(name.substring(CREATE.length()), "create", entry.getValue()));
+            } else if (name.startsWith(BIND)) {
+                rows.add(new Row(name.substring(BIND.length()), "bind", entry.getValue()));
+            }
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+
+    static void print(List<Row> rows, PrintStream out) {
+        out.println(String.format(Locale.US, "%-32s %-6s %8s %10s %10s %10s",
+                "view type", "stage", "count", "p50 ms", "p95 ms", "p99 ms"));
+        for (Row row : rows) {
+            out.println(String.format(Locale.US, "%-32s %-6s %8d %10.3f %10.3f %10.3f",
+                    row.mViewType, row.mStage, row.mCount,
+                    row.mP50Nanos / 1e6, row.mP95Nanos / 1e6, row.mP99Nanos / 1e6));
+        }
+    }
+
+    /**
+     * Get a percentile using the nearest rank
+     *
+     * @param sorted     the values, in ascending order
+     * @param percentile between 0 and 100
+     * @return the smallest value that at least percentile percent of values are no more than
+     */
+    static long percentile(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(sorted.size() * percentile / 100);
+        return sorted.get(Math.max(0, rank - 1));
+    }
+
+    static final class Row implements Comparable<Row> {
+
+        final String mViewType;
+        final String mStage;
+        final int mCount;
+        final long mP50Nanos;
+        final long mP95Nanos;
+        final long mP99Nanos;
+
+        Row(String viewType, String stage, List<Long> durations) {
+            List<Long> sorted = new ArrayList<>(durations);
+            Collections.sort(sorted);
+            mViewType = viewType;
+            mStage = stage;
+            mCount = sorted.size();
+            mP50Nanos = percentile(sorted, 50);
+            mP95Nanos = percentile(sorted, 95);
+            mP99Nanos = percentile(sorted, 99);
+        }
+
+        @Override
+        public int compareTo(Row other) {
+            int compare = mViewType.compareTo(other.mViewType);
+            return compare != 0 ? compare : mStage.compareTo(other.mStage);
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.edwardharker.multiitemadapter.tracesummary;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link TraceSummary} and {@link AtraceParser}
+ */
+public class TraceSummaryTest {
+
+    private static final String TRACE = ""
+            + "# tracer: nop\n"
+            + "  RenderThread-1235  ( 1234) [001] ...1  100.000000: tracing_mark_write: B|1234|DrawFrame\n"
+            + "  com.example-1234  ( 1234) [000] ...1  100.000000: tracing_mark_write: B|1234|RV OnBindView\n"
+            + "  com.example-1234  ( 1234) [000] ...1  100.000100: tracing_mark_write: B|1234|MultiTypeAdapter bind HEADER\n"
+            + "  RenderThread-1235  ( 1234) [001] ...1  100.000200: tracing_mark_write: E|1234\n"
+            + "  com.example-1234  ( 1234) [000] ...1  100.000600: tracing_mark_write: E|1234\n"
+            + "  com.example-1234  ( 1234) [000] ...1  100.000700: tracing_mark_write: E|1234\n"
+            + "  com.example-1234  ( 1234) [000] ...1  100.001000: tracing_mark_write: B|1234|MultiTypeAdapter create ITEM\n"
+            + "  com.example-1234  ( 1234) [000] ...1  100.003000: tracing_mark_write: E|1234\n"
+            + "  com.example-1234  [000] ...1  100.004000: tracing_mark_write: B|1234|MultiTypeAdapter bind HEADER\n"
+            + "  com.example-1234  [000] ...1  100.004300: tracing_mark_write: E\n";
+
+    @Test
+    public void testParse() throws Exception {
+        Map<String, List<Long>> durations =
+                AtraceParser.parse(new BufferedReader(new StringReader(TRACE)));
+
+        assertEquals(2, durations.size());
+        assertEquals(Arrays.asList(500000L, 300000L),
+                durations.get("MultiTypeAdapter bind HEADER"));
+        assertEquals(Arrays.asList(2000000L), durations.get("MultiTypeAdapter create ITEM"));
+    }
+
+    @Test
+    public void testParseSixDigitPid() throws Exception {
+        String trace = ""
+                + "  com.example-123456 (123456) [000] ...1  100.000000: tracing_mark_write: B|123456|MultiTypeAdapter bind HEADER\n"
+                + "  com.example-123456 (123456) [000] ...1  100.000400: tracing_mark_write: E|123456\n"
+                + "  com.example-123457 (-----) [000] ...1  100.001000: tracing_mark_write: B|123456|MultiTypeAdapter create ITEM\n"
+                + "  com.example-123457 (-----) [000] ...1  100.001200: tracing_mark_write: E|123456\n";
+
+        Map<String, List<Long>> durations =
+                AtraceParser.parse(new BufferedReader(new StringReader(trace)));
+
+        assertEquals(Arrays.asList(400000L), durations.get("MultiTypeAdapter bind HEADER"));
+        assertEquals(Arrays.asList(200000L), durations.get("MultiTypeAdapter create ITEM"));
+    }
+
+    @Test
+    public void testSummarise() throws Exception {
+        List<TraceSummary.Row> rows = TraceSummary.summarise(
+                AtraceParser.parse(new BufferedReader(new StringReader(TRACE))));
+
+        assertEquals(2, rows.size());
+        assertEquals("HEADER", rows.get(0).mViewType);
+        assertEquals("bind", rows.get(0).mStage);
+        assertEquals(2, rows.get(0).mCount);
+        assertEquals(300000L, rows.get(0).mP50Nanos);
+        assertEquals(500000L, rows.get(0).mP99Nanos);
+        assertEquals("ITEM", rows.get(1).mViewType);
+        assertEquals("create", rows.get(1).mStage);
+    }
+
+    @Test
+    public void testPercentile() throws Exception {
+        List<Long> sorted = Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+
+        assertEquals(5L, TraceSummary.percentile(sorted, 50));
+        assertEquals(10L, TraceSummary.percentile(sorted, 95));
+        assertEquals(1L, TraceSummary.percentile(sorted, 0));
+    }
+
+    @Test
+    public void testToNanos() throws Exception {
+        assertEquals(12000001000L, AtraceParser.toNanos("12", "000001"));
+        assertEquals(1500000000L, AtraceParser.toNanos("1", "5"));
+    }
+
+}